@@ -1,10 +1,20 @@
 package org.SwEng;
 
 import org.SwEng.headCoordinatorSystem.HeadCoordinator;
+import org.SwEng.headCoordinatorSystem.SessionServer;
 
 public class Main {
     public static void main(String[] args) {
+        HeadCoordinator.startBackgroundWork();
+
+        // "--server [port]" serves many sessions over the network instead of the local console
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = (args.length > 1) ? Integer.parseInt(args[1]) : SessionServer.DEFAULT_PORT;
+            new SessionServer(port).start();
+            return;
+        }
+
         HeadCoordinator coordinator = new HeadCoordinator();
         coordinator.start();
     }
-}
\ No newline at end of file
+}
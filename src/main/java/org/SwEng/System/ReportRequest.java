@@ -0,0 +1,19 @@
+package org.SwEng.System;
+
+import org.SwEng.storeSystem.SalesRollup;
+
+/**
+ * Asks the system subsystem to generate a sales report. Published on the subsystem bus, so the session that
+ * asks for it does not wait for the report to be written.
+ *
+ * @param period      Whether this is a daily or a monthly report.
+ * @param salesRollup The sales counters the report is built from.
+ * @param targetDate  The day the report is for (YYYY-MM-DD); a monthly report covers that day's month.
+ */
+public record ReportRequest(Period period, SalesRollup salesRollup, String targetDate) {
+
+    public enum Period {
+        DAILY,
+        MONTHLY
+    }
+}
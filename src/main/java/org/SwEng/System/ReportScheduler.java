@@ -0,0 +1,191 @@
+package org.SwEng.System;
+
+import org.SwEng.storeSystem.StoreDB;
+import org.SwEng.subsystems.general.SubsystemBus;
+import org.SwEng.subsystems.general.Subsystems;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the daily and monthly sales reports on schedule, whether or not anyone is using a session.
+ * <p>
+ * A day's report is due at the configured report time on that day, and a month's report is due at the report
+ * time on the month's last day. Once a minute the scheduler works out which periods are due and asks the system
+ * subsystem (through the subsystem bus) for every due report that does not exist yet. Report generation skips
+ * periods that already have a report, so each period is produced exactly once even if it is asked for twice, and
+ * a report that could not be queued or failed is asked for again on the next check.
+ * </p>
+ * <p>
+ * When the scheduler starts, it continues from the newest existing report, so reports for periods that were due
+ * while the program was not running are generated straight away (up to MAX_CATCH_UP_DAYS / MAX_CATCH_UP_MONTHS
+ * back). With no reports at all, only the most recent due period is generated.
+ * </p>
+ */
+public class ReportScheduler {
+    // -Demt.reportTime=HH:mm sets when reports are generated
+    public static final String REPORT_TIME_PROPERTY = "emt.reportTime";
+    public static final LocalTime DEFAULT_REPORT_TIME = LocalTime.of(21, 0); // 9:00 PM
+
+    private static final long CHECK_INTERVAL_SECONDS = 60;
+    private static final int MAX_CATCH_UP_DAYS = 366;
+    private static final int MAX_CATCH_UP_MONTHS = 24;
+    // Leaves room on the system lane during a long catch-up; the rest are asked for on later checks
+    private static final int MAX_REQUESTS_PER_CHECK = SubsystemBus.DEFAULT_QUEUE_CAPACITY / 2;
+
+    private final SubsystemBus bus;
+    private final LocalTime reportTime;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Every period up to and including these has a report (null until the first check)
+    private LocalDate dailyDoneThrough;
+    private YearMonth monthlyDoneThrough;
+
+    /**
+     * @param bus        The bus the report requests are published on.
+     * @param reportTime The time of day reports become due.
+     */
+    public ReportScheduler(SubsystemBus bus, LocalTime reportTime) {
+        this.bus = bus;
+        this.reportTime = reportTime;
+    }
+
+    /**
+     * Reads the report time from the emt.reportTime system property (HH:mm), defaulting to 21:00.
+     */
+    public static LocalTime getConfiguredReportTime() {
+        String configured = System.getProperty(REPORT_TIME_PROPERTY);
+        if (configured == null) {
+            return DEFAULT_REPORT_TIME;
+        }
+        try {
+            return LocalTime.parse(configured.trim());
+        } catch (DateTimeParseException e) {
+            System.err.println("Invalid " + REPORT_TIME_PROPERTY + " \"" + configured + "\", using " + DEFAULT_REPORT_TIME);
+            return DEFAULT_REPORT_TIME;
+        }
+    }
+
+    /**
+     * Catches up on missed reports now, then checks for due reports once a minute.
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::checkSafely, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void checkSafely() {
+        try {
+            runDueJobs(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // A failed check must not stop the checks that follow
+            System.err.println("Error checking for due reports: " + e);
+        }
+    }
+
+    /**
+     * Asks for every report that is due at the given time and does not exist yet.
+     */
+    void runDueJobs(LocalDateTime now) {
+        LocalDate latestDueDay = now.toLocalTime().isBefore(reportTime) ? now.toLocalDate().minusDays(1) : now.toLocalDate();
+        YearMonth latestDueMonth = latestDueDay.equals(latestDueDay.withDayOfMonth(latestDueDay.lengthOfMonth()))
+                ? YearMonth.from(latestDueDay)
+                : YearMonth.from(latestDueDay).minusMonths(1);
+
+        if (dailyDoneThrough == null) {
+            dailyDoneThrough = getDailyStart(latestDueDay);
+            monthlyDoneThrough = getMonthlyStart(latestDueMonth);
+        }
+
+        int requestsLeft = MAX_REQUESTS_PER_CHECK;
+
+        // 1. Daily reports
+        boolean allDone = true;
+        for (LocalDate day = dailyDoneThrough.plusDays(1); !day.isAfter(latestDueDay); day = day.plusDays(1)) {
+            if (SystemDB.hasDailyReport(day.toString())) {
+                if (allDone) {
+                    dailyDoneThrough = day;
+                }
+                continue;
+            }
+            allDone = false;
+            if (requestsLeft-- <= 0 || !request(ReportRequest.Period.DAILY, day)) {
+                break; // Asked for again on the next check
+            }
+        }
+
+        // 2. Monthly reports
+        allDone = true;
+        for (YearMonth month = monthlyDoneThrough.plusMonths(1); !month.isAfter(latestDueMonth); month = month.plusMonths(1)) {
+            if (SystemDB.hasMonthlyReport(month.toString())) {
+                if (allDone) {
+                    monthlyDoneThrough = month;
+                }
+                continue;
+            }
+            allDone = false;
+            if (requestsLeft-- <= 0 || !request(ReportRequest.Period.MONTHLY, month.atEndOfMonth())) {
+                break;
+            }
+        }
+    }
+
+    private boolean request(ReportRequest.Period period, LocalDate targetDate) {
+        return bus.publish(Subsystems.SYSTEM, new ReportRequest(period, StoreDB.getSalesRollup(), targetDate.toString()));
+    }
+
+    /**
+     * @return The day after which daily reports are generated: the newest existing report, within the catch-up limit.
+     */
+    private static LocalDate getDailyStart(LocalDate latestDueDay) {
+        LocalDate start = latestDueDay.minusDays(1);
+        LocalDate newest = null;
+        for (String date : SystemDB.getAllDailyReportsByDateOnly()) {
+            try {
+                LocalDate reportDate = LocalDate.parse(date);
+                if (newest == null || reportDate.isAfter(newest)) {
+                    newest = reportDate;
+                }
+            } catch (DateTimeParseException e) {
+                // Not a report date; ignore it
+            }
+        }
+        if (newest != null) {
+            start = newest;
+        }
+        LocalDate earliest = latestDueDay.minusDays(MAX_CATCH_UP_DAYS);
+        return start.isBefore(earliest) ? earliest : start;
+    }
+
+    /**
+     * @return The month after which monthly reports are generated: the newest existing report, within the catch-up limit.
+     */
+    private static YearMonth getMonthlyStart(YearMonth latestDueMonth) {
+        YearMonth start = latestDueMonth.minusMonths(1);
+        YearMonth newest = null;
+        for (String month : SystemDB.getAllMonthlyReportsByDateOnly()) {
+            try {
+                YearMonth reportMonth = YearMonth.parse(month);
+                if (newest == null || reportMonth.isAfter(newest)) {
+                    newest = reportMonth;
+                }
+            } catch (DateTimeParseException e) {
+                // Not a report month; ignore it
+            }
+        }
+        if (newest != null) {
+            start = newest;
+        }
+        YearMonth earliest = latestDueMonth.minusMonths(MAX_CATCH_UP_MONTHS);
+        return start.isBefore(earliest) ? earliest : start;
+    }
+}
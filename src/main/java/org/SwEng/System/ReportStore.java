@@ -0,0 +1,286 @@
+package org.SwEng.System;
+
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A report file plus a sidecar index that maps each report date to where its report sits in the file.
+ * <p>
+ * Reports are appended to the report file as before, and one "date,offset,length" line is appended to the
+ * index for each. Listing dates is served from memory and fetching a report is one seek plus one read,
+ * however many reports the file holds. Recently read reports are kept in a small LRU cache.
+ * If the index is missing or behind the report file (e.g. an older report file), the unindexed part of the
+ * report file is scanned once and the index is brought up to date.
+ * </p>
+ */
+public class ReportStore {
+    public static final String REPORT_FOOTER = "----------------------------";
+
+    // Number of report texts kept in memory
+    private static final int CACHE_CAPACITY = 32;
+
+    private final Path reportPath;
+    private final Path indexPath;
+    private final String headerTitle;
+
+    // Report date -> location, in the order the reports were first written. A regenerated report replaces the entry.
+    private final Map<String, ReportLocation> locationsByDate = new LinkedHashMap<>();
+    private final Map<String, String> reportCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens a report store, loading its index and indexing any reports the index does not cover yet.
+     *
+     * @param reportPath The report file (e.g. dailySalesReports.txt).
+     * @param indexPath  The sidecar index file.
+     * @param reportType The report type used in headers (e.g. "Daily" for "--- Daily Report for: DATE ---").
+     */
+    public ReportStore(Path reportPath, Path indexPath, String reportType) {
+        this.reportPath = reportPath;
+        this.indexPath = indexPath;
+        this.headerTitle = reportType + " Report for: ";
+
+        long indexedUpTo = loadIndex();
+        indexUnindexedReports(indexedUpTo);
+    }
+
+    /**
+     * Appends a report and indexes it.
+     *
+     * @param date        The report's date (e.g. "2025-11-26" or "2025-11").
+     * @param reportLines The body of the report, one "\n" terminated line per entry.
+     */
+    public void append(String date, String reportLines) {
+        lock.lock();
+        try {
+            String report = "--- " + headerTitle + date + " ---\n" + reportLines + REPORT_FOOTER + "\n";
+            byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+
+            long offset;
+            try (RandomAccessFile file = new RandomAccessFile(reportPath.toFile(), "rw")) {
+                // Reports are separated by a blank line
+                file.seek(file.length());
+                file.write('\n');
+                offset = file.getFilePointer();
+                file.write(bytes);
+            } catch (IOException e) {
+                System.err.println("Error writing report to: " + reportPath);
+                e.printStackTrace();
+                return;
+            }
+
+            ReportLocation location = new ReportLocation(offset, bytes.length);
+            locationsByDate.put(date, location);
+            reportCache.put(date, report);
+            appendIndexEntry(date, location);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a report.
+     *
+     * @param date The report's date.
+     * @return The full report text (header to footer), or null if there is no report for that date.
+     */
+    public String get(String date) {
+        lock.lock();
+        try {
+            String cached = reportCache.get(date);
+            if (cached != null) {
+                return cached;
+            }
+
+            ReportLocation location = locationsByDate.get(date);
+            if (location == null) {
+                return null;
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(reportPath.toFile(), "r")) {
+                byte[] bytes = new byte[location.length()];
+                file.seek(location.offset());
+                file.readFully(bytes);
+
+                String report = new String(bytes, StandardCharsets.UTF_8);
+                reportCache.put(date, report);
+                return report;
+            } catch (IOException e) {
+                System.err.println("Error reading report file: " + reportPath);
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(String date) {
+        lock.lock();
+        try {
+            return locationsByDate.containsKey(date);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Every report date, in the order the reports were first written.
+     */
+    public List<String> getDates() {
+        lock.lock();
+        try {
+            return new ArrayList<>(locationsByDate.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- INDEX MAINTENANCE ---
+
+    /**
+     * Reads the sidecar index into memory.
+     *
+     * @return The report file offset up to which the index is known to cover.
+     */
+    private long loadIndex() {
+        long indexedUpTo = 0;
+        if (!Files.exists(indexPath)) {
+            return indexedUpTo;
+        }
+        dropTornIndexLine();
+
+        try (BufferedReader br = Files.newBufferedReader(indexPath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length != 3) {
+                    continue;
+                }
+                try {
+                    ReportLocation location = new ReportLocation(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+                    locationsByDate.put(parts[0], location);
+                    indexedUpTo = Math.max(indexedUpTo, location.offset() + location.length());
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping malformed report index line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading report index: " + indexPath);
+        }
+        return indexedUpTo;
+    }
+
+    /**
+     * Cuts off a last index line that a crash left without its newline. Its length may be cut short too, so it
+     * cannot be trusted; the report it pointed to is found again by the scan of the unindexed part of the file.
+     */
+    private void dropTornIndexLine() {
+        try (RandomAccessFile file = new RandomAccessFile(indexPath.toFile(), "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < file.length()) {
+                file.setLength(end);
+            }
+        } catch (IOException e) {
+            System.err.println("Error repairing report index: " + indexPath);
+        }
+    }
+
+    /**
+     * Scans the report file from the given offset for report headers and indexes every complete report found.
+     */
+    private void indexUnindexedReports(long fromOffset) {
+        byte[] bytes;
+        try {
+            if (!Files.exists(reportPath) || Files.size(reportPath) <= fromOffset) {
+                return;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(reportPath.toFile(), "r")) {
+                bytes = new byte[(int) (file.length() - fromOffset)];
+                file.seek(fromOffset);
+                file.readFully(bytes);
+            }
+        } catch (IOException e) {
+            System.err.println("Error indexing report file: " + reportPath);
+            return;
+        }
+
+        String reportDate = null;
+        int reportStart = 0;
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).trim();
+            int nextLineStart = Math.min(lineEnd + 1, bytes.length);
+
+            String headerDate = parseHeaderDate(line);
+            if (headerDate != null) {
+                reportDate = headerDate;
+                reportStart = lineStart;
+            } else if (reportDate != null && line.equals(REPORT_FOOTER)) {
+                ReportLocation location = new ReportLocation(fromOffset + reportStart, nextLineStart - reportStart);
+                locationsByDate.put(reportDate, location);
+                appendIndexEntry(reportDate, location);
+                reportDate = null;
+            }
+            lineStart = nextLineStart;
+        }
+    }
+
+    /**
+     * @return The date in a report header line, or null if the line is not a header.
+     * Headers written before the "--- ... ---" markers were added are recognised too.
+     */
+    private String parseHeaderDate(String line) {
+        if (line.startsWith("--- ") && line.endsWith(" ---")) {
+            line = line.substring(4, line.length() - 4);
+        }
+        if (!line.startsWith(headerTitle)) {
+            return null;
+        }
+        String date = line.substring(headerTitle.length()).trim();
+        return date.isEmpty() ? null : date;
+    }
+
+    private void appendIndexEntry(String date, ReportLocation location) {
+        try (FileWriter fw = new FileWriter(indexPath.toFile(), true)) {
+            fw.write(date + "," + location.offset() + "," + location.length() + "\n");
+        } catch (IOException e) {
+            System.err.println("Error writing report index: " + indexPath);
+        }
+    }
+
+    /**
+     * Where a report sits in the report file.
+     *
+     * @param offset Byte offset of the report's header line.
+     * @param length Number of bytes up to and including the footer line.
+     */
+    private record ReportLocation(long offset, int length) {
+    }
+}
@@ -1,8 +1,14 @@
 package org.SwEng.System;
 
+import org.SwEng.headCoordinatorSystem.SessionServer;
+import org.SwEng.storeSystem.ProductWriteBehind;
+import org.SwEng.storeSystem.StoreDB;
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.SubsystemBus;
 import org.SwEng.subsystems.general.Subsystems;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 public class SystemCoordinator {
@@ -30,11 +36,13 @@ public class SystemCoordinator {
 
         // Check if we are just entering this screen (no input or returning from another state)
         if (input.isEmpty()) {
-            output.append("Welcome, CEO.\n\nCommands:\n1. View Daily Reports\n2. View Monthly Reports\n3. Exit System\nInput: ");
+            output.append("Welcome, CEO.\n\nCommands:\n1. View Daily Reports\n2. View Monthly Reports\n3. Exit System\n4. View Background Work\n"
+                    + "5. View Sales For Dates [YYYY-MM-DD] [YYYY-MM-DD] [product id (optional)]\nInput: ");
             return new InternalSystemMessage(Subsystems.SYSTEM, output.toString());
         }
 
-        return switch (input) {
+        String[] parts = input.split(" ");
+        return switch (parts[0]) {
             case "1" -> {
                 curScreen = Screen.DAILY_SELECTION;
                 // Recursive call to immediately show the next screen's output
@@ -50,10 +58,75 @@ public class SystemCoordinator {
             case "3" ->
                 // Return control to the Account System (Login screen)
                     new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "");
+            case "4" -> displayBusMetrics();
+            case "5" -> displayRangeReport(parts);
             default -> new InternalSystemMessage(Subsystems.SYSTEM, "Invalid Selection.\nHit [ENTER] to return welcome screen.");
         };
     }
 
+    /**
+     * Shows the sales between two dates (inclusive), optionally for one product only.
+     * Any range works, e.g. a week, so it is built on demand instead of being read from the report files.
+     */
+    private InternalSystemMessage displayRangeReport(String[] parts) {
+        if (parts.length < 3 || parts.length > 4) {
+            return new InternalSystemMessage(Subsystems.SYSTEM, "Error of command usage.\nCorrect Usage: \"5 FROM_DATE TO_DATE\" or \"5 FROM_DATE TO_DATE PRODUCT_ID\"\nHit [ENTER] to return welcome screen.");
+        }
+
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(parts[1]);
+            to = LocalDate.parse(parts[2]);
+        } catch (DateTimeParseException e) {
+            return new InternalSystemMessage(Subsystems.SYSTEM, "Invalid date. Dates are written YYYY-MM-DD.\nHit [ENTER] to return welcome screen.");
+        }
+        if (from.isAfter(to)) {
+            return new InternalSystemMessage(Subsystems.SYSTEM, "The first date must not be after the second.\nHit [ENTER] to return welcome screen.");
+        }
+
+        Integer productId = null;
+        if (parts.length == 4) {
+            try {
+                productId = Integer.parseInt(parts[3]);
+            } catch (NumberFormatException e) {
+                return new InternalSystemMessage(Subsystems.SYSTEM, "Invalid product id.\nHit [ENTER] to return welcome screen.");
+            }
+        }
+
+        return displayReport(SystemDB.getRangeReport(StoreDB.getSalesRollup(), from, to, productId));
+    }
+
+    /**
+     * Shows how much background work each subsystem has queued and how long it has been waiting,
+     * how the product file writes are being batched, and how many network sessions are connected.
+     */
+    private InternalSystemMessage displayBusMetrics() {
+        StringBuilder output = new StringBuilder("--- Background Work ---\n");
+        for (SubsystemBus.LaneMetrics lane : SubsystemBus.shared().getMetrics()) {
+            output.append(lane.subsystem()).append("\n");
+            output.append("  Queued now: ").append(lane.queueDepth())
+                    .append(" (peak ").append(lane.peakQueueDepth()).append(")\n");
+            output.append("  Published: ").append(lane.published())
+                    .append(", completed: ").append(lane.completed())
+                    .append(", rejected: ").append(lane.rejected())
+                    .append(", failed: ").append(lane.failed()).append("\n");
+            output.append(String.format("  Wait (ms): avg %.2f, max %.2f; run (ms): avg %.2f\n",
+                    lane.averageDispatchMillis(), lane.slowestDispatchMillis(), lane.averageHandleMillis()));
+        }
+
+        ProductWriteBehind.FlushMetrics writes = StoreDB.getProductWriter().getMetrics();
+        output.append("PRODUCT FILE (").append(writes.mode()).append(")\n");
+        output.append("  Writes: ").append(writes.flushes())
+                .append(", changes written: ").append(writes.changesWritten()).append("\n");
+        output.append(String.format("  Batch size: avg %.1f, max %d; write (ms): avg %.2f, max %.2f\n",
+                writes.averageBatchSize(), writes.largestBatch(), writes.averageFlushMillis(), writes.slowestFlushMillis()));
+
+        output.append("Network sessions connected: ").append(SessionServer.getActiveSessionCount()).append("\n");
+        output.append("Hit [ENTER] to return welcome screen.");
+        return new InternalSystemMessage(Subsystems.SYSTEM, output.toString());
+    }
+
     // --- SCREEN HANDLERS ---
 
     private InternalSystemMessage handleDailySelection(InternalSystemMessage message) {
@@ -147,12 +220,14 @@ public class SystemCoordinator {
         }
     }
 
-    public void generateDailyReport(String salesData, String targetDate) {
-        SystemDB.generateDailySalesReport(salesData, targetDate);
-    }
-
-    public void generateMonthlyReport(String salesData, String targetDate) {
-        SystemDB.generateMonthlySalesReport(salesData, targetDate);
+    /**
+     * Generates the report a ReportRequest asks for. Runs on the system subsystem's bus thread.
+     */
+    public static void generateReport(ReportRequest request) {
+        switch (request.period()) {
+            case DAILY -> SystemDB.generateDailySalesReport(request.salesRollup(), request.targetDate());
+            case MONTHLY -> SystemDB.generateMonthlySalesReport(request.salesRollup(), request.targetDate());
+        }
     }
 
     // --- REPORT GENERATION HANDLERS ---
@@ -1,79 +1,115 @@
 package org.SwEng.System;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
+import org.SwEng.storeSystem.SalesCounts;
+import org.SwEng.storeSystem.SalesLedger;
+import org.SwEng.storeSystem.SalesRollup;
+
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class SystemDB {
-    // Define the file path for reports data
+    // Define the file paths for reports data. Each report file has an index of where each report starts.
     private static final String DAILY_REPORT_FILE_NAME = "dailySalesReports.txt";
     private static final String DAILY_REPORT_PATH = "src/main/java/org/SwEng/System/dataFiles/" + DAILY_REPORT_FILE_NAME;
+    private static final String DAILY_REPORT_INDEX_PATH = "src/main/java/org/SwEng/System/dataFiles/dailySalesReports.idx";
 
     private static final String MONTHLY_REPORT_FILE_NAME = "monthlySalesReports.txt";
     private static final String MONTHLY_REPORT_PATH = "src/main/java/org/SwEng/System/dataFiles/" + MONTHLY_REPORT_FILE_NAME;
+    private static final String MONTHLY_REPORT_INDEX_PATH = "src/main/java/org/SwEng/System/dataFiles/monthlySalesReports.idx";
+
+    private static ReportStore dailyReports;
+    private static ReportStore monthlyReports;
+    // Held while a report is generated or read back from its file
+    private static final ReentrantLock lock = new ReentrantLock();
 
     // --- REPORT GENERATION OPERATIONS ---
 
     /**
-     * Generates a report for a specific day and appends it to dailySalesReports.txt.
+     * Generates a report for a specific day and appends it to dailySalesReports.txt, unless that day already has one.
+     * The counts come straight from the running daily counters, so no sales history is scanned.
+     *
+     * @param salesRollup The running sale counters to generate the report from.
+     * @param targetDate  The date to generate the report for (Format: "YYYY-MM-DD").
+     * @return True if a report was generated; false if the day already had one.
+     */
+    public static boolean generateDailySalesReport(SalesRollup salesRollup, String targetDate) {
+        lock.lock();
+        try {
+            if (getDailyReports().contains(targetDate)) {
+                return false;
+            }
+            SalesCounts salesCount = salesRollup.getDailyCounts(LocalDate.parse(targetDate));
+            writeReport(salesRollup.getSalesLedger(), salesCount, getDailyReports(), targetDate);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Generates a report for a specific month and appends it to monthlySalesReports.txt, unless that month
+     * already has one.
+     * The counts come straight from the running monthly counters, so no sales history is scanned.
      *
-     * @param salesData  A string of all sales data to be used for generating a report.
-     * @param targetDate The date to generate the report for (Format: "YYYY-MM-DD").
+     * @return True if a report was generated; false if the month already had one.
      */
-    public static void generateDailySalesReport(String salesData, String targetDate) {
-        String filteredDates = filterSalesByDate(salesData, targetDate);
-        writeReport(filteredDates, DAILY_REPORT_PATH, "Daily Report for: " + targetDate);
+    public static boolean generateMonthlySalesReport(SalesRollup salesRollup, String targetDateStr) {
+        lock.lock();
+        try {
+            String targetMonth = targetDateStr.substring(0, 7); // Returns only the YYYY-MM of our date.
+            if (getMonthlyReports().contains(targetMonth)) {
+                return false;
+            }
+            SalesCounts salesCount = salesRollup.getMonthlyCounts(LocalDate.parse(targetDateStr));
+            writeReport(salesRollup.getSalesLedger(), salesCount, getMonthlyReports(), targetMonth);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param targetDate The date to look for (e.g., "2023-11-25").
+     * @return True if a daily report exists for that date.
+     */
+    public static boolean hasDailyReport(String targetDate) {
+        lock.lock();
+        try {
+            return getDailyReports().contains(targetDate);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Generates a report for a specific month and appends it to monthlySalesReports.txt.
+     * @param targetMonth The month to look for (e.g., "2023-11").
+     * @return True if a monthly report exists for that month.
      */
-    public static void generateMonthlySalesReport(String salesData, String targetDateStr) {
-        String filteredDates = filterSalesByMonth(salesData, targetDateStr);
-        targetDateStr = targetDateStr.substring(0, 7); // Returns only the YYYY-MM of our date.
-        writeReport(filteredDates, MONTHLY_REPORT_PATH, "Monthly Report for: " + targetDateStr);
+    public static boolean hasMonthlyReport(String targetMonth) {
+        lock.lock();
+        try {
+            return getMonthlyReports().contains(targetMonth);
+        } finally {
+            lock.unlock();
+        }
     }
 
     // --- REPORT RETRIEVAL OPERATIONS ---
 
     /**
-     * Scans the daily reports file and returns a List<String> of all available dates.
+     * Returns a List<String> of all dates with a daily report, read from the report index.
      * Output format:
      * YYYY-MM-DD
      */
     public static List<String> getAllDailyReportsByDateOnly() {
-        String headerPrefix = "--- Daily Report for: ";
-        String headerSuffix = " ---";
-        List<String> availableDatesList = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(DAILY_REPORT_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Check if the line contains the report header signature
-                if (line.contains(headerPrefix) && line.contains(headerSuffix)) {
-
-                    // Extract the date between the prefix and suffix
-                    int startIndex = line.indexOf(headerPrefix) + headerPrefix.length();
-                    int endIndex = line.indexOf(headerSuffix, startIndex);
-
-                    if (endIndex > startIndex) {
-                        String date = line.substring(startIndex, endIndex).trim();
-                        availableDatesList.add(date);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading daily reports file: " + e.getMessage());
+        lock.lock();
+        try {
+            return getDailyReports().getDates();
+        } finally {
+            lock.unlock();
         }
-
-        return availableDatesList;
     }
 
     /**
@@ -83,42 +119,27 @@ public class SystemDB {
      * @return The String content of the report if found, otherwise null.
      */
     public static String getDailyReport(String targetDate) {
-        String headerSignature = "--- Daily Report for: " + targetDate + " ---";
-        return extractReportFromFile(DAILY_REPORT_PATH, headerSignature);
+        lock.lock();
+        try {
+            return getDailyReports().get(targetDate);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Scans the monthly reports file and returns a List<String> of all available months with reports.
+     * Returns a List<String> of all months with a monthly report, read from the report index.
      * Output format:
-     * YYYY-MM-DD
-     * YYYY-MM-DD
+     * YYYY-MM
+     * YYYY-MM
      */
     public static List<String> getAllMonthlyReportsByDateOnly() {
-        String headerPrefix = "--- Monthly Report for: ";
-        String headerSuffix = " ---";
-        List<String> availableDatesList = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(MONTHLY_REPORT_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Check if the line contains the report header signature
-                if (line.contains(headerPrefix) && line.contains(headerSuffix)) {
-
-                    // Extract the date between the prefix and suffix
-                    int startIndex = line.indexOf(headerPrefix) + headerPrefix.length();
-                    int endIndex = line.indexOf(headerSuffix, startIndex);
-
-                    if (endIndex > startIndex) {
-                        String date = line.substring(startIndex, endIndex).trim();
-                        availableDatesList.add(date);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading monthly reports file: " + e.getMessage());
+        lock.lock();
+        try {
+            return getMonthlyReports().getDates();
+        } finally {
+            lock.unlock();
         }
-
-        return availableDatesList;
     }
 
     /**
@@ -128,174 +149,91 @@ public class SystemDB {
      * @return The String content of the report if found, otherwise null.
      */
     public static String getMonthlyReport(String targetMonth) {
-        String headerSignature = "--- Monthly Report for: " + targetMonth + " ---";
-        return extractReportFromFile(MONTHLY_REPORT_PATH, headerSignature);
+        lock.lock();
+        try {
+            return getMonthlyReports().get(targetMonth);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    // --- HELPER FUNCTIONS ---
-
     /**
-     * Helper to parse the raw filtered sales string, count occurrences by name, and append the report to a file.
-     * Use this for both Daily and Monthly reports.
+     * Builds a report for any range of days on demand. Nothing is saved.
+     * A report on every product comes from the running daily and monthly counters, so no sales history is scanned.
+     * The counters are not kept per product, so a report on one product counts that product's sales straight from
+     * the ledger, in parallel (see SalesLedger.countSalesByProduct).
      *
-     * @param rawSalesData The string output from filterSalesByDate() containing "Name,Date" lines.
-     * @param filePath     The path to the report file (dailySalesReports.txt or monthlySalesReports.txt).
-     * @param header       The header title for this specific report (e.g., "Daily Report for: 2025-11-26").
+     * @param salesRollup The running sale counters to build the report from.
+     * @param from        The first day of the range.
+     * @param to          The last day of the range.
+     * @param productId   Only count this product, or null for every product.
+     * @return The report text.
      */
-    private static void writeReport(String rawSalesData, String filePath, String header) {
-        // 1. Process the raw string into a count map (Name -> Count)
-        Map<String, Integer> salesCount = new HashMap<>();
-
-        if (rawSalesData != null && !rawSalesData.isEmpty()) {
-            // Split by new line to get individual records
-            String[] lines = rawSalesData.split("\\R");
-
-            for (String line : lines) {
-                String[] parts = line.split(",");
-                // Expecting format: Name,Date
-                if (parts.length >= 1) {
-                    String productName = parts[0].trim();
-                    if (!productName.isEmpty()) {
-                        salesCount.put(productName, salesCount.getOrDefault(productName, 0) + 1);
-                    }
-                }
-            }
+    public static String getRangeReport(SalesRollup salesRollup, LocalDate from, LocalDate to, Integer productId) {
+        SalesLedger salesLedger = salesRollup.getSalesLedger();
+        SalesCounts salesCount;
+        String title = from + " to " + to;
+        if (productId == null) {
+            salesCount = salesRollup.getRangeCounts(from, to);
+        } else {
+            title += " (" + salesLedger.getProductName(productId) + ")";
+            salesCount = salesLedger.countSalesByProduct((int) from.toEpochDay(), (int) to.toEpochDay(), productId);
         }
+        return "--- Sales Report for: " + title + " ---\n"
+                + formatSalesCounts(salesLedger, salesCount)
+                + "----------------------------\n";
+    }
 
-        // 2. Write the formatted report to the file
-        try (FileWriter fw = new FileWriter(filePath, true)) { // Append mode is TRUE
-            fw.write("\n" + header + "\n");
+    // --- HELPER FUNCTIONS ---
 
-            if (salesCount.isEmpty()) {
-                fw.write("No sales found for this period.\n");
-            } else {
-                for (Map.Entry<String, Integer> entry : salesCount.entrySet()) {
-                    String name = entry.getKey();
-                    int count = entry.getValue();
-                    fw.write(name + ": " + count + "\n");
-                }
-            }
-            // The footer is required for the extraction logic to know where a report ends
-            fw.write("----------------------------\n");
-        } catch (IOException e) {
-            System.err.println("Error writing report to: " + filePath);
-            e.printStackTrace();
+    /**
+     * Opens the daily report store the first time it is needed.
+     */
+    private static ReportStore getDailyReports() {
+        if (dailyReports == null) {
+            dailyReports = new ReportStore(Path.of(DAILY_REPORT_PATH), Path.of(DAILY_REPORT_INDEX_PATH), "Daily");
         }
+        return dailyReports;
     }
 
     /**
-     * Scans a report file for a specific header and extracts content until the footer.
-     * Returns the full report text block, or null if not found.
+     * Opens the monthly report store the first time it is needed.
      */
-    private static String extractReportFromFile(String filePath, String headerSignature) {
-        StringBuilder reportContent = new StringBuilder();
-        boolean insideTargetBlock = false;
-        boolean found = false;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Check if this line is the start of the report we want
-                if (!insideTargetBlock && line.contains(headerSignature)) {
-                    insideTargetBlock = true;
-                    found = true;
-                }
-
-                if (insideTargetBlock) {
-                    reportContent.append(line).append("\n");
-
-                    // Check for the footer that signifies the end of the report
-                    if (line.trim().equals("----------------------------")) {
-                        break; // Stop reading this report
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading report file: " + filePath);
-            return null;
+    private static ReportStore getMonthlyReports() {
+        if (monthlyReports == null) {
+            monthlyReports = new ReportStore(Path.of(MONTHLY_REPORT_PATH), Path.of(MONTHLY_REPORT_INDEX_PATH), "Monthly");
         }
-
-        return found ? reportContent.toString() : null;
+        return monthlyReports;
     }
 
     /**
-     * Filters the raw sales data string and returns only the lines matching the target date.
-     * * @param salesData. The complete string of sales data (lines separated by \n).
+     * Helper to write the per-product units and revenue for a period and append the report to its store.
+     * Use this for both Daily and Monthly reports.
      *
-     * @param targetDate The date to filter by (e.g., "2025-11-05").
-     * @return A string containing all sales lines for that specific date.
+     * @param salesLedger The sales ledger, used to look up product names.
+     * @param salesCount  Units sold and revenue per product in the period.
+     * @param reports     The report store to append to (daily or monthly).
+     * @param reportDate  The date the report is for (e.g., "2025-11-26" or "2025-11").
      */
-    public static String filterSalesByDate(String salesData, String targetDate) {
-        if (salesData == null || salesData.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder filteredSales = new StringBuilder();
-        // Normalize newlines and split into an array of lines
-        String[] lines = salesData.split("\\R");
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-
-            // Ensure the line has valid format: name,dateSold
-            if (parts.length == 2) {
-                String dateSold = parts[1].trim();
-
-                // Check if the date matches exactly
-                if (dateSold.equals(targetDate.trim())) {
-                    filteredSales.append(line).append("\n");
-                }
-            }
-        }
-
-        return filteredSales.toString();
+    private static void writeReport(SalesLedger salesLedger, SalesCounts salesCount, ReportStore reports, String reportDate) {
+        reports.append(reportDate, formatSalesCounts(salesLedger, salesCount));
     }
 
     /**
-     * Filters the sales data string to return lines where the date falls within the same month/year as the provided date.
-     *
-     * @param salesData     The complete string of sales data.
-     * @param targetDateStr A single date string used to determine the target month (e.g., "2023-11-26" targets November 2023).
-     * @return A string containing only the sales lines matching that month and year.
+     * Formats one line per product (Name [ID]: Units (M$ Revenue)) and a total line, or a note that nothing was sold.
+     * The product ID is shown so products that share a name are told apart.
      */
-    public static String filterSalesByMonth(String salesData, String targetDateStr) {
-        if (salesData == null || salesData.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder filteredSales = new StringBuilder();
-
-        try {
-            // Parse the target date to get the required Year and Month
-            LocalDate targetDate = LocalDate.parse(targetDateStr);
-            int targetYear = targetDate.getYear();
-            var targetMonth = targetDate.getMonth();
-
-            // Split data into lines
-            String[] lines = salesData.split("\\R");
-
-            for (String line : lines) {
-                String[] parts = line.split(",");
-                if (parts.length == 2) {
-                    String dateStr = parts[1].trim();
-
-                    try {
-                        // Parse the sale date
-                        LocalDate saleDate = LocalDate.parse(dateStr);
-
-                        // Check if Year and Month match
-                        if (saleDate.getYear() == targetYear && saleDate.getMonth() == targetMonth) {
-                            filteredSales.append(line).append("\n");
-                        }
-                    } catch (DateTimeParseException e) {
-                        System.err.println("Skipping invalid date in sales data: " + dateStr);
-                    }
-                }
-            }
-        } catch (DateTimeParseException e) {
-            System.err.println("Error: Invalid target date format provided.");
+    private static String formatSalesCounts(SalesLedger salesLedger, SalesCounts salesCount) {
+        if (salesCount.isEmpty()) {
+            return "No sales found for this period.\n";
         }
 
-        return filteredSales.toString();
+        StringBuilder reportLines = new StringBuilder();
+        salesCount.forEach((productId, units, revenue) ->
+                reportLines.append(salesLedger.getProductName(productId)).append(" [").append(productId).append("]: ")
+                        .append(units).append(String.format(" (M$ %.2f)\n", revenue)));
+        reportLines.append("Total: ").append(salesCount.getTotalUnits())
+                .append(String.format(" (M$ %.2f)\n", salesCount.getTotalRevenue()));
+        return reportLines.toString();
     }
 }
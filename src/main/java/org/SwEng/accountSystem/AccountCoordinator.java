@@ -4,22 +4,20 @@ import org.SwEng.accountSystem.PaymentSystem.PaymentCoordinator;
 import org.SwEng.subsystems.general.Account;
 import org.SwEng.subsystems.general.AccountType;
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.MessagePayload;
 import org.SwEng.subsystems.general.Subsystems;
 
-import java.util.List;
 import java.util.Objects;
 
 public class AccountCoordinator {
     // System components
     private final PaymentCoordinator paymentCoordinator;
     // Properties
-    private List<Account> allAccounts;
     private Account currentAccount;
     private Screen curScreen;
 
     public AccountCoordinator() {
         // Initialize properties
-        allAccounts = AccountDB.loadAccounts();
         currentAccount = null;
         curScreen = Screen.loadScreen;
 
@@ -32,47 +30,35 @@ public class AccountCoordinator {
     }
 
     private Account getAccountByEmail(String email) {
-        for (Account account : allAccounts) {
-            if (account.getEmail().equals(email)) {
-                return account;
-            }
-        }
-        return null;
+        return AccountDB.findAccountByEmail(email);
     }
 
     public void logoutCurrentUserAccount() {
         currentAccount = null;
     }
 
-    public void saveCurrentUserAccount(Account currentAccount) {
-        this.currentAccount = currentAccount;
-        AccountDB.saveAccount(currentAccount);
+    /**
+     * Ends the session: a checkout still in progress is abandoned and its stock put back.
+     */
+    public void endSession() {
+        if (curScreen == Screen.buyItemsScreen) {
+            paymentCoordinator.abandonCheckout();
+            curScreen = Screen.loadScreen;
+        }
     }
 
     // Handle User Input
     public InternalSystemMessage handleUserInput(InternalSystemMessage message) {
         switch (curScreen) {
             case Screen.loadScreen:
+                // Commands handed over by other subsystems
+                if (message.payload instanceof MessagePayload.Command command) {
+                    return handleCommand(command);
+                }
                 switch (message.message) {
                     case (""): //Used to retrieve the basic login main menu
                         logoutCurrentUserAccount();
                         return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, outputStrings.MAIN_MENU_STORE_DESCRIPTION + outputStrings.MAIN_MENU_PROMPT);
-                    case ("buyCart"): //Prompts the system to start the user's cart buying process
-                        curScreen = Screen.buyItemsScreen;
-                        return paymentCoordinator.buyCart(message, currentAccount);
-                    case ("getUserByEmail"):
-                        StringBuilder output = new StringBuilder();
-                        Account tempAccount = getAccountByEmail(message.additionalInfo);
-                        if (tempAccount != null) {
-                            output.append(tempAccount.getEmail()).append(",");
-                            output.append(!tempAccount.getAddress().isEmpty() ? tempAccount.getAddress() : "N/A").append(",");
-                            output.append(!tempAccount.getCreditCardNumber().isEmpty() ? tempAccount.getCreditCardNumber() : "N/A").append(",");
-                            output.append(!tempAccount.getDebitCardNumber().isEmpty() ? tempAccount.getDebitCardNumber() : "N/A").append(",");
-
-                            return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, output.toString(), "MessagingSystemMessage");
-                        } else {
-                            return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, "", "MessagingSystemMessage");
-                        }
                     case "1":
                         curScreen = Screen.loginScreen;
                         // Create an empty account object to store login attempt data
@@ -110,12 +96,10 @@ public class AccountCoordinator {
                     }
 
                     // Check if email already exists
-                    for (Account acc : allAccounts) {
-                        if (acc.getEmail().equals(message.message)) {
-                            currentAccount = null;
-                            curScreen = Screen.loadScreen;
-                            return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, outputStrings.EMAIL_EXISTS_MAIN_MENU);
-                        }
+                    if (getAccountByEmail(message.message) != null) {
+                        currentAccount = null;
+                        curScreen = Screen.loadScreen;
+                        return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, outputStrings.EMAIL_EXISTS_MAIN_MENU);
                     }
                     // Email is valid and unique, store it.
                     currentAccount = new Account(message.message, "", AccountType.CUSTOMER);
@@ -152,9 +136,10 @@ public class AccountCoordinator {
             return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, outputStrings.PROMPT_PASSWORD_NO_COLON);
         } else {
             // Both email and password are provided. Check credentials.
-            if (allAccounts.contains(currentAccount)) {
-                // Login success. Find the *actual* account object to make it current.
-                currentAccount = allAccounts.get(allAccounts.indexOf(currentAccount));
+            Account storedAccount = getAccountByEmail(currentAccount.getEmail());
+            if (currentAccount.equals(storedAccount)) {
+                // Login success. Use the *actual* account object to make it current.
+                currentAccount = storedAccount;
 
                 curScreen = Screen.loadScreen; // Reset state machine for the next session
                 if (currentAccount.getAccountType() == AccountType.CEO) {
@@ -176,6 +161,26 @@ public class AccountCoordinator {
         }
     }
 
+    /**
+     * Carries out a command handed over by another subsystem.
+     */
+    private InternalSystemMessage handleCommand(MessagePayload.Command command) {
+        return switch (command) {
+            case MessagePayload.CheckoutCart checkout -> {
+                // Start the user's cart buying process
+                curScreen = Screen.buyItemsScreen;
+                yield paymentCoordinator.buyCart(checkout, currentAccount);
+            }
+            case MessagePayload.LookupCustomer lookup -> {
+                Account customer = getAccountByEmail(lookup.email());
+                MessagePayload result = (customer != null)
+                        ? new MessagePayload.CustomerFound(customer)
+                        : new MessagePayload.CustomerNotFound(lookup.email());
+                yield new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, "", result);
+            }
+        };
+    }
+
     /**
      * Helper method to process account creation state.
      * This method is called *after* handleInput has updated the currentAccount object.
@@ -190,11 +195,12 @@ public class AccountCoordinator {
             return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, outputStrings.PROMPT_PASSWORD_NO_COLON);
         } else {
             // Both email and password are provided. Time to create the account.
-            //currentAccount
-            AccountDB.saveAccount(currentAccount);
-            allAccounts = AccountDB.loadAccounts();
-            currentAccount =  allAccounts.get(allAccounts.indexOf(currentAccount));
             curScreen = Screen.loadScreen; // Reset state machine
+            if (!AccountDB.createAccount(currentAccount)) {
+                // Another session registered the same email since it was checked
+                currentAccount = null;
+                return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, outputStrings.EMAIL_EXISTS_MAIN_MENU);
+            }
             // Log the user in immediately
             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "");
         }
@@ -2,157 +2,442 @@ package org.SwEng.accountSystem;
 
 import org.SwEng.subsystems.general.Account;
 import org.SwEng.subsystems.general.AccountType;
+import org.SwEng.subsystems.general.Cart;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Log-structured account store.
+ * <p>
+ * accounts.txt holds the last compacted snapshot of every account, and accountsJournal.txt holds every
+ * upsert made since then. Both files share the same line format, so recovery is simply loading the snapshot
+ * and replaying the journal on top of it (last write for an email wins). All reads are served from a
+ * concurrent in-memory index keyed by the lower-cased email, so lookups never take the store's lock.
+ * <p>
+ * Compaction first moves the journal aside (accountsJournal.txt.old), so saves carry on into a fresh journal
+ * while the snapshot is written without the store's lock. The moved-aside journal is deleted once the new
+ * snapshot is in place; until then, recovery replays it before the current journal.
+ * </p>
+ */
 public class AccountDB {
+    private static final String DATA_DIRECTORY = "src/main/java/org/SwEng/accountSystem/dataFiles/";
     private static final String ACCOUNTS_FILE_NAME = "accounts.txt";
-    private static final String ACCOUNTS_FILE_PATH = "src/main/java/org/SwEng/accountSystem/dataFiles/" + ACCOUNTS_FILE_NAME;
+    private static final String JOURNAL_FILE_NAME = "accountsJournal.txt";
+
+    // Only ever pointed elsewhere by useDirectory
+    private static String accountsFilePath = DATA_DIRECTORY + ACCOUNTS_FILE_NAME;
+    private static String journalFilePath = DATA_DIRECTORY + JOURNAL_FILE_NAME;
+    private static String rotatedJournalFilePath = journalFilePath + ".old";
+
+    // Number of journal entries allowed to pile up before they are folded into the snapshot
+    private static final int COMPACTION_THRESHOLD = 256;
+
+    // In-memory index of every account, keyed by lower-cased email
+    private static final Map<String, Account> accountsByEmail = new ConcurrentHashMap<>();
+    // Guards the journal and the counters below. Not a synchronized block: it is held across file I/O, which
+    // would pin a session's virtual thread to its carrier thread while other sessions wait for it.
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile boolean loaded = false;
+    private static int journalEntries = 0;
+    private static boolean compactionPending = false;
+
+    // Compaction runs off the caller's thread so a save never pays for a full snapshot rewrite
+    private static final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Finds an account by email and either updates the existing account or adds a new one (upsert).
-     * The entire file is overwritten with the updated list of accounts.
-     * * @param account The Account object to save or update.
+     * The change is appended to the journal, so the cost does not depend on how many accounts exist.
+     *
+     * @param account The Account object to save or update.
      */
     public static void saveAccount(Account account) {
-        // 1. Load all existing accounts from the file
-        List<Account> accounts = loadAccounts();
-        boolean found = false;
-
-        // 2. Try to find and replace the existing account based on email
-        for (int i = 0; i < accounts.size(); i++) {
-            if (accounts.get(i).getEmail().equalsIgnoreCase(account.getEmail())) {
-                accounts.set(i, account); // Replace the old account object with the new one
-                found = true;
-                break;
-            }
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            // 1. Update the in-memory index
+            accountsByEmail.put(indexKey(account.getEmail()), account);
+
+            // 2. Append the new version of the account to the journal
+            appendToJournal(account);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // 3. If no existing account was found, add the new account to the list
-        if (!found) {
-            accounts.add(account);
+    /**
+     * Adds a new account, unless an account already uses its email (case-insensitive).
+     * The check and the insert are one atomic step, so two sessions registering the same email at the same
+     * time cannot both succeed, and an existing account is never overwritten.
+     *
+     * @param account The account to add.
+     * @return True if the account was added, false if its email is already taken.
+     */
+    public static boolean createAccount(Account account) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            if (accountsByEmail.putIfAbsent(indexKey(account.getEmail()), account) != null) {
+                return false;
+            }
+            appendToJournal(account);
+            return true;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // 4. Overwrite the entire file with the updated list
-        saveAllAccounts(accounts);
+    /**
+     * Returns every account currently in the store.
+     * The snapshot and journal are only read from disk the first time this is called.
+     *
+     * @return A new list containing all accounts.
+     */
+    public static List<Account> loadAccounts() {
+        ensureLoaded();
+        return new ArrayList<>(accountsByEmail.values());
     }
 
     /**
-     * Private helper method to overwrite the entire database file with the current
-     * list of accounts.
-     * @param accounts The complete list of accounts to be saved.
+     * Looks up an account through the email index.
+     *
+     * @param email The email to look for (case-insensitive).
+     * @return The matching account, or null if no account uses that email.
      */
-    private static void saveAllAccounts(List<Account> accounts) {
-        // Use FileWriter with the second parameter set to 'false' to overwrite the file
-        try (FileWriter fw = new FileWriter(ACCOUNTS_FILE_PATH, false)) {
+    public static Account findAccountByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        ensureLoaded();
+        return accountsByEmail.get(indexKey(email));
+    }
+
+    /**
+     * Rewrites the snapshot with the current contents of the index and drops the journal entries it now holds.
+     * Runs on the compaction thread, and only holds the store's lock while the journal is moved aside.
+     */
+    static void compact() {
+        lock.lock();
+        try {
+            compactionPending = false;
+            if (!rotateJournal()) {
+                return;
+            }
+            journalEntries = 0;
+        } finally {
+            lock.unlock();
+        }
 
+        // 1. Write the new snapshot next to the old one, then swap it in. Saves made while it is written are in
+        //    the new journal, and replaying them on top of the snapshot gives the same result whether or not
+        //    the copy taken here already saw them.
+        List<Account> accounts = new ArrayList<>(accountsByEmail.values());
+        File tempFile = new File(accountsFilePath + ".tmp");
+        try (FileWriter fw = new FileWriter(tempFile, false)) {
             for (Account account : accounts) {
-                StringBuilder lineBuilder = new StringBuilder();
-
-                // 1. Email
-                String email = account.getEmail();
-                lineBuilder.append(email == null ? "" : email).append(",");
-
-                // 2. Password
-                String password = account.getPassword();
-                lineBuilder.append(password == null ? "" : password).append(",");
-
-                // 3. Account Type
-                // Assuming getAccountType() itself is not null, but checking the string value
-                String type = (account.getAccountType() != null) ? account.getAccountType().getStringValue() : "";
-                lineBuilder.append(type).append(",");
-
-                // 4. Credit Card
-                String cc = account.getCreditCardNumber();
-                lineBuilder.append(cc == null ? "" : cc).append(",");
-
-                // 5. Debit Card
-                String dc = account.getDebitCardNumber();
-                lineBuilder.append(dc == null ? "" : dc).append(",");
-
-                // 6. Address
-                String address = account.getAddress();
-                if (address == null) {
-                    address = "";
-                } else {
-                    // Only replace commas if the address actually exists
-                    address = address.replace(",", ":");
-                }
-                lineBuilder.append(address).append(",");
+                fw.write(toLine(account));
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing account snapshot: " + tempFile.getPath());
+            e.printStackTrace();
+            return;
+        }
 
-                // 7. Cart Items (Variable length, added at the end)
-                if (account.getItemIdsInCart() != null && !account.getItemIdsInCart().isEmpty()) {
-                    // Use String.join to efficiently create the comma-separated list of IDs
-                    lineBuilder.append(String.join(",", account.getItemIdsInCart()));
-                }
+        try {
+            Files.move(tempFile.toPath(), Paths.get(accountsFilePath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error replacing account snapshot: " + accountsFilePath);
+            e.printStackTrace();
+            return;
+        }
 
-                // Add a newline character
-                lineBuilder.append("\n");
+        // 2. Every entry of the moved-aside journal is now part of the snapshot
+        try {
+            Files.deleteIfExists(Paths.get(rotatedJournalFilePath));
+        } catch (IOException e) {
+            System.err.println("Error deleting account journal: " + rotatedJournalFilePath);
+            e.printStackTrace();
+        }
+    }
 
-                fw.write(lineBuilder.toString());
+    /**
+     * Moves the journal aside so the next save starts a new one. Must be called with the store's lock held.
+     * If an earlier compaction failed and left its moved-aside journal behind, the journal is added to the end
+     * of that one instead, since both are still needed.
+     *
+     * @return True if there is no longer a current journal.
+     */
+    private static boolean rotateJournal() {
+        Path journal = Paths.get(journalFilePath);
+        Path rotatedJournal = Paths.get(rotatedJournalFilePath);
+        try {
+            if (!Files.exists(journal)) {
+                return true;
+            }
+            if (Files.exists(rotatedJournal)) {
+                Files.write(rotatedJournal, Files.readAllBytes(journal), StandardOpenOption.APPEND);
+                Files.delete(journal);
+            } else {
+                Files.move(journal, rotatedJournal, StandardCopyOption.ATOMIC_MOVE);
             }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error moving aside account journal: " + journalFilePath);
+            e.printStackTrace();
+            return false;
+        }
+    }
 
+    /**
+     * Appends an account to the journal, then folds the journal into the snapshot once it has grown large enough.
+     * Must be called with the store's lock held.
+     */
+    private static void appendToJournal(Account account) {
+        try (FileWriter fw = new FileWriter(journalFilePath, true)) {
+            fw.write(toLine(account));
         } catch (IOException e) {
-            System.err.println("Error overwriting account file: " + ACCOUNTS_FILE_PATH);
+            System.err.println("Error appending to account journal: " + journalFilePath);
             e.printStackTrace();
         }
+
+        journalEntries++;
+        scheduleCompactionIfNeeded();
     }
 
-    // Read all accounts (Updated to handle 6 mandatory fields)
-    public static List<Account> loadAccounts() {
-        List<Account> accounts = new ArrayList<>();
-        // Minimum number of mandatory fields is now 6: Email, Pass, Type, CC, DC, Address
-        final int MIN_MANDATORY_FIELDS = 6;
+    private static void scheduleCompactionIfNeeded() {
+        if (journalEntries >= COMPACTION_THRESHOLD && !compactionPending) {
+            compactionPending = true;
+            compactionExecutor.submit(AccountDB::compact);
+        }
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(ACCOUNTS_FILE_PATH))) {
+    /**
+     * Points the store at the files in another directory and forgets the accounts loaded so far, so the next use
+     * reads them as after a restart. Used by tests; the carts imported from these files are CartDB's to reset.
+     *
+     * @param directory The directory holding accounts.txt and accountsJournal.txt.
+     */
+    static void useDirectory(Path directory) {
+        lock.lock();
+        try {
+            accountsFilePath = directory.resolve(ACCOUNTS_FILE_NAME).toString();
+            journalFilePath = directory.resolve(JOURNAL_FILE_NAME).toString();
+            rotatedJournalFilePath = journalFilePath + ".old";
+            accountsByEmail.clear();
+            journalEntries = 0;
+            loaded = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the snapshot and replays the journal on top of it the first time the store is used.
+     */
+    private static void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        // Carts must be imported from the account file before a compaction drops their columns
+        CartDB.ensureLoaded();
+
+        lock.lock();
+        try {
+            if (!loaded) {
+                readAccountFile(accountsFilePath);
+                // A journal moved aside by an unfinished compaction is older than the current one
+                journalEntries = readAccountFile(rotatedJournalFilePath) + readAccountFile(journalFilePath);
+                loaded = true;
+                scheduleCompactionIfNeeded();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads every account line in a file into the index.
+     *
+     * @param filePath The snapshot or journal file to read.
+     * @return The number of account lines applied.
+     */
+    private static int readAccountFile(String filePath) {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int applied = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = br.readLine()) != null) {
-                // Use the overloaded split method with limit -1 to capture empty trailing strings
-                String[] data = line.split(",", -1);
-
-                // Check for minimum required fields
-                if (data.length >= MIN_MANDATORY_FIELDS) {
-                    try {
-                        String email = data[0].trim();
-                        String password = data[1].trim();
-                        AccountType type = AccountType.fromString(data[2].trim());
-
-                        // New fields are at indices 3, 4, 5
-                        String creditCardNumber = data[3].trim();
-                        String debitCardNumber = data[4].trim();
-                        String address = data[5].trim();
-
-                        // Collect the variable length item IDs starting from index 6
-                        List<String> itemIds = new ArrayList<>();
-                        for (int i = MIN_MANDATORY_FIELDS; i < data.length; i++) {
-                            String itemId = data[i].trim();
-                            // Only add non-empty strings
-                            if (!itemId.isEmpty()) {
-                                itemIds.add(itemId);
-                            }
-                        }
+                Account account = parseLine(line);
+                if (account != null) {
+                    accountsByEmail.put(indexKey(account.getEmail()), account);
+                    applied++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading account file: " + filePath);
+            // e.printStackTrace(); // Uncomment for detailed error tracing
+        }
+        return applied;
+    }
 
-                        // Create the new Account object with all 6 mandatory fields and the list of item IDs
-                        accounts.add(new Account(email, password, type,
-                                creditCardNumber, debitCardNumber, address,
-                                itemIds));
+    /**
+     * Reads the carts held in the cart columns of the account snapshot and journal, for the one-time import into CartDB.
+     * As with accounts, the last line for an email wins.
+     *
+     * @return The non-empty carts, keyed by email.
+     */
+    static Map<String, Cart> readLegacyCarts() {
+        Map<String, Cart> carts = new LinkedHashMap<>();
+        for (String filePath : new String[]{accountsFilePath, rotatedJournalFilePath, journalFilePath}) {
+            File file = new File(filePath);
+            if (!file.exists()) {
+                continue;
+            }
 
-                    } catch (IllegalArgumentException e) {
-                        System.err.println("Skipping malformed account line (Invalid AccountType): " + line);
+            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",", -1);
+                    if (data.length < 6) {
+                        continue;
+                    }
+                    Cart cart = new Cart();
+                    for (int i = 6; i < data.length; i++) {
+                        String item = data[i].trim();
+                        if (!item.isEmpty()) {
+                            CartDB.addCartItem(cart, item);
+                        }
                     }
-                } else {
-                    System.err.println("Skipping malformed account line (less than " + MIN_MANDATORY_FIELDS + " required fields): " + line);
+                    carts.put(indexKey(data[0].trim()), cart);
                 }
+            } catch (IOException e) {
+                System.err.println("Error reading account file: " + filePath);
             }
-        } catch (IOException e) {
-            System.err.println("Error reading account file: " + ACCOUNTS_FILE_PATH);
-            // e.printStackTrace(); // Uncomment for detailed error tracing
         }
-        return accounts;
+
+        carts.values().removeIf(Cart::isEmpty);
+        return carts;
+    }
+
+    private static String indexKey(String email) {
+        return email.toLowerCase();
+    }
+
+    /**
+     * Converts an account into a single line of the account file.
+     *
+     * @param account The account to convert.
+     * @return The CSV line, including the trailing newline.
+     */
+    private static String toLine(Account account) {
+        StringBuilder lineBuilder = new StringBuilder();
+
+        // 1. Email
+        String email = account.getEmail();
+        lineBuilder.append(email == null ? "" : email).append(",");
+
+        // 2. Password
+        String password = account.getPassword();
+        lineBuilder.append(password == null ? "" : password).append(",");
+
+        // 3. Account Type
+        // Assuming getAccountType() itself is not null, but checking the string value
+        String type = (account.getAccountType() != null) ? account.getAccountType().getStringValue() : "";
+        lineBuilder.append(type).append(",");
+
+        // 4. Credit Card
+        String cc = account.getCreditCardNumber();
+        lineBuilder.append(cc == null ? "" : cc).append(",");
+
+        // 5. Debit Card
+        String dc = account.getDebitCardNumber();
+        lineBuilder.append(dc == null ? "" : dc).append(",");
+
+        // 6. Address
+        String address = account.getAddress();
+        if (address == null) {
+            address = "";
+        } else {
+            // Only replace commas if the address actually exists
+            address = address.replace(",", ":");
+        }
+        lineBuilder.append(address).append(",");
+
+        // Carts are kept apart from the account record, by CartDB
+
+        // Add a newline character
+        lineBuilder.append("\n");
+
+        return lineBuilder.toString();
+    }
+
+    /**
+     * Parses a single line of the account file (Updated to handle 6 mandatory fields).
+     *
+     * @param line The CSV line to parse.
+     * @return The parsed account, or null if the line is malformed.
+     */
+    private static Account parseLine(String line) {
+        // Minimum number of mandatory fields is now 6: Email, Pass, Type, CC, DC, Address
+        final int MIN_MANDATORY_FIELDS = 6;
+
+        // Use the overloaded split method with limit -1 to capture empty trailing strings
+        String[] data = line.split(",", -1);
+
+        // Check for minimum required fields
+        if (data.length < MIN_MANDATORY_FIELDS) {
+            System.err.println("Skipping malformed account line (less than " + MIN_MANDATORY_FIELDS + " required fields): " + line);
+            return null;
+        }
+
+        try {
+            String email = data[0].trim();
+            String password = data[1].trim();
+            AccountType type = AccountType.fromString(data[2].trim());
+
+            // New fields are at indices 3, 4, 5
+            String creditCardNumber = data[3].trim();
+            String debitCardNumber = data[4].trim();
+            String address = data[5].trim();
+
+            // Columns after the address held the cart in older files. Carts now live in CartDB,
+            // which imports them from here once (see readLegacyCarts).
+
+            // Create the new Account object with all 6 mandatory fields
+            return new Account(email, password, type,
+                    creditCardNumber, debitCardNumber, address);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Skipping malformed account line (Invalid AccountType): " + line);
+            return null;
+        }
     }
 }
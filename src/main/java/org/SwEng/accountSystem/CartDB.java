@@ -0,0 +1,491 @@
+package org.SwEng.accountSystem;
+
+import org.SwEng.subsystems.general.Cart;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Log-structured cart store, kept apart from the account records.
+ * <p>
+ * carts.txt holds the last compacted snapshot of every non-empty cart ("email,ID*quantity,..."), and
+ * cartsJournal.txt holds every cart change made since then, one line per change:
+ * "sequence,ADD,email,ID,quantity", "sequence,REMOVE,email,ID,quantity" or "sequence,CLEAR,email". A cart change
+ * appends one short line, so it never rewrites an account's credentials, card numbers or address, and its cost
+ * does not depend on how many accounts or carts exist. Recovery loads the snapshot and replays the journal on top
+ * of it.
+ * </p>
+ * <p>
+ * Changes are deltas, so replaying one twice would add or remove its units twice. Every change is therefore
+ * numbered, and the snapshot starts with the number of the last change it holds ("SEQUENCE,n"); recovery skips
+ * every change up to that number. Compaction moves the journal aside (cartsJournal.txt.old) under the store's
+ * lock, writes the snapshot without it, and deletes the moved-aside journal once the snapshot is in place.
+ * </p>
+ * <p>
+ * The first time the store is opened, the carts still held in the account file are imported into it.
+ * </p>
+ */
+public class CartDB {
+    private static final String DATA_DIRECTORY = "src/main/java/org/SwEng/accountSystem/dataFiles/";
+    private static final String CARTS_FILE_NAME = "carts.txt";
+    private static final String JOURNAL_FILE_NAME = "cartsJournal.txt";
+
+    // Only ever pointed elsewhere by useDirectory
+    private static String cartsFilePath = DATA_DIRECTORY + CARTS_FILE_NAME;
+    private static String journalFilePath = DATA_DIRECTORY + JOURNAL_FILE_NAME;
+    private static String rotatedJournalFilePath = journalFilePath + ".old";
+
+    // Separates a product ID from its quantity in a cart column
+    private static final char CART_QUANTITY_SEPARATOR = '*';
+
+    private static final String ADD = "ADD";
+    private static final String REMOVE = "REMOVE";
+    private static final String CLEAR = "CLEAR";
+    // First line of the snapshot: the number of the last change it holds
+    private static final String SEQUENCE = "SEQUENCE";
+
+    // Number of journal entries allowed to pile up before they are folded into the snapshot
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    // Every cart, keyed by the lower-cased email of its account
+    private static final Map<String, Cart> cartsByEmail = new ConcurrentHashMap<>();
+    // Guards the journal and the counters below; held across file I/O, so a lock rather than a monitor (see AccountDB)
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile boolean loaded = false;
+    private static int journalEntries = 0;
+    private static boolean compactionPending = false;
+    // Number of the last change written to the journal
+    private static long lastSequence = 0;
+    // While loading: number of the last change already applied, so a change is never applied twice
+    private static long appliedSequence = 0;
+
+    // Compaction runs off the caller's thread so a cart change never pays for a full snapshot rewrite
+    private static final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // --- READ OPERATIONS ---
+
+    /**
+     * Returns an account's cart. The cart is created (empty) if the account has none yet.
+     * The returned cart must only be changed through the methods of this class, so every change is logged.
+     *
+     * @param email The account's email (case-insensitive).
+     * @return The account's cart.
+     */
+    public static Cart getCart(String email) {
+        ensureLoaded();
+        return cartsByEmail.computeIfAbsent(indexKey(email), key -> new Cart());
+    }
+
+    // --- WRITE OPERATIONS ---
+
+    /**
+     * Adds units of a product to an account's cart.
+     *
+     * @return The number of units of the product now in the cart.
+     */
+    public static int addItem(String email, String productId, int quantity) {
+        lock.lock();
+        try {
+            int inCart = getCart(email).add(productId, quantity);
+            appendToJournal(ADD + "," + email + "," + productId + "," + quantity);
+            return inCart;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes units of a product from an account's cart.
+     *
+     * @return The number of units of the product left in the cart.
+     */
+    public static int removeItem(String email, String productId, int quantity) {
+        lock.lock();
+        try {
+            Cart cart = getCart(email);
+            if (!cart.contains(productId)) {
+                return 0;
+            }
+            int left = cart.remove(productId, quantity);
+            appendToJournal(REMOVE + "," + email + "," + productId + "," + quantity);
+            return left;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a product from an account's cart, whatever its quantity.
+     */
+    public static void removeAllOfItem(String email, String productId) {
+        lock.lock();
+        try {
+            int quantity = getCart(email).getQuantity(productId);
+            if (quantity > 0) {
+                removeItem(email, productId, quantity);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empties an account's cart (e.g. once it has been bought).
+     */
+    public static void clearCart(String email) {
+        lock.lock();
+        try {
+            Cart cart = getCart(email);
+            if (cart.isEmpty()) {
+                return;
+            }
+            cart.clear();
+            appendToJournal(CLEAR + "," + email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- JOURNAL AND SNAPSHOT ---
+
+    private static void appendToJournal(String entry) {
+        lastSequence++;
+        try (FileWriter fw = new FileWriter(journalFilePath, true)) {
+            fw.write(lastSequence + "," + entry + "\n");
+        } catch (IOException e) {
+            System.err.println("Error appending to cart journal: " + journalFilePath);
+            e.printStackTrace();
+        }
+
+        journalEntries++;
+        scheduleCompactionIfNeeded();
+    }
+
+    private static void scheduleCompactionIfNeeded() {
+        if (journalEntries >= COMPACTION_THRESHOLD && !compactionPending) {
+            compactionPending = true;
+            compactionExecutor.submit(CartDB::compact);
+        }
+    }
+
+    /**
+     * Rewrites the snapshot with every non-empty cart and drops the journal entries it now holds.
+     * Only holds the store's lock while the journal is moved aside and the carts are copied.
+     *
+     * @return True if the new snapshot was written.
+     */
+    static boolean compact() {
+        long snapshotSequence;
+        List<String> snapshotLines = new ArrayList<>();
+        lock.lock();
+        try {
+            compactionPending = false;
+            if (!rotateJournal()) {
+                return false;
+            }
+            journalEntries = 0;
+            snapshotSequence = lastSequence;
+            for (Map.Entry<String, Cart> entry : cartsByEmail.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    snapshotLines.add(toLine(entry.getKey(), entry.getValue()));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // 1. Write the new snapshot next to the old one, then swap it in
+        File tempFile = new File(cartsFilePath + ".tmp");
+        try (FileWriter fw = new FileWriter(tempFile, false)) {
+            fw.write(SEQUENCE + "," + snapshotSequence + "\n");
+            for (String line : snapshotLines) {
+                fw.write(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing cart snapshot: " + tempFile.getPath());
+            e.printStackTrace();
+            return false;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), Paths.get(cartsFilePath),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error replacing cart snapshot: " + cartsFilePath);
+            e.printStackTrace();
+            return false;
+        }
+
+        // 2. Every change in the moved-aside journal is now part of the snapshot
+        try {
+            Files.deleteIfExists(Paths.get(rotatedJournalFilePath));
+        } catch (IOException e) {
+            System.err.println("Error deleting cart journal: " + rotatedJournalFilePath);
+            e.printStackTrace();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the journal aside so the next change starts a new one. Must be called with the store's lock held.
+     * If an earlier compaction failed and left its moved-aside journal behind, the journal is added to the end
+     * of that one instead, since both are still needed.
+     *
+     * @return True if there is no longer a current journal.
+     */
+    private static boolean rotateJournal() {
+        Path journal = Paths.get(journalFilePath);
+        Path rotatedJournal = Paths.get(rotatedJournalFilePath);
+        try {
+            if (!Files.exists(journal)) {
+                return true;
+            }
+            if (Files.exists(rotatedJournal)) {
+                Files.write(rotatedJournal, Files.readAllBytes(journal), StandardOpenOption.APPEND);
+                Files.delete(journal);
+            } else {
+                Files.move(journal, rotatedJournal, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error moving aside cart journal: " + journalFilePath);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Points the store at the files in another directory and forgets the carts loaded so far, so the next use
+     * reads them as after a restart. Used by tests.
+     *
+     * @param directory The directory holding carts.txt and cartsJournal.txt.
+     */
+    static void useDirectory(Path directory) {
+        lock.lock();
+        try {
+            cartsFilePath = directory.resolve(CARTS_FILE_NAME).toString();
+            journalFilePath = directory.resolve(JOURNAL_FILE_NAME).toString();
+            rotatedJournalFilePath = journalFilePath + ".old";
+            cartsByEmail.clear();
+            journalEntries = 0;
+            lastSequence = 0;
+            appliedSequence = 0;
+            loaded = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the snapshot and replays the journal the first time the store is used.
+     * If neither file exists yet, the carts in the account file are imported and written out as the first snapshot.
+     */
+    static void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+
+            boolean needsMigration = !new File(cartsFilePath).exists() && !new File(journalFilePath).exists()
+                    && !new File(rotatedJournalFilePath).exists();
+            if (needsMigration) {
+                Map<String, Cart> importedCarts = AccountDB.readLegacyCarts();
+                for (Map.Entry<String, Cart> entry : importedCarts.entrySet()) {
+                    cartsByEmail.put(indexKey(entry.getKey()), entry.getValue());
+                }
+                if (compact()) {
+                    System.out.println("Imported " + importedCarts.size() + " carts from the account file into " + CARTS_FILE_NAME);
+                }
+            } else {
+                long snapshotSequence = readSnapshot();
+                appliedSequence = Math.max(snapshotSequence, 0);
+                // A journal moved aside by an unfinished compaction is older than the current one
+                journalEntries = readJournal(rotatedJournalFilePath, snapshotSequence >= 0)
+                        + readJournal(journalFilePath, snapshotSequence >= 0);
+                lastSequence = appliedSequence;
+            }
+            loaded = true;
+            scheduleCompactionIfNeeded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the carts in the snapshot.
+     *
+     * @return The number of the last change the snapshot holds, or -1 if it has no number (an older snapshot).
+     */
+    private static long readSnapshot() {
+        File file = new File(cartsFilePath);
+        if (!file.exists()) {
+            return -1;
+        }
+
+        long snapshotSequence = -1;
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] data = line.split(",");
+                if (data.length < 2) {
+                    continue;
+                }
+                if (data[0].equals(SEQUENCE)) {
+                    snapshotSequence = Long.parseLong(data[1].trim());
+                    continue;
+                }
+                Cart cart = new Cart();
+                for (int i = 1; i < data.length; i++) {
+                    addCartItem(cart, data[i].trim());
+                }
+                cartsByEmail.put(indexKey(data[0].trim()), cart);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading cart file: " + cartsFilePath);
+        }
+        return snapshotSequence;
+    }
+
+    /**
+     * Replays the changes in a journal file that the snapshot and the files read before it do not hold yet.
+     *
+     * @param filePath            The journal file.
+     * @param snapshotHasSequence True if the snapshot is numbered, so it already holds every unnumbered
+     *                            change (those were written before changes were numbered).
+     * @return The number of changes applied.
+     */
+    private static int readJournal(String filePath, boolean snapshotHasSequence) {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int applied = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] data = line.split(",");
+                long sequence = parseSequence(data[0]);
+                boolean alreadyApplied = (sequence < 0) ? snapshotHasSequence : sequence <= appliedSequence;
+                if (alreadyApplied) {
+                    continue;
+                }
+                if (applyJournalEntry(data, (sequence < 0) ? 0 : 1)) {
+                    applied++;
+                    appliedSequence = Math.max(appliedSequence, sequence);
+                } else if (!line.isBlank()) {
+                    System.err.println("Skipping malformed cart journal line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading cart file: " + filePath);
+        }
+        return applied;
+    }
+
+    /**
+     * @return The change number at the start of a journal line, or -1 if the line has none.
+     */
+    private static long parseSequence(String field) {
+        if (field.isEmpty() || !Character.isDigit(field.charAt(0))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(field);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Applies one journal change, whose fields start at data[start].
+     *
+     * @return True if the change was well formed and applied.
+     */
+    private static boolean applyJournalEntry(String[] data, int start) {
+        int fields = data.length - start;
+        try {
+            if (fields == 2 && data[start].equals(CLEAR)) {
+                cartsByEmail.computeIfAbsent(indexKey(data[start + 1]), key -> new Cart()).clear();
+                return true;
+            }
+            if (fields == 4 && (data[start].equals(ADD) || data[start].equals(REMOVE))) {
+                Cart cart = cartsByEmail.computeIfAbsent(indexKey(data[start + 1]), key -> new Cart());
+                int quantity = Integer.parseInt(data[start + 3]);
+                if (data[start].equals(ADD)) {
+                    cart.add(data[start + 2], quantity);
+                } else {
+                    cart.remove(data[start + 2], quantity);
+                }
+                return true;
+            }
+        } catch (IllegalArgumentException e) {
+            // Unreadable or non-positive quantity
+        }
+        return false;
+    }
+
+    private static String indexKey(String email) {
+        return email.trim().toLowerCase();
+    }
+
+    /**
+     * Converts a cart into a single line of the snapshot, including the trailing newline.
+     */
+    private static String toLine(String email, Cart cart) {
+        StringBuilder lineBuilder = new StringBuilder(email);
+        for (Map.Entry<String, Integer> item : cart.getQuantities().entrySet()) {
+            lineBuilder.append(",").append(item.getKey());
+            if (item.getValue() > 1) {
+                lineBuilder.append(CART_QUANTITY_SEPARATOR).append(item.getValue());
+            }
+        }
+        lineBuilder.append("\n");
+        return lineBuilder.toString();
+    }
+
+    /**
+     * Adds one cart column ("ID" for a single unit, or "ID*quantity") to a cart.
+     * Used for the snapshot and for the cart columns of the account file.
+     */
+    static void addCartItem(Cart cart, String item) {
+        int separator = item.indexOf(CART_QUANTITY_SEPARATOR);
+        if (separator < 0) {
+            cart.add(item, 1);
+            return;
+        }
+
+        try {
+            int quantity = Integer.parseInt(item.substring(separator + 1).trim());
+            if (quantity > 0) {
+                cart.add(item.substring(0, separator).trim(), quantity);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping malformed cart item: " + item);
+        }
+    }
+}
@@ -1,40 +1,59 @@
 package org.SwEng.accountSystem.PaymentSystem;
 
 import org.SwEng.accountSystem.AccountDB;
+import org.SwEng.accountSystem.CartDB;
+import org.SwEng.accountSystem.ReceiptOutbox;
+import org.SwEng.storeSystem.OrderLog;
+import org.SwEng.storeSystem.StoreDB;
 import org.SwEng.subsystems.general.Account;
+import org.SwEng.subsystems.general.Cart;
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.MessagePayload;
+import org.SwEng.subsystems.general.Order;
+import org.SwEng.subsystems.general.SubsystemBus;
 import org.SwEng.subsystems.general.Subsystems;
 
+import java.util.List;
 import java.util.Objects;
 
 public class PaymentCoordinator {
     private Account currentAccount;
-    private String currentCost;
+    private List<Order.Item> itemsBought;
+    private double currentCost;
+    private int unitsBought;
     private String paymentType; // Stores "Credit" or "Debit"
     private CheckoutState checkoutState = CheckoutState.INIT;
+    // Set when checkout fills in a card number or address, so the account record only has to be saved then
+    private boolean accountChanged;
+    // Set while the stock for itemsBought is reserved and no order has been placed for it
+    private boolean stockReserved;
 
-    public InternalSystemMessage buyCart(InternalSystemMessage message, Account curAccount) {
+    /**
+     * Starts checking out a cart whose stock has been reserved.
+     *
+     * @param checkout   The cart's cost and size.
+     * @param curAccount The account paying for the cart.
+     * @return A prompt for the card type.
+     */
+    public InternalSystemMessage buyCart(MessagePayload.CheckoutCart checkout, Account curAccount) {
         this.currentAccount = curAccount;
-        return buyCart(message);
+        this.itemsBought = checkout.items();
+        this.currentCost = checkout.cost();
+        this.unitsBought = checkout.units();
+        this.stockReserved = true;
+        this.checkoutState = CheckoutState.AWAITING_CARD_TYPE;
+        return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, OutputStrings.PROMPT_CARD_TYPE);
     }
 
     /**
      * Handles the multi-step checkout process (buy cart).
      * The process flows: Cost -> Card Type -> Card Number (if missing) -> Address (if missing) -> Complete.
+     * The cost is received by buyCart(CheckoutCart, Account), which starts the process.
      *
-     * @param message The incoming message, containing the cost on the first call, and user input on subsequent calls.
+     * @param message The user's input.
      * @return An InternalSystemMessage prompting the user for the next piece of data or confirming completion.
      */
     public InternalSystemMessage buyCart(InternalSystemMessage message) {
-        // --- STEP 0: INITIAL CALL (Receives Cost) ---
-        if (checkoutState == CheckoutState.INIT) {
-            // The first message content is assumed to contain the cost as a double
-            this.currentCost = message.additionalInfo;
-            this.checkoutState = CheckoutState.AWAITING_CARD_TYPE;
-            // Transition to State 1
-            return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, OutputStrings.PROMPT_CARD_TYPE);
-        }
-
         // --- STEP 1: PROMPT CARD TYPE / AWAITING_CARD_TYPE ---
         if (checkoutState == CheckoutState.AWAITING_CARD_TYPE) {
             String choice = message.message.toLowerCase();
@@ -68,6 +87,7 @@ public class PaymentCoordinator {
             } else if (Objects.equals(paymentType, "Debit")) {
                 currentAccount.setDebitCardNumber(message.message);
             }
+            accountChanged = true;
             // Card number is captured, now check the address
             // Fall-through to next check
         }
@@ -81,10 +101,14 @@ public class PaymentCoordinator {
                 // First time checking, set state and prompt
                 this.checkoutState = CheckoutState.AWAITING_ADDRESS_INPUT;
                 return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, OutputStrings.PROMPT_ADDRESS);
+            } else if (message.message.isBlank()) {
+                // An empty address would send checkout back to this prompt, and place the order twice
+                return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, OutputStrings.PROMPT_ADDRESS);
             } else {
                 // User has provided the address input
                 // The input uses colons, replace them with commas for consistency in storage
                 currentAccount.setAddress(message.message);
+                accountChanged = true;
                 checkoutState = CheckoutState.COMPLETE;
                 // Address is captured, fall-through to completion
             }
@@ -96,16 +120,42 @@ public class PaymentCoordinator {
 
         // Step 5 Checkout Complete
         if (checkoutState == CheckoutState.COMPLETE) {
-            String output = "You have successfully checked out, your total was " + this.currentCost +
-                    " million dollars.\nA receipt has been sent to your email on file: " + this.currentAccount.getEmail() +
+            // The order log is the record of the sale: the ledger and reports are derived from it.
+            // The stock (taken when checkout started), the cart and the account are still saved separately.
+            Order order = OrderLog.append(currentAccount.getEmail(), itemsBought, currentCost, paymentType);
+            if (order == null) {
+                releaseReservedStock();
+                return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, OutputStrings.ORDER_NOT_PLACED);
+            }
+            stockReserved = false;
+
+            String output = "You have successfully checked out " + unitsBought + (unitsBought == 1 ? " item" : " items") +
+                    ", your total was " + this.currentCost +
+                    " million dollars.\nYour order number is " + order.orderId() +
+                    ".\nA receipt has been sent to your email on file: " + this.currentAccount.getEmail() +
                     "\nYour items will be delivered to: " + this.currentAccount.getAddress().replace(":", ",") +
                     ".\nHit [ENTER] to return to store.";
 
+            // Record the sale and send the receipt in the background; checkout does not wait for them
+            if (!SubsystemBus.shared().publish(Subsystems.STORE_SYSTEM, order)) {
+                // The store's queue is full; record the sale now instead of waiting for the next checkout
+                StoreDB.recordNewOrders();
+            }
+            ReceiptOutbox.Receipt receipt = new ReceiptOutbox.Receipt(order.orderId(), currentAccount.getEmail(),
+                    currentAccount.getAddress(), unitsBought, currentCost, order.placedAt().toString());
+            if (!SubsystemBus.shared().publish(Subsystems.ACCOUNT_SYSTEM, receipt)) {
+                // The account queue is full; send the receipt now, since the customer is told it has been sent
+                ReceiptOutbox.send(receipt);
+            }
+
             // Clear the customer's cart
-            currentAccount.clearCart();
+            CartDB.clearCart(currentAccount.getEmail());
 
-            // Save updated account info
-            AccountDB.saveAccount(currentAccount);
+            // Save updated account info, if a card number or address was entered during checkout
+            if (accountChanged) {
+                AccountDB.saveAccount(currentAccount);
+                accountChanged = false;
+            }
 
             return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, output);
         }
@@ -115,6 +165,29 @@ public class PaymentCoordinator {
         return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "");
     }
 
+    /**
+     * Gives up a checkout that was started but never paid for (e.g. the session closed), putting back its stock.
+     */
+    public void abandonCheckout() {
+        releaseReservedStock();
+        checkoutState = CheckoutState.INIT;
+    }
+
+    /**
+     * Puts back the stock reserved for the items being bought, if it is still held.
+     */
+    private void releaseReservedStock() {
+        if (!stockReserved) {
+            return;
+        }
+        Cart reserved = new Cart();
+        for (Order.Item item : itemsBought) {
+            reserved.add(item.productId(), item.quantity());
+        }
+        StoreDB.releaseCart(reserved);
+        stockReserved = false;
+    }
+
     // State machine steps for the checkout process
     enum CheckoutState {
         INIT,                     // State 0: Initial call, cost received.
@@ -130,5 +203,6 @@ public class PaymentCoordinator {
         public static final String PROMPT_CARD_NUMBER = "Please enter your card number.\nInput: ";
         public static final String PROMPT_ADDRESS = "Please enter your shipping address.\nInput: ";
         public static final String INVALID_CARD_TYPE = "Invalid Card Type. Checkout with\n1. Credit Card\n2. Debit Card\nInput: ";
+        public static final String ORDER_NOT_PLACED = "Sorry, your order could not be placed and you have not been charged.\nYour cart has been kept.\nHit [ENTER] to return to store.";
     }
 }
@@ -0,0 +1,52 @@
+package org.SwEng.accountSystem;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outgoing receipt emails.
+ * <p>
+ * The store has no mail server, so a sent receipt is appended to receipts.txt, one line per receipt:
+ * "orderId,checkoutTime,email,units,total,address". Receipts are published on the account subsystem's bus lane at
+ * checkout and written from there, so the customer never waits for them.
+ * </p>
+ */
+public class ReceiptOutbox {
+    private static final String RECEIPTS_FILE_NAME = "receipts.txt";
+    private static final String RECEIPTS_FILE_PATH = "src/main/java/org/SwEng/accountSystem/dataFiles/" + RECEIPTS_FILE_NAME;
+    // Keeps receipts from different checkouts on separate lines
+    private static final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Sends a receipt to the customer's email.
+     *
+     * @param receipt The receipt to send.
+     */
+    public static void send(Receipt receipt) {
+        lock.lock();
+        try {
+            try (FileWriter fw = new FileWriter(RECEIPTS_FILE_PATH, true)) {
+                fw.write(receipt.orderId() + "," + receipt.checkoutTime() + "," + receipt.email() + "," + receipt.units() + ","
+                        + receipt.total() + "," + receipt.address().replace(",", ":") + "\n");
+            } catch (IOException e) {
+                System.err.println("Error sending receipt to: " + receipt.email());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A receipt for one checkout.
+     *
+     * @param orderId      The order number.
+     * @param email        The customer's email.
+     * @param address      The delivery address.
+     * @param units        The number of units bought.
+     * @param total        The total charged, in millions of dollars.
+     * @param checkoutTime When the checkout finished (ISO-8601).
+     */
+    public record Receipt(long orderId, String email, String address, int units, double total, String checkoutTime) {
+    }
+}
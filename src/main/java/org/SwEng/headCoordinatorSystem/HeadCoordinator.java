@@ -1,19 +1,31 @@
 package org.SwEng.headCoordinatorSystem;
 
+import org.SwEng.System.ReportRequest;
+import org.SwEng.System.ReportScheduler;
 import org.SwEng.System.SystemCoordinator;
 import org.SwEng.accountSystem.AccountCoordinator;
+import org.SwEng.accountSystem.ReceiptOutbox;
 import org.SwEng.messagingSystem.MessagingCoordinator;
 import org.SwEng.storeSystem.StoreCoordinator;
+import org.SwEng.storeSystem.StoreDB;
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.Order;
+import org.SwEng.subsystems.general.SubsystemBus;
 import org.SwEng.subsystems.general.Subsystems;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 // Main Head Coordinator class
+// Each instance is one user session: it owns its own coordinators and their screen state,
+// while the product, account and message stores behind them are shared.
 public class HeadCoordinator {
+    // Most times one input may be handed from subsystem to subsystem before a screen must be produced
+    private static final int MAX_HANDOFFS = 8;
+
     private final Scanner scanner;
+    private final PrintStream out;
     // System components
     private final AccountCoordinator accountCoordinator;
     private final StoreCoordinator storeCoordinator;
@@ -23,10 +35,21 @@ public class HeadCoordinator {
     private String outputMessage;
 
     /**
-     * HeadCoordinator constructor.
+     * HeadCoordinator constructor for a session on the local console.
      */
     public HeadCoordinator() {
-        scanner = new Scanner(System.in);
+        this(System.in, System.out);
+    }
+
+    /**
+     * HeadCoordinator constructor for a session on any input/output pair (e.g. a network connection).
+     *
+     * @param in  Where the user's input is read from
+     * @param out Where the screens are written to
+     */
+    public HeadCoordinator(InputStream in, PrintStream out) {
+        scanner = new Scanner(in);
+        this.out = out;
         subsystemInCommunication = Subsystems.ACCOUNT_SYSTEM;
         accountCoordinator = new AccountCoordinator();
         storeCoordinator = new StoreCoordinator();
@@ -34,61 +57,75 @@ public class HeadCoordinator {
         messagingCoordinator = new MessagingCoordinator();
     }
 
+    /**
+     * Starts the background work each subsystem runs on its own bus lane, off the session threads.
+     * Call once at startup, before the first session; sessions only publish to the bus.
+     */
+    public static void startBackgroundWork() {
+        SubsystemBus bus = SubsystemBus.shared();
+        bus.subscribe(Subsystems.SYSTEM, ReportRequest.class, SystemCoordinator::generateReport);
+        bus.subscribe(Subsystems.ACCOUNT_SYSTEM, ReceiptOutbox.Receipt.class, ReceiptOutbox::send);
+        bus.subscribe(Subsystems.STORE_SYSTEM, Order.class, order -> StoreDB.recordNewOrders());
+
+        // Daily and monthly reports are generated on schedule, whether or not anyone is typing
+        new ReportScheduler(bus, ReportScheduler.getConfiguredReportTime()).start();
+    }
+
     /**
      * Prints n lines to "clear" the screen
      */
-    private static void clearScreen() {
+    private void clearScreen() {
         for (int index = 0; index < 50; index++) {
-            System.out.print("\n");
+            out.print("\n");
         }
     }
 
     /**
      * Processes the inputted command.
+     * A subsystem may answer by handing the message to another subsystem (e.g. leaving the store hands control
+     * back to the account system); the message is passed along until a subsystem answers with a screen.
      *
      * @param message The user's input to process
      */
     public void processCommand(InternalSystemMessage message) {
+        for (int handoffs = 0; handoffs <= MAX_HANDOFFS; handoffs++) {
+            InternalSystemMessage returnedMessage = dispatch(message);
+            if (returnedMessage.subsystem == subsystemInCommunication) {
+                outputMessage = returnedMessage.message;
+                return;
+            }
+
+            leaveSubsystem(subsystemInCommunication);
+            subsystemInCommunication = returnedMessage.subsystem;
+            message = returnedMessage;
+        }
+
+        // The subsystems kept handing the message to each other without producing a screen
+        throw new IllegalStateException("Unexpected system state reached (message handed between subsystems more than " + MAX_HANDOFFS + " times).");
+    }
+
+    /**
+     * Hands a message to the subsystem currently in communication.
+     *
+     * @return The subsystem's answer.
+     */
+    private InternalSystemMessage dispatch(InternalSystemMessage message) {
         switch (subsystemInCommunication) {
             case ACCOUNT_SYSTEM: {
                 // Responsible for authentication, authorization, profiles, and configuration.
-                InternalSystemMessage returnedMessage = accountCoordinator.handleUserInput(message);
-                if (returnedMessage.subsystem != Subsystems.ACCOUNT_SYSTEM) {
-                    subsystemInCommunication = returnedMessage.subsystem;
-                    processCommand(returnedMessage);
-                    break;
-                }
-                outputMessage = returnedMessage.message;
-                break;
+                return accountCoordinator.handleUserInput(message);
             }
 
             case MESSAGING_SYSTEM: {
-                InternalSystemMessage returnedMessage;
                 if (!messagingCoordinator.isCustomerLoggedIn()) {
-                    returnedMessage = messagingCoordinator.handleInput(message, accountCoordinator.getCurrentUserAccount());
-                } else {
-                    returnedMessage = messagingCoordinator.handleInput(message);
-                }
-                if (returnedMessage.subsystem != Subsystems.MESSAGING_SYSTEM) {
-                    messagingCoordinator.setCurUser(null);
-                    subsystemInCommunication = returnedMessage.subsystem;
-                    processCommand(returnedMessage);
-                    break;
+                    return messagingCoordinator.handleInput(message, accountCoordinator.getCurrentUserAccount());
                 }
-                outputMessage = returnedMessage.message;
-                break;
+                return messagingCoordinator.handleInput(message);
             }
 
             case SYSTEM: {
                 // Manages logging, configuration, health checks, and scheduled tasks.
-                InternalSystemMessage returnedMessage = systemCoordinator.handleInput(message);
-                if (returnedMessage.subsystem != Subsystems.SYSTEM) {
-                    subsystemInCommunication = returnedMessage.subsystem;
-                    processCommand(returnedMessage);
-                    break;
-                }
-                outputMessage = returnedMessage.message;
-                break;
+                return systemCoordinator.handleInput(message);
             }
 
             case STORE_SYSTEM: {
@@ -96,16 +133,7 @@ public class HeadCoordinator {
                 if (!storeCoordinator.isCustomerLoggedIn()) {
                     storeCoordinator.setCurUser(accountCoordinator.getCurrentUserAccount());
                 }
-                InternalSystemMessage returnedMessage = storeCoordinator.handleInput(message);
-                if (returnedMessage.subsystem != Subsystems.STORE_SYSTEM) {
-                    accountCoordinator.saveCurrentUserAccount(storeCoordinator.getUserAccount());
-                    storeCoordinator.setCurUser(null);
-                    subsystemInCommunication = returnedMessage.subsystem;
-                    processCommand(returnedMessage);
-                    break;
-                }
-                outputMessage = returnedMessage.message;
-                break;
+                return storeCoordinator.handleInput(message);
             }
 
             default: {
@@ -115,42 +143,48 @@ public class HeadCoordinator {
         }
     }
 
+    /**
+     * Resets the session state a subsystem keeps while the user is in it.
+     */
+    private void leaveSubsystem(Subsystems subsystem) {
+        switch (subsystem) {
+            case MESSAGING_SYSTEM -> messagingCoordinator.setCurUser(null);
+            // Cart changes are saved as they are made, so the account does not need saving here
+            case STORE_SYSTEM -> storeCoordinator.setCurUser(null);
+            default -> {
+            }
+        }
+    }
+
     /**
      * Starts the main application loop for the Head Coordinator.
+     * Returns once the session's input is closed.
      */
     public void start() {
         // Initialize the system
-        System.out.println("System Started");
-
-        // Used for generating daily reports automatically
-        LocalTime now;
-        LocalTime start = LocalTime.of(20, 55); // 8:55 PM (24-hour format)
-        LocalTime end = LocalTime.of(21, 5);   // 9:05 PM (24-hour format)
-
-        // Used for generating monthly reports automatically
-        LocalDate today;
-
-        // Gets the initial login screen from the account coordinator
-        InternalSystemMessage message = new InternalSystemMessage(subsystemInCommunication, "");
-        processCommand(message);
-
-        while (true) {
-            // Clears the screen to make the UI feel reactive
-            clearScreen();
-            now = LocalTime.now();
-            today = LocalDate.now();
-            // Checks if we are +-5 minutes from 9 PM, if so generate a daily report
-            if (!now.isBefore(start) && !now.isAfter(end)) {
-                systemCoordinator.generateDailyReport(storeCoordinator.getSalesData(), LocalDate.now().toString());
-            }
-            // Checks if we are on the last day of the month, if so, generate the monthly report.
-            if (today.getDayOfMonth() == today.lengthOfMonth()) {
-                systemCoordinator.generateMonthlyReport(storeCoordinator.getSalesData(), today.toString());
-            }
-            System.out.print(outputMessage);
-            String input = scanner.nextLine();
-            message = new InternalSystemMessage(subsystemInCommunication, input);
+        out.println("System Started");
+
+        try {
+            // Gets the initial login screen from the account coordinator
+            InternalSystemMessage message = new InternalSystemMessage(subsystemInCommunication, "");
             processCommand(message);
+
+            while (true) {
+                // Clears the screen to make the UI feel reactive
+                clearScreen();
+                out.print(outputMessage);
+                out.flush();
+                if (!scanner.hasNextLine()) {
+                    // The input was closed (e.g. a remote session disconnected)
+                    return;
+                }
+                String input = scanner.nextLine();
+                message = new InternalSystemMessage(subsystemInCommunication, input);
+                processCommand(message);
+            }
+        } finally {
+            // Stock reserved for a checkout the user never finished goes back on sale
+            accountCoordinator.endSession();
         }
     }
 }
\ No newline at end of file
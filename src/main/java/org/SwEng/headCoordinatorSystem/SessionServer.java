@@ -0,0 +1,74 @@
+package org.SwEng.headCoordinatorSystem;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the store to many users at once over plain text (telnet-style) connections.
+ * <p>
+ * Every accepted connection gets its own {@link HeadCoordinator} session, which runs on its own
+ * virtual thread, so thousands of mostly idle sessions cost very little.
+ * </p>
+ */
+public class SessionServer {
+    public static final int DEFAULT_PORT = 4040;
+    // Connections the OS may hold until they are accepted. The default (50) drops connections when many users
+    // connect at once; the OS still caps this at its own limit (somaxconn).
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    private final int port;
+    // Sessions connected to any server in this process, shown on the CEO's background work screen
+    private static final AtomicInteger activeSessions = new AtomicInteger();
+
+    public SessionServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Accepts connections until the process is stopped.
+     */
+    public void start() {
+        try (ServerSocket serverSocket = new ServerSocket(port, ACCEPT_BACKLOG);
+             ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("Session server listening on port " + port);
+
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                sessions.submit(() -> runSession(socket));
+            }
+        } catch (IOException e) {
+            System.err.println("Session server stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one user's session until they disconnect.
+     *
+     * @param socket The user's connection
+     */
+    private void runSession(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (socket) {
+            PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+            HeadCoordinator session = new HeadCoordinator(socket.getInputStream(), out);
+            session.start();
+        } catch (IOException e) {
+            System.err.println("Session ended with an error: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // One broken session must not take the others down
+            System.err.println("Session crashed: " + e);
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    public static int getActiveSessionCount() {
+        return activeSessions.get();
+    }
+}
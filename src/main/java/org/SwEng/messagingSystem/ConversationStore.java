@@ -0,0 +1,350 @@
+package org.SwEng.messagingSystem;
+
+import org.SwEng.subsystems.general.AccountType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only message store with one set of segment files per customer conversation.
+ * <p>
+ * Each conversation's messages are written one "SENDER,message" line at a time to its tail segment.
+ * Once the tail segment reaches MAX_SEGMENT_BYTES, a new segment is started, so no single file grows
+ * without bound. A directory index (one "id,segmentCount,email" line per change, the last line for an ID wins)
+ * maps each customer email to its conversation and how many segments it has.
+ * Sending a message is one append, and reading the latest messages reads backwards from the end of the tail segment.
+ * </p>
+ * <p>
+ * A line a crash left without its newline is cut off when the store is opened, from the index and from each
+ * tail segment. A conversation's index line is written before its first message, and a rollover's before the
+ * message that starts the new segment, so cutting either one loses only the message that was being sent.
+ * </p>
+ */
+public class ConversationStore {
+    public static final long MAX_SEGMENT_BYTES = 64 * 1024;
+    private static final String INDEX_FILE_NAME = "index.txt";
+
+    // Bytes read at a time when reading a segment backwards from its end
+    private static final int READ_CHUNK_BYTES = 8 * 1024;
+
+    private final Path directory;
+    private final Path indexPath;
+
+    // Lower-cased customer email -> conversation, in the order conversations were started
+    private final Map<String, Conversation> conversationsByEmail = new LinkedHashMap<>();
+    private int nextConversationId = 1;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens (or creates) a conversation store.
+     *
+     * @param directory The directory holding the index and segment files.
+     * @throws IOException If the directory or index cannot be read.
+     */
+    public ConversationStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.indexPath = directory.resolve(INDEX_FILE_NAME);
+        Files.createDirectories(directory);
+        loadIndex();
+    }
+
+    // --- WRITE OPERATIONS ---
+
+    /**
+     * Appends a message to a customer's conversation, starting the conversation if it does not exist yet.
+     *
+     * @param customerEmail The customer the conversation is with.
+     * @param sender        Who sent the message.
+     * @param message       The message text.
+     */
+    public void append(String customerEmail, AccountType sender, String message) {
+        lock.lock();
+        try {
+            // Keep one message per line
+            String line = sender + "," + message.replace("\r", " ").replace("\n", " ") + "\n";
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+            try {
+                Conversation conversation = conversationsByEmail.get(customerEmail.toLowerCase());
+                if (conversation == null) {
+                    conversation = new Conversation(nextConversationId++, customerEmail.trim(), 1, 0);
+                    conversationsByEmail.put(customerEmail.toLowerCase(), conversation);
+                    appendIndexEntry(conversation);
+                } else if (conversation.tailBytes > 0 && conversation.tailBytes + bytes.length > MAX_SEGMENT_BYTES) {
+                    // Roll over to a new tail segment
+                    conversation.segmentCount++;
+                    conversation.tailBytes = 0;
+                    appendIndexEntry(conversation);
+                }
+
+                Files.write(segmentPath(conversation, conversation.segmentCount - 1), bytes,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                conversation.tailBytes += bytes.length;
+            } catch (IOException e) {
+                System.err.println("Error writing message: " + e.getMessage());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- READ OPERATIONS ---
+
+    /**
+     * @return The email of every customer with a conversation, in the order the conversations were started.
+     */
+    public List<String> getCustomerEmails() {
+        lock.lock();
+        try {
+            List<String> emails = new ArrayList<>();
+            for (Conversation conversation : conversationsByEmail.values()) {
+                emails.add(conversation.email);
+            }
+            return emails;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a run of messages counting back from the newest one.
+     * Segments are read backwards from their ends, starting at the tail segment, and reading stops as soon as
+     * enough messages have been found. Skipped messages are only counted, never decoded.
+     *
+     * @param skipNewest The number of newest messages to skip (0 starts at the newest message).
+     * @param count      The maximum number of messages to return.
+     * @return The messages, oldest first (fewer than count if the start of the conversation was reached).
+     */
+    public List<ConversationMessage> readNewestMessages(String customerEmail, int skipNewest, int count) {
+        lock.lock();
+        try {
+            List<ConversationMessage> newestFirst = new ArrayList<>();
+            Conversation conversation = conversationsByEmail.get(customerEmail.toLowerCase());
+            if (conversation == null || count <= 0) {
+                return newestFirst;
+            }
+
+            int[] remainingToSkip = {skipNewest};
+            try {
+                for (int segment = conversation.segmentCount - 1; segment >= 0; segment--) {
+                    Path segmentPath = segmentPath(conversation, segment);
+                    if (Files.exists(segmentPath) && readSegmentBackwards(segmentPath, remainingToSkip, count, newestFirst)) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading messages file: " + e.getMessage());
+            }
+
+            Collections.reverse(newestFirst);
+            return newestFirst;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads one segment from its last line to its first, skipping and then collecting messages.
+     *
+     * @return True once count messages have been collected.
+     */
+    private boolean readSegmentBackwards(Path segmentPath, int[] remainingToSkip, int count,
+                                         List<ConversationMessage> newestFirst) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath.toFile(), "r")) {
+            long chunkEnd = file.length();
+            byte[] partialLine = new byte[0];
+
+            while (chunkEnd > 0) {
+                long chunkStart = Math.max(0, chunkEnd - READ_CHUNK_BYTES);
+                byte[] buffer = new byte[(int) (chunkEnd - chunkStart) + partialLine.length];
+                file.seek(chunkStart);
+                file.readFully(buffer, 0, (int) (chunkEnd - chunkStart));
+                System.arraycopy(partialLine, 0, buffer, (int) (chunkEnd - chunkStart), partialLine.length);
+
+                int lineEnd = buffer.length;
+                for (int i = buffer.length - 1; i >= 0; i--) {
+                    if (buffer[i] == '\n') {
+                        if (collectLine(buffer, i + 1, lineEnd, remainingToSkip, count, newestFirst)) {
+                            return true;
+                        }
+                        lineEnd = i;
+                    }
+                }
+                // The first line of the chunk may continue in the chunk before it
+                partialLine = Arrays.copyOf(buffer, lineEnd);
+                chunkEnd = chunkStart;
+            }
+            return collectLine(partialLine, 0, partialLine.length, remainingToSkip, count, newestFirst);
+        }
+    }
+
+    private static boolean collectLine(byte[] buffer, int start, int end, int[] remainingToSkip, int count,
+                                       List<ConversationMessage> newestFirst) {
+        if (start >= end) {
+            return false;
+        }
+        if (remainingToSkip[0] > 0) {
+            remainingToSkip[0]--;
+            return false;
+        }
+
+        String[] parts = new String(buffer, start, end - start, StandardCharsets.UTF_8).split(",", 2);
+        if (parts.length == 2) {
+            newestFirst.add(new ConversationMessage(parts[0], parts[1]));
+        }
+        return newestFirst.size() >= count;
+    }
+
+    // --- MIGRATION ---
+
+    /**
+     * One-shot import of the old messages file, which held one line per customer:
+     * email,SENDER,message,SENDER,message... with commas in messages stored as ';'.
+     *
+     * @param messagesTextPath The old messages.txt file.
+     * @return The number of messages imported.
+     */
+    public int importTextMessages(Path messagesTextPath) throws IOException {
+        lock.lock();
+        try {
+            int imported = 0;
+            try (BufferedReader br = Files.newBufferedReader(messagesTextPath)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length < 3 || parts[0].trim().isEmpty()) {
+                        continue;
+                    }
+
+                    for (int i = 1; i < parts.length - 1; i += 2) {
+                        try {
+                            AccountType sender = AccountType.valueOf(parts[i].trim());
+                            append(parts[0].trim(), sender, parts[i + 1].replace(";", ","));
+                            imported++;
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Skipping message with unknown sender: " + parts[i]);
+                        }
+                    }
+                }
+            }
+            return imported;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- INDEX ---
+
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+
+        truncateAfterLastNewline(indexPath);
+        Map<Integer, Conversation> conversationsById = new LinkedHashMap<>();
+        try (BufferedReader br = Files.newBufferedReader(indexPath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split(",", 3);
+                if (parts.length != 3) {
+                    continue;
+                }
+                try {
+                    int id = Integer.parseInt(parts[0]);
+                    int segmentCount = Integer.parseInt(parts[1]);
+                    Conversation conversation = conversationsById.get(id);
+                    if (conversation == null) {
+                        conversationsById.put(id, new Conversation(id, parts[2], segmentCount, 0));
+                    } else {
+                        conversation.segmentCount = segmentCount;
+                    }
+                    nextConversationId = Math.max(nextConversationId, id + 1);
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping malformed conversation index line: " + line);
+                }
+            }
+        }
+
+        for (Conversation conversation : conversationsById.values()) {
+            Path tailPath = segmentPath(conversation, conversation.segmentCount - 1);
+            conversation.tailBytes = Files.exists(tailPath) ? truncateAfterLastNewline(tailPath) : 0;
+            conversationsByEmail.put(conversation.email.toLowerCase(), conversation);
+        }
+    }
+
+    /**
+     * Cuts a file back to the end of its last complete line. Also used for the inbox log.
+     *
+     * @return The file's new length.
+     */
+    static long truncateAfterLastNewline(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long length = file.length();
+            long end = length;
+            byte[] buffer = new byte[READ_CHUNK_BYTES];
+            while (end > 0) {
+                int chunk = (int) Math.min(buffer.length, end);
+                file.seek(end - chunk);
+                file.readFully(buffer, 0, chunk);
+                int i = chunk - 1;
+                while (i >= 0 && buffer[i] != '\n') {
+                    i--;
+                }
+                if (i >= 0) {
+                    end = end - chunk + i + 1;
+                    break;
+                }
+                end -= chunk;
+            }
+            if (end < length) {
+                System.err.println("Dropping an unfinished line from: " + path.getFileName());
+                file.setLength(end);
+            }
+            return end;
+        }
+    }
+
+    private void appendIndexEntry(Conversation conversation) throws IOException {
+        String line = conversation.id + "," + conversation.segmentCount + "," + conversation.email + "\n";
+        Files.write(indexPath, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(Conversation conversation, int segment) {
+        return directory.resolve("conversation-" + conversation.id + "-" + segment + ".txt");
+    }
+
+    /**
+     * One message in a conversation.
+     *
+     * @param sender The account type that sent it (CUSTOMER or WORKER).
+     * @param text   The message text.
+     */
+    public record ConversationMessage(String sender, String text) {
+    }
+
+    private static final class Conversation {
+        private final int id;
+        private final String email;
+        private int segmentCount;
+        private long tailBytes;
+
+        private Conversation(int id, String email, int segmentCount, long tailBytes) {
+            this.id = id;
+            this.email = email;
+            this.segmentCount = segmentCount;
+            this.tailBytes = tailBytes;
+        }
+    }
+}
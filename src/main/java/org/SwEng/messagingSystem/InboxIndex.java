@@ -0,0 +1,258 @@
+package org.SwEng.messagingSystem;
+
+import org.SwEng.subsystems.general.AccountType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-customer summary of each conversation: who sent the last message, when, and how many customer
+ * messages a worker has not read yet.
+ * <p>
+ * Inboxes are kept in order of their last activity, so listing them unread-first and newest-first is two
+ * passes over the inboxes without sorting or reading any messages. Every change is appended to a log file as
+ * one "unreadCount,lastTimestamp,lastSender,email" line (the last line for an email wins), and the log is
+ * compacted when it is opened if it has grown well past one line per inbox.
+ * </p>
+ * <p>
+ * A last line a crash left unfinished is cut off when the log is opened, so a partial email never becomes an
+ * inbox of its own. Compaction writes the new log next to the old one and forces it to disk before moving it
+ * into place, so a crash leaves one whole log or the other.
+ * </p>
+ */
+public class InboxIndex {
+    // Extra log lines allowed per inbox before the log is compacted
+    private static final int COMPACTION_FACTOR = 4;
+
+    private final Path logPath;
+
+    // Lower-cased customer email -> inbox, least recently active first
+    private final LinkedHashMap<String, Inbox> inboxesByEmail = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens (or creates) an inbox index.
+     *
+     * @param logPath The inbox log file.
+     * @throws IOException If the log cannot be read.
+     */
+    public InboxIndex(Path logPath) throws IOException {
+        this.logPath = logPath;
+        int logLines = loadLog();
+        if (logLines > COMPACTION_FACTOR * Math.max(16, inboxesByEmail.size())) {
+            compact();
+        }
+    }
+
+    // --- WRITE OPERATIONS ---
+
+    /**
+     * Updates a customer's inbox for a message that was just sent.
+     * A customer message adds to the unread count; a worker reply means the conversation has been read.
+     *
+     * @param customerEmail The customer the conversation is with.
+     * @param sender        Who sent the message.
+     * @param timestamp     When it was sent, in epoch milliseconds.
+     */
+    public void recordMessage(String customerEmail, AccountType sender, long timestamp) {
+        lock.lock();
+        try {
+            Inbox previous = inboxesByEmail.remove(customerEmail.toLowerCase());
+            String email = (previous == null) ? customerEmail.trim() : previous.email();
+            int unreadCount = 0;
+            if (sender == AccountType.CUSTOMER) {
+                unreadCount = ((previous == null) ? 0 : previous.unreadCount()) + 1;
+            }
+
+            update(new Inbox(email, sender.toString(), timestamp, unreadCount));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks every message in a customer's inbox as read, keeping its place in the activity order.
+     */
+    public void markRead(String customerEmail) {
+        lock.lock();
+        try {
+            Inbox inbox = inboxesByEmail.get(customerEmail.toLowerCase());
+            if (inbox == null || inbox.unreadCount() == 0) {
+                return;
+            }
+            update(new Inbox(inbox.email(), inbox.lastSender(), inbox.lastTimestamp(), 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * One-shot build of the inbox for every conversation in a store, for stores that predate the inbox index.
+     * Each conversation is read back from its newest message only as far as the last worker reply.
+     * Times of past messages are not stored, so rebuilt inboxes have no last timestamp.
+     *
+     * @return The number of inboxes built.
+     */
+    public int importConversations(ConversationStore conversationStore) {
+        lock.lock();
+        try {
+            int imported = 0;
+            for (String email : conversationStore.getCustomerEmails()) {
+                String lastSender = null;
+                int unreadCount = 0;
+                boolean reachedWorkerReply = false;
+
+                for (int skip = 0; !reachedWorkerReply; skip += MessagingDB.HISTORY_PAGE_SIZE) {
+                    List<ConversationStore.ConversationMessage> page =
+                            conversationStore.readNewestMessages(email, skip, MessagingDB.HISTORY_PAGE_SIZE);
+                    for (int i = page.size() - 1; i >= 0 && !reachedWorkerReply; i--) {
+                        String sender = page.get(i).sender();
+                        if (lastSender == null) {
+                            lastSender = sender;
+                        }
+                        if (sender.equals(AccountType.CUSTOMER.toString())) {
+                            unreadCount++;
+                        } else {
+                            reachedWorkerReply = true;
+                        }
+                    }
+                    if (page.size() < MessagingDB.HISTORY_PAGE_SIZE) {
+                        break;
+                    }
+                }
+
+                if (lastSender != null) {
+                    update(new Inbox(email, lastSender, 0, unreadCount));
+                    imported++;
+                }
+            }
+            return imported;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- READ OPERATIONS ---
+
+    /**
+     * @return Every inbox, those with unread messages first, each group most recently active first.
+     */
+    public List<Inbox> getInboxesUnreadFirst() {
+        lock.lock();
+        try {
+            List<Inbox> inboxes = new ArrayList<>(inboxesByEmail.size());
+            for (Inbox inbox : inboxesByEmail.sequencedValues().reversed()) {
+                if (inbox.unreadCount() > 0) {
+                    inboxes.add(inbox);
+                }
+            }
+            for (Inbox inbox : inboxesByEmail.sequencedValues().reversed()) {
+                if (inbox.unreadCount() == 0) {
+                    inboxes.add(inbox);
+                }
+            }
+            return inboxes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- LOG ---
+
+    private void update(Inbox inbox) {
+        inboxesByEmail.put(inbox.email().toLowerCase(), inbox);
+        try {
+            Files.write(logPath, (toLine(inbox) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error saving inbox for: " + inbox.email());
+        }
+    }
+
+    /**
+     * @return The number of lines in the log.
+     */
+    private int loadLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            return 0;
+        }
+
+        ConversationStore.truncateAfterLastNewline(logPath);
+        int lines = 0;
+        try (BufferedReader br = Files.newBufferedReader(logPath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines++;
+                String[] parts = line.split(",", 4);
+                if (parts.length != 4) {
+                    continue;
+                }
+                try {
+                    Inbox inbox = new Inbox(parts[3], parts[2], Long.parseLong(parts[1]), Integer.parseInt(parts[0]));
+                    String key = inbox.email().toLowerCase();
+                    Inbox previous = inboxesByEmail.get(key);
+                    // A new message moves the inbox to the most recently active end; being read does not
+                    if (previous == null || previous.lastTimestamp() != inbox.lastTimestamp()) {
+                        inboxesByEmail.remove(key);
+                    }
+                    inboxesByEmail.put(key, inbox);
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping malformed inbox line: " + line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Rewrites the log with one line per inbox, in activity order.
+     */
+    private void compact() {
+        Path tempPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempPath.toFile(), false);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Inbox inbox : inboxesByEmail.values()) {
+                writer.write(toLine(inbox));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Error compacting inbox log: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error compacting inbox log: " + e.getMessage());
+        }
+    }
+
+    private static String toLine(Inbox inbox) {
+        return inbox.unreadCount() + "," + inbox.lastTimestamp() + "," + inbox.lastSender() + "," + inbox.email();
+    }
+
+    /**
+     * Summary of one customer's conversation.
+     *
+     * @param email         The customer's email.
+     * @param lastSender    The account type that sent the last message (CUSTOMER or WORKER).
+     * @param lastTimestamp When the last message was sent, in epoch milliseconds (0 if unknown).
+     * @param unreadCount   Customer messages no worker has read yet.
+     */
+    public record Inbox(String email, String lastSender, long lastTimestamp, int unreadCount) {
+    }
+}
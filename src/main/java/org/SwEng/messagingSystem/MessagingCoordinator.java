@@ -1,18 +1,28 @@
 package org.SwEng.messagingSystem;
 
+import org.SwEng.messagingSystem.InboxIndex.Inbox;
 import org.SwEng.subsystems.general.Account;
 import org.SwEng.subsystems.general.AccountType;
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.MessagePayload;
 import org.SwEng.subsystems.general.Subsystems;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 public class MessagingCoordinator {
+    private static final DateTimeFormatter LAST_MESSAGE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
 
     private Screen curScreen;
     private Account curAccount;
     private String activeConversationEmail;
-    private String[] customerAccountContentsForWorker;
+    // The account of the customer whose conversation a worker has open
+    private Account selectedCustomer;
+    // Page of the open conversation being shown, counting back from the newest messages (0 = newest)
+    private int historyPage;
 
     public MessagingCoordinator() {
         this.curScreen = Screen.INIT;
@@ -36,6 +46,8 @@ public class MessagingCoordinator {
     }
 
     private InternalSystemMessage handleInit() {
+        this.historyPage = 0;
+
         // Determine role and direct to appropriate screen
         if (curAccount.getAccountType() == AccountType.CUSTOMER) {
             this.curScreen = Screen.CUSTOMER_CONVERSATION_VIEW;
@@ -65,20 +77,31 @@ public class MessagingCoordinator {
                 case "2": // Logout of system
                     curScreen = Screen.INIT;
                     return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "");
+                case "3": // Older messages
+                    historyPage++;
+                    break;
+                case "4": // Newer messages
+                    showNewerMessages(output);
+                    break;
                 default:
                     MessagingDB.saveCustomerMessage(curAccount, input);
                     output.append(">> Message Sent.\n\n");
+                    // Jump back to the newest messages so the sent message is visible
+                    historyPage = 0;
             }
         }
 
         // 2. Build the View
-        String history = MessagingDB.getConversationHistory(curAccount.getEmail());
+        String history = getHistoryPage(curAccount.getEmail(), output);
         output.append("=== Conversation with store ===\n");
+        appendPageTitle(output);
         output.append(history);
         output.append("\n=============================================\n");
         output.append("Commands:\nNote: To send a message, type your message and hit enter.\n");
         output.append("1. Return to store\n");
-        output.append("2. Logout of system\nInput: ");
+        output.append("2. Logout of system\n");
+        output.append("3. Older messages\n");
+        output.append("4. Newer messages\nInput: ");
 
         return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, output.toString());
     }
@@ -87,16 +110,30 @@ public class MessagingCoordinator {
         StringBuilder output = new StringBuilder();
         message.message = message.message.trim();
 
+        // The account system's answer to a LookupCustomer command
+        if (message.payload instanceof MessagePayload.Result result) {
+            return handleCustomerLookupResult(result);
+        }
+
         // Initially show list of conversations
         if (message.message.isEmpty()) {
-            List<String> emails = MessagingDB.getAllCustomerEmailsWithHistory();
+            List<Inbox> inboxes = MessagingDB.getInboxesUnreadFirst();
             output.append("--- Support Inboxes ---\n");
 
-            if (emails.isEmpty()) {
+            if (inboxes.isEmpty()) {
                 output.append("No active conversations found.\n");
             } else {
-                for (String email : emails) {
-                    output.append("- ").append(email).append("\n");
+                // Inboxes with unread customer messages are listed first
+                for (Inbox inbox : inboxes) {
+                    output.append("- ").append(inbox.email());
+                    if (inbox.unreadCount() > 0) {
+                        output.append(" (").append(inbox.unreadCount()).append(" unread)");
+                    }
+                    output.append(" - last message from ").append(inbox.lastSender());
+                    if (inbox.lastTimestamp() > 0) {
+                        output.append(" at ").append(LAST_MESSAGE_TIME_FORMAT.format(Instant.ofEpochMilli(inbox.lastTimestamp())));
+                    }
+                    output.append("\n");
                 }
             }
             // Worker input instructions
@@ -117,26 +154,28 @@ public class MessagingCoordinator {
                 this.activeConversationEmail = null;
                 return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "");
             default:
-                // If additionalInfo has a value, then we know it came from the account system
-                if (message.additionalInfo == null) {
-
-                    // Request the selected account information from the account system
-                    return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "getUserByEmail", message.message);
-                } else {
-                    // If the returned message.message is empty, then there is no account system
-                    if (message.message.isEmpty()) {
-                        // TODO: Handle isEmpty() always being false
-                        return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, "No customer with that email. Hit enter to return to selection screen.");
-                    } else {
-                        this.curScreen = Screen.WORKER_CONVERSATION_VIEW;
-                        customerAccountContentsForWorker = message.message.split(",");
-                        this.activeConversationEmail = customerAccountContentsForWorker[0];
-                        return handleWorkerConversationInput(new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, ""));
-                    }
-                }
+                // Request the selected account from the account system
+                return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "", new MessagePayload.LookupCustomer(message.message));
         }
     }
 
+    /**
+     * Opens the conversation with the customer the account system found, or reports that there is none.
+     */
+    private InternalSystemMessage handleCustomerLookupResult(MessagePayload.Result result) {
+        if (!(result instanceof MessagePayload.CustomerFound found)) {
+            return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, "No customer with that email. Hit enter to return to selection screen.");
+        }
+
+        this.curScreen = Screen.WORKER_CONVERSATION_VIEW;
+        this.selectedCustomer = found.account();
+        this.activeConversationEmail = selectedCustomer.getEmail();
+        this.historyPage = 0;
+        // The worker is about to see the newest messages
+        MessagingDB.markConversationRead(activeConversationEmail);
+        return handleWorkerConversationInput(new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, ""));
+    }
+
     private InternalSystemMessage handleWorkerConversationInput(InternalSystemMessage message) {
         StringBuilder output = new StringBuilder();
         String input = message.message.trim();
@@ -155,35 +194,80 @@ public class MessagingCoordinator {
                     curScreen = Screen.INIT;
                     this.activeConversationEmail = null;
                     return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "");
+                case "4": // Older messages
+                    historyPage++;
+                    break;
+                case "5": // Newer messages
+                    showNewerMessages(output);
+                    break;
                 default:
                     MessagingDB.saveWorkerMessage(activeConversationEmail, input);
                     output.append(">> Message Sent.\n\n");
+                    // Jump back to the newest messages so the sent message is visible
+                    historyPage = 0;
             }
         }
 
         // Build the View
         // The "title" of the view
-        String history = MessagingDB.getConversationHistory(activeConversationEmail);
+        String history = getHistoryPage(activeConversationEmail, output);
         output.append("=== Conversation with: ").append(activeConversationEmail).append(" ===\n");
+        appendPageTitle(output);
         output.append(history);
         output.append("\n=============================================\n\n");
 
         // Showing customer-specific information
         output.append("Email: ").append(this.activeConversationEmail).append("\n");
-        output.append("Address: ").append(this.customerAccountContentsForWorker[1].replace(":", ",")).append("\n");
-        output.append("Debit Card on file: ").append(this.customerAccountContentsForWorker[2]).append("\n");
-        output.append("Credit Card on file: ").append(this.customerAccountContentsForWorker[3]).append("\n");
+        output.append("Address: ").append(orNotAvailable(selectedCustomer.getAddress()).replace(":", ",")).append("\n");
+        output.append("Debit Card on file: ").append(orNotAvailable(selectedCustomer.getDebitCardNumber())).append("\n");
+        output.append("Credit Card on file: ").append(orNotAvailable(selectedCustomer.getCreditCardNumber())).append("\n");
         output.append("\n=============================================\n");
 
         // Worker input instructions
         output.append("Commands:\nNote: To send a message, type your message and hit enter.\n");
         output.append("1. Return to the conversation list\n");
         output.append("2. Return to store\n");
-        output.append("3. Logout of system\nInput: ");
+        output.append("3. Logout of system\n");
+        output.append("4. Older messages\n");
+        output.append("5. Newer messages\nInput: ");
 
         return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, output.toString());
     }
 
+    // --- HISTORY PAGING ---
+
+    /**
+     * Reads the page of history the cursor points at.
+     * If the cursor has gone past the oldest message, it steps back to the oldest page.
+     */
+    private String getHistoryPage(String customerEmail, StringBuilder output) {
+        String history = MessagingDB.getConversationHistory(customerEmail, historyPage);
+        if (history == null) {
+            historyPage--;
+            output.append(">> No older messages.\n\n");
+            history = MessagingDB.getConversationHistory(customerEmail, historyPage);
+        }
+        return history;
+    }
+
+    private void showNewerMessages(StringBuilder output) {
+        if (historyPage == 0) {
+            output.append(">> Already showing the newest messages.\n\n");
+        } else {
+            historyPage--;
+        }
+    }
+
+    private void appendPageTitle(StringBuilder output) {
+        if (historyPage > 0) {
+            output.append("(Older messages: page ").append(historyPage + 1).append(")\n");
+        }
+    }
+
+    private static String orNotAvailable(String accountField) {
+        return (accountField == null || accountField.isEmpty()) ? "N/A" : accountField;
+    }
+
     public Boolean isCustomerLoggedIn() {
         return curAccount != null;
     }
@@ -1,197 +1,165 @@
 package org.SwEng.messagingSystem;
 
+import org.SwEng.messagingSystem.ConversationStore.ConversationMessage;
+import org.SwEng.messagingSystem.InboxIndex.Inbox;
 import org.SwEng.subsystems.general.Account;
 import org.SwEng.subsystems.general.AccountType;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class MessagingDB {
 
-    // Define the file path for messaging data
+    // Define the file paths for messaging data
+    private static final String CONVERSATIONS_DIRECTORY_NAME = "conversations";
+    private static final String CONVERSATIONS_DIRECTORY_PATH = "src/main/java/org/SwEng/messagingSystem/dataFiles/" + CONVERSATIONS_DIRECTORY_NAME;
+
+    // Old single-file format, imported into the conversation store the first time it is opened
     private static final String MESSAGES_FILE_NAME = "messages.txt";
-    private static final String MESSAGES_FILE_PATH = "src/main/java/org/SwEng/MessagingSystem/dataFiles/" + MESSAGES_FILE_NAME;
+    private static final String MESSAGES_FILE_PATH = "src/main/java/org/SwEng/messagingSystem/dataFiles/" + MESSAGES_FILE_NAME;
+
+    // Number of messages shown per page of conversation history
+    public static final int HISTORY_PAGE_SIZE = 10;
+
+    // Per-customer unread counts and last activity, kept next to the conversations
+    private static final String INBOX_FILE_NAME = "inbox.txt";
+
+    private static ConversationStore conversationStore;
+    private static InboxIndex inboxIndex;
+    // Guards both stores; sessions wait on it while another session writes a message
+    private static final ReentrantLock lock = new ReentrantLock();
 
     // --- READ OPERATIONS ---
 
     /**
-     * Retrieves all customer emails that have an existing message history.
+     * Retrieves the inbox of every customer that has an existing message history, read from the inbox index.
+     * Inboxes with unread customer messages come first, each group ordered by most recent activity.
      * Used by Workers to select a conversation.
      */
-    public static List<String> getAllCustomerEmailsWithHistory() {
-        List<String> emails = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(MESSAGES_FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0 && !parts[0].isEmpty()) {
-                    emails.add(parts[0].trim());
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading messages file: " + e.getMessage());
+    public static List<Inbox> getInboxesUnreadFirst() {
+        lock.lock();
+        try {
+            return getInboxIndex().getInboxesUnreadFirst();
+        } finally {
+            lock.unlock();
         }
-        return emails;
     }
 
     /**
-     * Retrieves the conversation history for a specific customer email.
-     * Formats the raw CSV data into a readable string for the Coordinator.
+     * Retrieves one page of the conversation history for a specific customer email.
+     * Page 0 holds the newest HISTORY_PAGE_SIZE messages, page 1 the ones before those, and so on.
+     * Only the messages on the page are read from the conversation store.
+     * Formats the messages into a readable string for the Coordinator.
+     *
+     * @param page The page to retrieve, counting back from the newest messages.
+     * @return The formatted page, or null if there are no messages that old.
      */
-    public static String getConversationHistory(String customerEmail) {
-        StringBuilder history = new StringBuilder();
-        boolean found = false;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(MESSAGES_FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-
-                // Check if this line belongs to the requested customer (Primary Key)
-                if (parts.length > 0 && parts[0].trim().equalsIgnoreCase(customerEmail)) {
-                    found = true;
-
-                    // Iterate through the parts. Format: email, Source, Msg, Source, Msg...
-                    // We start at index 1.
-                    for (int i = 1; i < parts.length - 1; i += 2) {
-                        String source = parts[i];
-                        String msg = parts[i + 1];
-                        msg = msg.replace(";",",");
-
-                        history.append("[").append(source).append("]: ").append(msg).append("\n");
-                    }
-                    break; // Found the user, stop reading
-                }
+    public static String getConversationHistory(String customerEmail, int page) {
+        lock.lock();
+        try {
+            List<ConversationMessage> messages = getConversationStore()
+                    .readNewestMessages(customerEmail, page * HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE);
+            if (messages.isEmpty()) {
+                return (page == 0) ? "\nNo previous message history.\n" : null;
             }
-        } catch (IOException e) {
-            System.err.println("Error reading messages file.");
-        }
 
-        if (!found) {
-            return "\nNo previous message history.\n";
+            StringBuilder history = new StringBuilder();
+            for (ConversationMessage message : messages) {
+                history.append("[").append(message.sender()).append("]: ").append(message.text()).append("\n");
+            }
+            return history.toString();
+        } finally {
+            lock.unlock();
         }
-
-        return history.toString();
     }
 
     // --- WRITE OPERATIONS ---
 
     /**
-     * Saves a new message to the file.
-     * If the customer exists, it appends to their line.
-     * If the customer is new, it creates a new line.
+     * Appends a new customer message to their conversation, starting one if it does not exist.
      */
     public static void saveCustomerMessage(Account account, String message) {
-        File file = new File(MESSAGES_FILE_PATH);
-        List<String> lines = new ArrayList<>();
-        boolean customerFound = false;
-
-        // 1. Read all existing lines
-        if (file.exists()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    lines.add(line);
-                }
-            } catch (IOException e) {
-                System.err.println("Error reading for save: " + e.getMessage());
-                return;
-            }
-        }
-
-        // 2. Modify the specific line or create a new one
-        List<String> newLines = new ArrayList<>();
-        // Sanitize message to remove commas so it doesn't break the CSV format
-        String sanitizedMessage = message.replace(",", ";");
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            if (parts.length > 0 && parts[0].trim().equalsIgnoreCase(account.getEmail())) {
-                // Found the customer, append the new message
-                String updatedLine = line + "," + account.getAccountType() + "," + sanitizedMessage;
-                newLines.add(updatedLine);
-                customerFound = true;
-            } else {
-                newLines.add(line);
-            }
+        lock.lock();
+        try {
+            // Open the inbox index first, so building it for the first time does not already count this message
+            InboxIndex inboxes = getInboxIndex();
+            getConversationStore().append(account.getEmail(), account.getAccountType(), message);
+            inboxes.recordMessage(account.getEmail(), account.getAccountType(), System.currentTimeMillis());
+        } finally {
+            lock.unlock();
         }
+    }
 
-        if (!customerFound) {
-            // New customer conversation
-            String newLine = account.getEmail() + "," + account.getAccountType() + "," + sanitizedMessage;
-            newLines.add(newLine);
+    /**
+     * Appends a new worker message to a customer's conversation.
+     * If the conversation does not exist, the worker is leaving a message
+     * for a customer when they log into the conversation subsystem in the future.
+     */
+    public static void saveWorkerMessage(String customerEmail, String message) {
+        lock.lock();
+        try {
+            InboxIndex inboxes = getInboxIndex();
+            getConversationStore().append(customerEmail, AccountType.WORKER, message);
+            inboxes.recordMessage(customerEmail, AccountType.WORKER, System.currentTimeMillis());
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // 3. Write everything back to the file
-        try (FileWriter fw = new FileWriter(file, false)) { // Overwrite mode
-            for (String line : newLines) {
-                fw.write(line + "\n");
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing message: " + e.getMessage());
+    /**
+     * Marks a customer's messages as read, e.g. when a worker opens the conversation.
+     */
+    public static void markConversationRead(String customerEmail) {
+        lock.lock();
+        try {
+            getInboxIndex().markRead(customerEmail);
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Saves a new message to the file.
-     * If the customer exists, it appends to their line.
-     * If the customer is new, it creates a new line.
+     * Opens the conversation store the first time it is needed, importing messages.txt if the store is new.
      */
-    public static void saveWorkerMessage(String customerEmail, String message) {
-        File file = new File(MESSAGES_FILE_PATH);
-        List<String> lines = new ArrayList<>();
-        boolean customerFound = false;
-
-        // 1. Read all existing lines
-        if (file.exists()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    lines.add(line);
+    private static ConversationStore getConversationStore() {
+        if (conversationStore == null) {
+            Path directory = Paths.get(CONVERSATIONS_DIRECTORY_PATH);
+            boolean needsMigration = !Files.exists(directory) && Files.exists(Paths.get(MESSAGES_FILE_PATH));
+            try {
+                conversationStore = new ConversationStore(directory);
+                if (needsMigration) {
+                    int imported = conversationStore.importTextMessages(Paths.get(MESSAGES_FILE_PATH));
+                    System.out.println("Imported " + imported + " messages from " + MESSAGES_FILE_NAME + " into " + CONVERSATIONS_DIRECTORY_NAME);
                 }
             } catch (IOException e) {
-                System.err.println("Error reading for save: " + e.getMessage());
-                return;
+                throw new IllegalStateException("Unable to open conversation store: " + CONVERSATIONS_DIRECTORY_PATH, e);
             }
         }
+        return conversationStore;
+    }
 
-        // 2. Modify the specific line or create a new one
-        List<String> newLines = new ArrayList<>();
-        // Sanitize message to remove commas so it doesn't break the CSV format
-        String sanitizedMessage = message.replace(",", ";");
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            if (parts.length > 0 && parts[0].trim().equalsIgnoreCase(customerEmail)) {
-                // Found the customer, append the new message
-                String updatedLine = line + "," + AccountType.WORKER + "," + sanitizedMessage;
-                newLines.add(updatedLine);
-                customerFound = true;
-            } else {
-                newLines.add(line);
-            }
-        }
-
-        // If the conversation does not exist, the work is leaving a message
-        // for a customer when they log into the conversation subsystem in the future
-        if (!customerFound) {
-            // New customer conversation
-            String newLine = customerEmail + "," + AccountType.WORKER + "," + sanitizedMessage;
-            newLines.add(newLine);
-        }
-
-        // 3. Write everything back to the file
-        try (FileWriter fw = new FileWriter(file, false)) { // Overwrite mode
-            for (String line : newLines) {
-                fw.write(line + "\n");
+    /**
+     * Opens the inbox index the first time it is needed, building it from the conversations if it is new.
+     */
+    private static InboxIndex getInboxIndex() {
+        if (inboxIndex == null) {
+            Path inboxPath = Paths.get(CONVERSATIONS_DIRECTORY_PATH, INBOX_FILE_NAME);
+            // Open the conversations first so messages.txt has been imported before the inboxes are built
+            ConversationStore conversations = getConversationStore();
+            boolean needsBuild = !Files.exists(inboxPath);
+            try {
+                inboxIndex = new InboxIndex(inboxPath);
+                if (needsBuild) {
+                    inboxIndex.importConversations(conversations);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open inbox index: " + inboxPath, e);
             }
-        } catch (IOException e) {
-            System.err.println("Error writing message: " + e.getMessage());
         }
+        return inboxIndex;
     }
 }
@@ -0,0 +1,173 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.Cart;
+import org.SwEng.subsystems.general.IntIntHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserves inventory for a whole cart at once.
+ * <p>
+ * Each product ID maps to one of a fixed set of lock stripes. A reservation takes the stripes of every product
+ * in the cart (always in ascending stripe order, so two carts can never deadlock), checks that every product has
+ * enough stock, and only then takes the stock from all of them. Either the whole cart is reserved or nothing is,
+ * and carts with no products in common proceed in parallel.
+ * Stock is read and written through the catalogue's ProductTable. Quantities are added up per catalogue row
+ * first, so a cart holding the same product under two spellings of its ID ("12" and "012") is checked against
+ * the stock once, for the total.
+ * </p>
+ */
+public class InventoryReservationEngine {
+    // One bit per stripe in a long, so the stripes a cart needs fit in a single mask
+    private static final int STRIPE_COUNT = 64;
+    private static final ReservationResult RESERVED = new ReservationResult(true, List.of());
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+
+    public InventoryReservationEngine() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Takes the stock for every product in a cart, or none at all if any product is short.
+     *
+     * @param productTable The catalogue's product table.
+     * @param cart         The cart, holding the quantity wanted of each product.
+     * @return The outcome, including which products were short if the cart could not be reserved.
+     */
+    public ReservationResult reserve(ProductTable productTable, Cart cart) {
+        Map<String, Integer> quantities = cart.getQuantities();
+
+        // 1. Find the stripes covering the cart's products
+        long stripesNeeded = 0;
+        for (String itemId : quantities.keySet()) {
+            stripesNeeded |= 1L << stripeFor(ProductTable.parseId(itemId));
+        }
+
+        lockStripes(stripesNeeded);
+        try {
+            // 2. Check every product before changing any of them
+            IntIntHashMap wantedByRow = totalsByRow(productTable, quantities);
+            List<String> shortItemIds = null;
+            for (Map.Entry<String, Integer> item : quantities.entrySet()) {
+                int index = productTable.indexOf(item.getKey());
+                if (index < 0 || productTable.getInventory(index) < wantedByRow.get(index, 0)) {
+                    if (shortItemIds == null) {
+                        shortItemIds = new ArrayList<>();
+                    }
+                    shortItemIds.add(item.getKey());
+                }
+            }
+            if (shortItemIds != null) {
+                return new ReservationResult(false, shortItemIds);
+            }
+
+            // 3. Every product has enough stock, so take it from all of them, once per row
+            for (String itemId : quantities.keySet()) {
+                int index = productTable.indexOf(itemId);
+                int wanted = wantedByRow.get(index, 0);
+                if (wanted > 0) {
+                    productTable.setInventory(index, productTable.getInventory(index) - wanted);
+                    wantedByRow.put(index, 0);
+                }
+            }
+            return RESERVED;
+        } finally {
+            unlockStripes(stripesNeeded);
+        }
+    }
+
+    /**
+     * Puts back the stock taken by a reservation whose order was not placed (e.g. payment failed or was abandoned).
+     * Products removed from the catalogue since the reservation are skipped.
+     *
+     * @param productTable The catalogue's product table.
+     * @param cart         The cart that was reserved, with the same quantities.
+     */
+    public void release(ProductTable productTable, Cart cart) {
+        Map<String, Integer> quantities = cart.getQuantities();
+
+        long stripesNeeded = 0;
+        for (String itemId : quantities.keySet()) {
+            stripesNeeded |= 1L << stripeFor(ProductTable.parseId(itemId));
+        }
+
+        lockStripes(stripesNeeded);
+        try {
+            IntIntHashMap releasedByRow = totalsByRow(productTable, quantities);
+            for (String itemId : quantities.keySet()) {
+                int index = productTable.indexOf(itemId);
+                int released = (index < 0) ? 0 : releasedByRow.get(index, 0);
+                if (released > 0) {
+                    productTable.setInventory(index, productTable.getInventory(index) + released);
+                    releasedByRow.put(index, 0);
+                }
+            }
+        } finally {
+            unlockStripes(stripesNeeded);
+        }
+    }
+
+    /**
+     * Runs an action while every stripe is held, so no reservation is in progress.
+     * Used when products are added, replaced or removed.
+     */
+    public void runExclusive(Runnable action) {
+        lockStripes(-1L);
+        try {
+            action.run();
+        } finally {
+            unlockStripes(-1L);
+        }
+    }
+
+    /**
+     * Adds up the quantity of each catalogue row in a cart. Products not in the catalogue are left out.
+     *
+     * @return Row index -> units.
+     */
+    private static IntIntHashMap totalsByRow(ProductTable productTable, Map<String, Integer> quantities) {
+        IntIntHashMap totals = new IntIntHashMap(quantities.size());
+        for (Map.Entry<String, Integer> item : quantities.entrySet()) {
+            int index = productTable.indexOf(item.getKey());
+            if (index >= 0) {
+                totals.put(index, totals.get(index, 0) + item.getValue());
+            }
+        }
+        return totals;
+    }
+
+    private void lockStripes(long stripeMask) {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            if ((stripeMask & (1L << i)) != 0) {
+                stripes[i].lock();
+            }
+        }
+    }
+
+    private void unlockStripes(long stripeMask) {
+        for (int i = STRIPE_COUNT - 1; i >= 0; i--) {
+            if ((stripeMask & (1L << i)) != 0) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private static int stripeFor(int productId) {
+        return productId & (STRIPE_COUNT - 1);
+    }
+
+    /**
+     * The outcome of reserving a cart.
+     *
+     * @param reserved     True if stock was taken for every item in the cart.
+     * @param shortItemIds The products without enough stock (or no longer in the catalogue) if the cart was not reserved.
+     */
+    public record ReservationResult(boolean reserved, List<String> shortItemIds) {
+    }
+}
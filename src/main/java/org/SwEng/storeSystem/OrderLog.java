@@ -0,0 +1,412 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.Order;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Append-only log of every order, and the record of truth for what has been sold.
+ * <p>
+ * Each order is one line, written with a single append that is forced to disk before the checkout finishes:
+ * "orderId,placedAt,email,paymentType,amount,ID*quantity*unitPrice*name|ID*quantity*unitPrice*name...".
+ * Text fields are escaped so they cannot contain the separators: '%' followed by two hex digits stands for
+ * that character (e.g. "%7C" for '|'). The sales ledger and the report counters built from it are derived from
+ * the log and can be rebuilt by replaying it. Order IDs start at 1 and increase by one per order.
+ * </p>
+ * <p>
+ * The append itself is made under the log's lock, but the force to disk is not: checkouts that append while
+ * another one is forcing wait for the next force, which covers all of them (group commit). Readers only see
+ * orders that have been forced. If a force fails, every order written since the last good force is cut from the
+ * log and reported as not placed.
+ * </p>
+ * <p>
+ * A line cut short by a crash is the only thing a crash can leave behind; it is removed the next time the log
+ * is opened, since that order was never confirmed to the customer.
+ * </p>
+ */
+public class OrderLog {
+    private static final String ORDER_LOG_FILE_NAME = "orders.txt";
+    private static final String ORDER_LOG_FILE_PATH = "src/main/java/org/SwEng/storeSystem/dataFiles/" + ORDER_LOG_FILE_NAME;
+
+    private static final String ITEM_SEPARATOR = "|";
+    private static final String ITEM_FIELD_SEPARATOR = "*";
+
+    // The log file; only tests point it elsewhere
+    private static Path logPath = Paths.get(ORDER_LOG_FILE_PATH);
+    private static FileChannel channel;
+    private static long logLength;
+    private static long lastOrderId;
+    // How much of the log, and up to which order, is known to be on disk
+    private static long forcedLength;
+    private static long forcedOrderId;
+    // Bumped when unforced orders are cut from the log, so their checkouts know they were not placed
+    private static long truncations;
+    // Guards the channel and the fields above
+    private static final ReentrantLock lock = new ReentrantLock();
+    // Held while forcing; appends made meanwhile are covered by the next force. Checkouts run on virtual
+    // threads, and one waiting on a monitor here would hold on to its carrier thread for the whole fsync.
+    private static final ReentrantLock forceLock = new ReentrantLock();
+
+    // --- WRITE OPERATIONS ---
+
+    /**
+     * Places an order: gives it the next order ID and appends it to the log, forced to disk.
+     *
+     * @param email       The email of the account placing the order.
+     * @param items       The products bought.
+     * @param amount      The total charged, in millions of dollars.
+     * @param paymentType "Credit" or "Debit".
+     * @return The order as written, or null if it could not be written.
+     */
+    public static Order append(String email, List<Order.Item> items, double amount, String paymentType) {
+        Order order;
+        long end;
+        long truncationsSeen;
+        lock.lock();
+        try {
+            if (!ensureOpen()) {
+                return null;
+            }
+
+            order = new Order(lastOrderId + 1, email, items, amount, paymentType, LocalDateTime.now());
+            ByteBuffer line = ByteBuffer.wrap((toLine(order) + "\n").getBytes(StandardCharsets.UTF_8));
+            try {
+                long position = logLength;
+                while (line.hasRemaining()) {
+                    position += channel.write(line, position);
+                }
+                logLength = position;
+                lastOrderId = order.orderId();
+                end = position;
+                truncationsSeen = truncations;
+            } catch (IOException e) {
+                // A partly written line is overwritten by the next append
+                System.err.println("Error writing order for: " + email);
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // The order is only placed once it is on disk
+        return forceUpTo(end, truncationsSeen) ? order : null;
+    }
+
+    /**
+     * Forces the log to disk up to at least the given length, unless a force already in progress covers it.
+     *
+     * @param end             The length the caller's order ends at.
+     * @param truncationsSeen The truncation count when the caller's order was written.
+     * @return True if the caller's order is on disk.
+     */
+    private static boolean forceUpTo(long end, long truncationsSeen) {
+        forceLock.lock();
+        try {
+            long target;
+            long targetOrderId;
+            lock.lock();
+            try {
+                if (truncations != truncationsSeen) {
+                    // A failed force cut the order from the log
+                    return false;
+                }
+                if (forcedLength >= end) {
+                    return true;
+                }
+                target = logLength;
+                targetOrderId = lastOrderId;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                channel.force(false);
+                lock.lock();
+                try {
+                    forcedLength = target;
+                    forcedOrderId = targetOrderId;
+                } finally {
+                    lock.unlock();
+                }
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error forcing the order log to disk: " + e.getMessage());
+                lock.lock();
+                try {
+                    // Nothing written since the last good force is confirmed, so none of it may be replayed
+                    try {
+                        channel.truncate(forcedLength);
+                    } catch (IOException truncateError) {
+                        System.err.println("Error cutting unconfirmed orders from the order log: " + truncateError.getMessage());
+                    }
+                    logLength = forcedLength;
+                    lastOrderId = forcedOrderId;
+                    truncations++;
+                } finally {
+                    lock.unlock();
+                }
+                return false;
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Makes sure the next order ID is greater than the given one. Used when sales were recorded with order IDs
+     * before the order log existed.
+     *
+     * @param orderId An order ID already in use.
+     */
+    public static void continueAfter(long orderId) {
+        lock.lock();
+        try {
+            if (ensureOpen()) {
+                lastOrderId = Math.max(lastOrderId, orderId);
+                forcedOrderId = Math.max(forcedOrderId, orderId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- READ OPERATIONS ---
+
+    /**
+     * Reads the log from a position onwards, oldest order first, handing each order to the consumer.
+     * Orders are read in the order they were written, which is also order ID order, so a caller that remembers
+     * the returned position sees every order exactly once, however its checkouts were interleaved.
+     *
+     * @param position Where to start reading: 0, or a position returned by an earlier call.
+     * @param consumer Receives each order, and returns false to stop before the next one (e.g. if it could not be
+     *                 recorded). The order it was given is then read again next time.
+     * @return The position just past the last order the consumer accepted.
+     */
+    public static long forEachFrom(long position, Predicate<Order> consumer) {
+        long end;
+        lock.lock();
+        try {
+            if (!ensureOpen()) {
+                return position;
+            }
+            end = forcedLength;
+        } finally {
+            lock.unlock();
+        }
+        if (position >= end) {
+            return position;
+        }
+        // Everything up to forcedLength is complete lines that only a failed force could remove, and it never
+        // removes forced ones, so the file is read without holding the lock
+        try (FileChannel file = FileChannel.open(logPath, StandardOpenOption.READ);
+             BufferedReader br = new BufferedReader(Channels.newReader(file.position(position), StandardCharsets.UTF_8))) {
+            String line;
+            while (position < end && (line = br.readLine()) != null) {
+                Order order = parseLine(line);
+                if (order == null) {
+                    System.err.println("Skipping malformed order line: " + line);
+                } else if (!consumer.test(order)) {
+                    break;
+                }
+                position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading order log: " + e.getMessage());
+        }
+        return position;
+    }
+
+    /**
+     * Closes the log and reopens it from another file on next use, as after a restart. Used by tests.
+     *
+     * @param path The log file to use from now on.
+     */
+    static void useFile(Path path) throws IOException {
+        // Same lock order as forceUpTo
+        forceLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                logPath = path;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // --- HELPER FUNCTIONS ---
+
+    /**
+     * Opens the log the first time it is needed, dropping a torn last line and finding the newest order ID.
+     *
+     * @return True if the log is open.
+     */
+    private static boolean ensureOpen() {
+        if (channel != null) {
+            return true;
+        }
+
+        Path path = logPath;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logLength = findEndOfLastLine(channel);
+            if (channel.size() > logLength) {
+                System.err.println("Dropping an incomplete order at the end of " + path.getFileName());
+                channel.truncate(logLength);
+            }
+
+            lastOrderId = 0;
+            try (BufferedReader br = Files.newBufferedReader(path)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    Order order = parseLine(line);
+                    if (order != null) {
+                        lastOrderId = Math.max(lastOrderId, order.orderId());
+                    }
+                }
+            }
+            // What survived the restart is on disk
+            forcedLength = logLength;
+            forcedOrderId = lastOrderId;
+        } catch (IOException e) {
+            System.err.println("Error opening order log: " + e.getMessage());
+            channel = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The length of the file up to and including its last newline (0 if it has none).
+     */
+    private static long findEndOfLastLine(FileChannel file) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(4096);
+        long blockEnd = file.size();
+        while (blockEnd > 0) {
+            long blockStart = Math.max(0, blockEnd - block.capacity());
+            block.clear().limit((int) (blockEnd - blockStart));
+            while (block.hasRemaining()) {
+                if (file.read(block, blockStart + block.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return 0;
+    }
+
+    private static String toLine(Order order) {
+        StringBuilder line = new StringBuilder();
+        line.append(order.orderId()).append(",")
+                .append(order.placedAt()).append(",")
+                .append(escape(order.email())).append(",")
+                .append(escape(order.paymentType())).append(",")
+                .append(order.amount()).append(",");
+        for (int i = 0; i < order.items().size(); i++) {
+            Order.Item item = order.items().get(i);
+            if (i > 0) {
+                line.append(ITEM_SEPARATOR);
+            }
+            line.append(escape(item.productId())).append(ITEM_FIELD_SEPARATOR)
+                    .append(item.quantity()).append(ITEM_FIELD_SEPARATOR)
+                    .append(item.unitPrice()).append(ITEM_FIELD_SEPARATOR)
+                    .append(escape(item.productName()));
+        }
+        return line.toString();
+    }
+
+    /**
+     * @return The order on a log line, or null if the line is incomplete or malformed.
+     */
+    private static Order parseLine(String line) {
+        String[] data = line.split(",", 6);
+        if (data.length != 6) {
+            return null;
+        }
+        try {
+            List<Order.Item> items = new ArrayList<>();
+            for (String itemText : data[5].split("\\" + ITEM_SEPARATOR)) {
+                String[] fields = itemText.split("\\" + ITEM_FIELD_SEPARATOR, 4);
+                if (fields.length != 4) {
+                    return null;
+                }
+                items.add(new Order.Item(unescape(fields[0]), unescape(fields[3]), Integer.parseInt(fields[1]),
+                        Double.parseDouble(fields[2])));
+            }
+            return new Order(Long.parseLong(data[0]), unescape(data[2]), items, Double.parseDouble(data[4]),
+                    unescape(data[3]), LocalDateTime.parse(data[1]));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces every character that would break the line format ('%', the separators and line breaks)
+     * with '%' and its two-digit hex code.
+     */
+    static String escape(String field) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '%' || c == ',' || c == '|' || c == '*' || c == '\n' || c == '\r') {
+                if (escaped == null) {
+                    escaped = new StringBuilder(field.length() + 8).append(field, 0, i);
+                }
+                escaped.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            } else if (escaped != null) {
+                escaped.append(c);
+            }
+        }
+        return (escaped == null) ? field : escaped.toString();
+    }
+
+    /**
+     * Reverses escape(). A '%' that is not followed by two hex digits (e.g. in lines written before fields were
+     * escaped) is kept as it is.
+     */
+    static String unescape(String field) {
+        if (field.indexOf('%') < 0) {
+            return field;
+        }
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            int high = (c == '%' && i + 2 < field.length()) ? Character.digit(field.charAt(i + 1), 16) : -1;
+            int low = (high >= 0) ? Character.digit(field.charAt(i + 2), 16) : -1;
+            if (low >= 0) {
+                unescaped.append((char) (high << 4 | low));
+                i += 2;
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
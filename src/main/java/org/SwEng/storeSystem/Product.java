@@ -1,5 +1,7 @@
 package org.SwEng.storeSystem;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Represents a single product in the store with basic details and inventory count.
  */
@@ -7,8 +9,11 @@ public class Product {
     private final String id;
     private final String name;
     private final double price;
-    private int likes;
-    private int inventoryCount; // New field for inventory
+    // Likes are added by every store session at once, so they are counted in a sharded counter that
+    // never makes two sessions wait on each other
+    private final LongAdder likes = new LongAdder();
+    // Inventory is changed by every store session, so writes are synchronized
+    private volatile int inventoryCount; // New field for inventory
 
     /**
      * Constructor for creating a Product object.
@@ -18,7 +23,7 @@ public class Product {
         this.id = id;
         this.name = name;
         this.price = price;
-        this.likes = likes;
+        this.likes.add(likes);
         this.inventoryCount = inventoryCount;
     }
 
@@ -36,8 +41,11 @@ public class Product {
         return price;
     }
 
+    /**
+     * @return A snapshot of the likes counted so far. Likes added while it is taken may or may not be included.
+     */
     public int getLikes() {
-        return likes;
+        return (int) likes.sum();
     }
 
     public int getInventoryCount() {
@@ -46,11 +54,11 @@ public class Product {
 
     // --- Setters ---
 
-    public void setInventoryCount(int inventoryCount) {
+    public synchronized void setInventoryCount(int inventoryCount) {
         this.inventoryCount = inventoryCount;
     }
 
     public void addLike() {
-        this.likes++;
+        likes.increment();
     }
 }
\ No newline at end of file
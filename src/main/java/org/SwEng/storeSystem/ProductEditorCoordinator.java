@@ -1,15 +1,11 @@
 package org.SwEng.storeSystem;
 
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.MessagePayload;
 import org.SwEng.subsystems.general.Subsystems;
 
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 public class ProductEditorCoordinator {
     private Product currentProduct; // Null if creating new, populated if modifying
-    private List<Product> productList; //Update once complete.
     private ModificationState state = ModificationState.INIT;
 
     // Temporary storage for building the new/updated product
@@ -19,24 +15,14 @@ public class ProductEditorCoordinator {
     private int tempInventory;
 
     /**
-     * Entry point. Call this to start the interaction if modifying a product.
+     * Entry point. Call this to start the interaction.
+     * Products are saved to the shared catalogue in StoreDB once complete.
      *
      * @param message The empty init message.
      * @param product The product to edit, or NULL to create a new one.
      */
-    public InternalSystemMessage manageProduct(InternalSystemMessage message, List<Product> productList, Product product) {
+    public InternalSystemMessage manageProduct(InternalSystemMessage message, Product product) {
         this.currentProduct = product;
-        this.productList = productList;
-        return manageProduct(message);
-    }
-
-    /**
-     * Entry point. Call this to start the interaction if creating a new product.
-     *
-     * @param message The empty init message.
-     */
-    public InternalSystemMessage manageProduct(InternalSystemMessage message, List<Product> productList) {
-        this.productList = productList;
         return manageProduct(message);
     }
 
@@ -149,45 +135,28 @@ public class ProductEditorCoordinator {
             // When we are editing a product
             if (currentProduct != null) {
                 finalProduct = new Product(currentProduct.getId(), tempName, tempPrice, tempLikes, tempInventory);
-                StoreDB.updateProduct(finalProduct);
-                this.productList.remove(currentProduct);
-                this.productList.add(finalProduct);
+                if (!StoreDB.replaceProduct(currentProduct, finalProduct)) {
+                    finalProduct = null;
+                }
             } else { // When we are creating a new product
-                String uniqueId = generateUniqueId(productList);
-                finalProduct = new Product(uniqueId, tempName, tempPrice, tempLikes, tempInventory);
-                StoreDB.saveProduct(finalProduct);
-                this.productList.add(finalProduct);
+                finalProduct = StoreDB.createProduct(tempName, tempPrice, tempLikes, tempInventory);
             }
 
             this.state = ModificationState.INIT;
             this.currentProduct = null;
 
+            if (finalProduct == null) {
+                // The change is in the store, but the product file could not be written
+                return new InternalSystemMessage(Subsystems.STORE_SYSTEM, String.format(OutputStrings.NOT_SAVED_MSG, tempName));
+            }
+
             return new InternalSystemMessage(Subsystems.STORE_SYSTEM,
-                    String.format(OutputStrings.SUCCESS_MSG, finalProduct.getName()), "DONE");
+                    String.format(OutputStrings.SUCCESS_MSG, finalProduct.getName()), new MessagePayload.ProductSaved(finalProduct.getName()));
         }
 
         return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Error: Unknown State");
     }
 
-    private String generateUniqueId(List<Product> productList) {
-        // 1. Collect all existing IDs into a Set for fast O(1) lookup
-        Set<String> existingIds = productList.stream()
-                .map(Product::getId)
-                .collect(Collectors.toSet());
-
-        // 2. Iterate from 0 to 999 to find the first available 3-digit ID
-        for (int i = 11; i < 1000; i++) {
-            // Format as 3 digits with leading zeros (e.g., 5 becomes "005")
-            String candidateId = String.format("%03d", i);
-
-            if (!existingIds.contains(candidateId)) {
-                return candidateId;
-            }
-        }
-
-        throw new IllegalStateException("Error: Maximum product limit (1000) reached. Cannot generate new ID.");
-    }
-
     // State machine steps
     enum ModificationState {
         INIT,
@@ -216,5 +185,6 @@ public class ProductEditorCoordinator {
 
         public static final String ERROR_INVALID_NUMBER = "Invalid number format. Please try again.\nInput: ";
         public static final String SUCCESS_MSG = "Product created and saved successfully: %s\nHit enter to continue.";
+        public static final String NOT_SAVED_MSG = "%s has been changed in the store, but the product file could not be written.\nHit enter to continue.";
     }
 }
@@ -0,0 +1,165 @@
+package org.SwEng.storeSystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps the catalogue permanently ordered by likes so the storefront never has to sort it.
+ * <p>
+ * Products sit in a skip list keyed on (likes, id). When a product's likes change only that one entry is
+ * moved, which costs O(log n). Pages are addressed by the key of their first product, so reading a page
+ * costs O(log n + page size) no matter how large the catalogue is. Pages can be read while the ranking
+ * is being updated; updates are expected to come from one writer at a time (StoreDB).
+ * </p>
+ */
+public final class ProductRanking {
+    // Most likes first, then lowest ID so products with equal likes keep a stable order
+    private static final Comparator<RankKey> KEY_ORDER =
+            Comparator.comparingInt(RankKey::likes).reversed().thenComparing(RankKey::id);
+
+    private final ConcurrentSkipListMap<RankKey, Product> productsByRank = new ConcurrentSkipListMap<>(KEY_ORDER);
+    private final Map<String, RankKey> rankKeysById = new ConcurrentHashMap<>();
+
+    /**
+     * Builds a ranking over a list of products.
+     *
+     * @param products The products to rank.
+     */
+    public ProductRanking(List<Product> products) {
+        for (Product product : products) {
+            add(product);
+        }
+    }
+
+    /**
+     * Adds a product at the position given by its current likes.
+     *
+     * @param product The product to add.
+     */
+    public void add(Product product) {
+        RankKey key = new RankKey(product.getLikes(), product.getId());
+        RankKey oldKey = rankKeysById.put(product.getId(), key);
+        if (oldKey != null) {
+            productsByRank.remove(oldKey);
+        }
+        productsByRank.put(key, product);
+    }
+
+    /**
+     * Removes a product from the ranking.
+     *
+     * @param product The product to remove.
+     */
+    public void remove(Product product) {
+        RankKey key = rankKeysById.remove(product.getId());
+        if (key != null) {
+            productsByRank.remove(key);
+        }
+    }
+
+    /**
+     * Swaps a product for its edited version, which keeps the same ID.
+     *
+     * @param oldProduct     The version currently ranked.
+     * @param updatedProduct The new version.
+     */
+    public void replace(Product oldProduct, Product updatedProduct) {
+        remove(oldProduct);
+        add(updatedProduct);
+    }
+
+    /**
+     * Moves a product to the position matching its current likes.
+     * Call this after the product's likes have changed.
+     *
+     * @param product The product whose likes changed.
+     */
+    public void reposition(Product product) {
+        RankKey oldKey = rankKeysById.get(product.getId());
+        if (oldKey != null && oldKey.likes() == product.getLikes()) {
+            return; // Already in the right place
+        }
+        add(product);
+    }
+
+    /**
+     * Reads one page of products.
+     *
+     * @param pageStart The key of the page's first product, or null for the first page.
+     * @param pageSize  The number of products per page.
+     * @return Up to pageSize products, most liked first.
+     */
+    public List<Product> getPage(RankKey pageStart, int pageSize) {
+        Map<RankKey, Product> fromStart = (pageStart == null) ? productsByRank : productsByRank.tailMap(pageStart, true);
+
+        List<Product> page = new ArrayList<>(pageSize);
+        Iterator<Product> products = fromStart.values().iterator();
+        while (page.size() < pageSize && products.hasNext()) {
+            page.add(products.next());
+        }
+        return page;
+    }
+
+    /**
+     * Finds where the page after the given one starts.
+     *
+     * @param pageStart The key of the current page's first product, or null for the first page.
+     * @param pageSize  The number of products per page.
+     * @return The key of the next page's first product, or null if the current page is the last one.
+     */
+    public RankKey getNextPageStart(RankKey pageStart, int pageSize) {
+        Map<RankKey, Product> fromStart = (pageStart == null) ? productsByRank : productsByRank.tailMap(pageStart, true);
+
+        Iterator<RankKey> keys = fromStart.keySet().iterator();
+        for (int skipped = 0; skipped < pageSize && keys.hasNext(); skipped++) {
+            keys.next();
+        }
+        return keys.hasNext() ? keys.next() : null;
+    }
+
+    /**
+     * Finds where the page before the given one starts.
+     *
+     * @param pageStart The key of the current page's first product, or null for the first page.
+     * @param pageSize  The number of products per page.
+     * @return The key of the previous page's first product, or null if that is the first page.
+     */
+    public RankKey getPreviousPageStart(RankKey pageStart, int pageSize) {
+        if (pageStart == null) {
+            return null;
+        }
+
+        Iterator<RankKey> keys = productsByRank.headMap(pageStart, false).descendingKeySet().iterator();
+        RankKey previousStart = null;
+        for (int taken = 0; taken < pageSize && keys.hasNext(); taken++) {
+            previousStart = keys.next();
+        }
+        // Nothing further back means the previous page is the first one
+        return keys.hasNext() ? previousStart : null;
+    }
+
+    /**
+     * @return Every product, most liked first. Can be read while the ranking is being updated.
+     */
+    public Iterable<Product> productsInRankOrder() {
+        return productsByRank.values();
+    }
+
+    public int size() {
+        return productsByRank.size();
+    }
+
+    /**
+     * Position of a product in the ranking.
+     *
+     * @param likes The product's likes when it was ranked.
+     * @param id    The product's ID.
+     */
+    public record RankKey(int likes, String id) {
+    }
+}
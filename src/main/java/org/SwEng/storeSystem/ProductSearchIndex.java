@@ -0,0 +1,446 @@
+package org.SwEng.storeSystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted index over product names.
+ * <p>
+ * Each product gets a document number when it is added, and every lower-cased word of its name maps to the
+ * sorted document numbers of the products containing it (its posting). The words are kept sorted, so all words
+ * starting with a prefix form one contiguous range of keys. Searches can run while the index is being updated:
+ * a posting is never changed in place, only replaced. Updates are expected to come from one writer at a time
+ * (StoreDB).
+ * </p>
+ * <p>
+ * A search only ever looks at the products matching its least common word. If even that word is common (a
+ * one- or two-letter prefix on a large catalogue), the most liked products are checked first, using the likes
+ * ranking, and the search stops once it has a full page of matches. Common words that rarely appear together
+ * ("rocket rover") would make that walk cover the whole ranking, so the words' postings are intersected first,
+ * as bit sets with one bit per document number; on a catalogue of a million products this takes tens of
+ * microseconds. If few products match every word they are ranked directly. The walk in likes order is also
+ * bounded by RANK_WALK_LIMIT, after which every matching product is ranked.
+ * </p>
+ */
+public final class ProductSearchIndex {
+    // Ranks the best match first: most likes, then lowest ID for a stable order
+    private static final Comparator<Product> BY_RANK =
+            Comparator.comparingInt(Product::getLikes).reversed().thenComparing(Product::getId);
+    // Number of matching products above which a query word is too common to collect its matches
+    private static final int COMMON_WORD_MATCHES = 2048;
+    // Products checked in likes order before a search on common words intersects their matches instead
+    private static final int RANK_WALK_LIMIT = 1024;
+    private static final int[] NO_DOC_IDS = new int[0];
+
+    private final ConcurrentSkipListMap<String, Posting> postingsByToken = new ConcurrentSkipListMap<>();
+    private final Map<String, IndexedProduct> productsById = new ConcurrentHashMap<>();
+    // Products by document number; a removed product leaves a null. Only grown by the writer.
+    private volatile IndexedProduct[] productsByDocId;
+    private int nextDocId;
+    private final ProductRanking ranking;
+
+    /**
+     * Builds an index over a list of products.
+     *
+     * @param products The products to index.
+     * @param ranking  The likes ranking of the same products, walked when every query word is common.
+     */
+    public ProductSearchIndex(List<Product> products, ProductRanking ranking) {
+        this.ranking = ranking;
+        IndexedProduct[] indexed = new IndexedProduct[Math.max(16, products.size())];
+
+        // Products are numbered in list order, so each word's numbers come out sorted
+        Map<String, int[]> counts = new HashMap<>();
+        for (Product product : products) {
+            IndexedProduct entry = new IndexedProduct(product, nextDocId++, tokenize(product.getName()));
+            indexed[entry.docId()] = entry;
+            IndexedProduct replaced = productsById.put(product.getId(), entry);
+            if (replaced != null) {
+                indexed[replaced.docId()] = null;
+            }
+        }
+        for (int docId = 0; docId < nextDocId; docId++) {
+            if (indexed[docId] != null) {
+                for (String token : indexed[docId].nameTokens()) {
+                    counts.computeIfAbsent(token, key -> new int[1])[0]++;
+                }
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>();
+        for (int docId = 0; docId < nextDocId; docId++) {
+            if (indexed[docId] != null) {
+                for (String token : indexed[docId].nameTokens()) {
+                    int[] tokenIds = postings.computeIfAbsent(token, key -> new int[counts.get(key)[0]]);
+                    tokenIds[tokenIds.length - counts.get(token)[0]--] = docId;
+                }
+            }
+        }
+        productsByDocId = indexed;
+        postings.forEach((token, tokenIds) -> postingsByToken.put(token, new Posting(tokenIds)));
+    }
+
+    /**
+     * Adds a product to the index.
+     *
+     * @param product The product to add.
+     */
+    public void add(Product product) {
+        IndexedProduct entry = new IndexedProduct(product, nextDocId++, tokenize(product.getName()));
+        IndexedProduct[] indexed = productsByDocId;
+        if (entry.docId() == indexed.length) {
+            indexed = Arrays.copyOf(indexed, indexed.length * 2);
+        }
+        indexed[entry.docId()] = entry;
+        productsByDocId = indexed;
+
+        // The new number is the highest, so it goes on the end
+        for (String token : entry.nameTokens()) {
+            postingsByToken.compute(token, (key, posting) -> {
+                if (posting == null) {
+                    return new Posting(new int[]{entry.docId()});
+                }
+                int[] added = Arrays.copyOf(posting.docIds, posting.docIds.length + 1);
+                added[posting.docIds.length] = entry.docId();
+                return new Posting(added);
+            });
+        }
+        IndexedProduct replaced = productsById.put(product.getId(), entry);
+        if (replaced != null) {
+            removeEntry(replaced);
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param product The product to remove.
+     */
+    public void remove(Product product) {
+        IndexedProduct entry = productsById.get(product.getId());
+        if (entry != null && productsById.remove(product.getId(), entry)) {
+            removeEntry(entry);
+        }
+    }
+
+    private void removeEntry(IndexedProduct entry) {
+        for (String token : entry.nameTokens()) {
+            postingsByToken.computeIfPresent(token, (key, posting) -> {
+                int[] tokenIds = posting.docIds;
+                int position = Arrays.binarySearch(tokenIds, entry.docId());
+                if (position < 0) {
+                    return posting;
+                }
+                if (tokenIds.length == 1) {
+                    return null;
+                }
+                int[] removed = new int[tokenIds.length - 1];
+                System.arraycopy(tokenIds, 0, removed, 0, position);
+                System.arraycopy(tokenIds, position + 1, removed, position, removed.length - position);
+                return new Posting(removed);
+            });
+        }
+        productsByDocId[entry.docId()] = null;
+    }
+
+    /**
+     * Swaps a product for its edited version, which keeps the same ID.
+     *
+     * @param oldProduct     The version currently in the index.
+     * @param updatedProduct The new version.
+     */
+    public void replace(Product oldProduct, Product updatedProduct) {
+        remove(oldProduct);
+        add(updatedProduct);
+    }
+
+    /**
+     * Finds the products whose names contain a word starting with every word of the query.
+     * For example, "sat v" matches "Saturn V Model".
+     *
+     * @param query The words to search for.
+     * @param limit The maximum number of results.
+     * @return The matching products, most liked first.
+     */
+    public List<Product> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // 1. Find the query word matching the fewest products, counting no further than needed
+        String rarestToken = queryTokens.getFirst();
+        int rarestMatches = Integer.MAX_VALUE;
+        for (String token : queryTokens) {
+            int matches = countDocIdsWithPrefix(token, COMMON_WORD_MATCHES);
+            if (matches < rarestMatches) {
+                rarestToken = token;
+                rarestMatches = matches;
+            }
+        }
+
+        if (rarestMatches <= COMMON_WORD_MATCHES) {
+            // 2. Check only the products matching the rarest word
+            return mostLiked(docIdsWithPrefix(rarestToken), queryTokens, limit);
+        }
+
+        // 3. Every word is common. Common words can still have few products in common, so intersect them first.
+        long[] matches = null;
+        if (queryTokens.size() > 1) {
+            matches = intersectPostings(queryTokens);
+            if (countBits(matches, COMMON_WORD_MATCHES) <= COMMON_WORD_MATCHES) {
+                return mostLiked(toDocIds(matches), null, limit);
+            }
+        }
+
+        // 4. Many products match: the most liked of them are found quickly in likes order
+        List<Product> results = searchByRank(queryTokens, limit);
+        if (results != null) {
+            return results;
+        }
+        return mostLiked((matches != null) ? toDocIds(matches) : docIdsWithPrefix(rarestToken), null, limit);
+    }
+
+    /**
+     * Checks the products most liked first and stops at the first `limit` matches.
+     *
+     * @return The matches, or null if the first RANK_WALK_LIMIT products did not hold a full page of them.
+     */
+    private List<Product> searchByRank(List<String> queryTokens, int limit) {
+        List<Product> results = new ArrayList<>(limit);
+        int checked = 0;
+        for (Product product : ranking.productsInRankOrder()) {
+            if (++checked > RANK_WALK_LIMIT) {
+                return null;
+            }
+            IndexedProduct entry = productsById.get(product.getId());
+            if (entry != null && entry.matches(queryTokens)) {
+                results.add(product);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Intersects the postings of every query word. Each word's postings are turned into one bit set (a prefix can
+     * start several words) and the sets are ANDed.
+     *
+     * @return The document numbers of the products matching every word, as a bit set.
+     */
+    private long[] intersectPostings(List<String> queryTokens) {
+        long[] matches = null;
+        for (String token : queryTokens) {
+            long[] tokenBits = docIdBitsWithPrefix(token);
+            if (matches == null) {
+                matches = tokenBits.clone();
+            } else {
+                for (int i = 0; i < matches.length; i++) {
+                    matches[i] &= (i < tokenBits.length) ? tokenBits[i] : 0;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return The number of bits set, or any number above `bound` once it is clear there are more than that.
+     */
+    private static int countBits(long[] bits, int bound) {
+        int count = 0;
+        for (int i = 0; i < bits.length && count <= bound; i++) {
+            count += Long.bitCount(bits[i]);
+        }
+        return count;
+    }
+
+    /**
+     * @return The numbers of the bits set, in order.
+     */
+    private static int[] toDocIds(long[] bits) {
+        int[] docIds = new int[countBits(bits, Integer.MAX_VALUE)];
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            for (long word = bits[i]; word != 0; word &= word - 1) {
+                docIds[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return docIds;
+    }
+
+    /**
+     * Keeps the best `limit` products in a small heap whose head is the worst of them.
+     *
+     * @param docIds      The products to rank.
+     * @param queryTokens The words each product must match, or null if they are known to match.
+     */
+    private List<Product> mostLiked(int[] docIds, List<String> queryTokens, int limit) {
+        IndexedProduct[] indexed = productsByDocId;
+        PriorityQueue<Product> best = new PriorityQueue<>(limit + 1, BY_RANK.reversed());
+        for (int docId : docIds) {
+            IndexedProduct entry = (docId < indexed.length) ? indexed[docId] : null;
+            if (entry != null && (queryTokens == null || entry.matches(queryTokens))) {
+                best.add(entry.product());
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Product> results = new ArrayList<>(best);
+        results.sort(BY_RANK);
+        return results;
+    }
+
+    /**
+     * @return The number of products with a word starting with the prefix, or any number above `bound` once it
+     * is clear there are more than that.
+     */
+    private int countDocIdsWithPrefix(String prefix, int bound) {
+        int count = 0;
+        for (Posting posting : postingsWithPrefix(prefix)) {
+            count += posting.docIds.length;
+            if (count > bound) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The sorted document numbers of the products with a word starting with the prefix.
+     */
+    private int[] docIdsWithPrefix(String prefix) {
+        Collection<Posting> postings = postingsWithPrefix(prefix);
+        if (postings.size() <= 1) {
+            return postings.isEmpty() ? NO_DOC_IDS : postings.iterator().next().docIds;
+        }
+
+        // A name can have several words starting with the prefix; list its product once
+        int total = 0;
+        for (Posting posting : postings) {
+            total += posting.docIds.length;
+        }
+        int[] union = new int[total];
+        int length = 0;
+        for (Posting posting : postings) {
+            System.arraycopy(posting.docIds, 0, union, length, posting.docIds.length);
+            length += posting.docIds.length;
+        }
+        Arrays.sort(union);
+        int distinct = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (i == 0 || union[i] != union[i - 1]) {
+                union[distinct++] = union[i];
+            }
+        }
+        return Arrays.copyOf(union, distinct);
+    }
+
+    /**
+     * @return The document numbers of the products with a word starting with the prefix, as a bit set.
+     */
+    private long[] docIdBitsWithPrefix(String prefix) {
+        Collection<Posting> postings = postingsWithPrefix(prefix);
+        if (postings.size() == 1) {
+            return postings.iterator().next().bits();
+        }
+
+        // Products added while this runs may be left out
+        long[] bits = new long[(productsByDocId.length >> 6) + 1];
+        for (Posting posting : postings) {
+            if (posting.docIds.length < COMMON_WORD_MATCHES) {
+                // Not worth keeping a bit set for; most of its words would be zero
+                for (int docId : posting.docIds) {
+                    if ((docId >> 6) < bits.length) {
+                        bits[docId >> 6] |= 1L << docId;
+                    }
+                }
+            } else {
+                long[] tokenBits = posting.bits();
+                for (int i = 0; i < Math.min(tokenBits.length, bits.length); i++) {
+                    bits[i] |= tokenBits[i];
+                }
+            }
+        }
+        return bits;
+    }
+
+    private Collection<Posting> postingsWithPrefix(String prefix) {
+        return postingsByToken.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values();
+    }
+
+    /**
+     * Splits text into distinct lower-cased words made of letters and digits.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The sorted document numbers of the products whose name contains one word.
+     */
+    private static final class Posting {
+        private final int[] docIds;
+        // The same numbers as a bit set, built the first time a search intersects the word
+        private volatile long[] bits;
+
+        private Posting(int[] docIds) {
+            this.docIds = docIds;
+        }
+
+        private long[] bits() {
+            long[] docIdBits = bits;
+            if (docIdBits == null) {
+                docIdBits = new long[(docIds[docIds.length - 1] >> 6) + 1];
+                for (int docId : docIds) {
+                    docIdBits[docId >> 6] |= 1L << docId;
+                }
+                bits = docIdBits;
+            }
+            return docIdBits;
+        }
+    }
+
+    /**
+     * A product, its document number and the words of its name, split once when it is added.
+     */
+    private record IndexedProduct(Product product, int docId, List<String> nameTokens) {
+        /**
+         * @return True if every query word starts a word of the product's name.
+         */
+        private boolean matches(List<String> queryTokens) {
+            for (String queryToken : queryTokens) {
+                boolean found = false;
+                for (String nameToken : nameTokens) {
+                    if (nameToken.startsWith(queryToken)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.Cart;
+import org.SwEng.subsystems.general.IntIntHashMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented view of the catalogue keyed by int product ID.
+ * <p>
+ * Product IDs are parsed to ints once, mapped to a row index by an open-addressing int to int map, and the
+ * price, likes and inventory of each row are kept in parallel primitive arrays. Looking a product up, costing a
+ * cart and checking stock are plain array reads with no boxing, hashing of strings or temporary collections.
+ * </p>
+ * <p>
+ * The rows are rebuilt as a whole whenever products are added, replaced or removed, which is rare. Inventory
+ * and likes are updated in place: inventory by the reservation engine while it holds the product's stripe, and
+ * likes by the like flush. Rebuilds happen while every reservation stripe and the StoreDB lock are held, so a
+ * row index stays valid for as long as either is held.
+ * </p>
+ */
+public final class ProductTable {
+    private volatile Rows rows;
+
+    public ProductTable(List<Product> products) {
+        rebuild(products);
+    }
+
+    /**
+     * Rebuilds the rows from the catalogue after products were added, replaced or removed.
+     * Reservations must be stopped while this runs.
+     */
+    public void rebuild(List<Product> products) {
+        rows = new Rows(products);
+    }
+
+    // --- LOOKUPS ---
+
+    /**
+     * @return The row of a product, or -1 if the ID is not in the catalogue.
+     */
+    public int indexOf(String productId) {
+        return indexOf(parseId(productId));
+    }
+
+    /**
+     * @return The row of a product, or -1 if the ID is not in the catalogue.
+     */
+    public int indexOf(int productId) {
+        return rows.indexOf(productId);
+    }
+
+    /**
+     * @return The catalogue product with this ID, or null if there is none.
+     */
+    public Product getProduct(String productId) {
+        Rows current = rows;
+        int index = current.indexOf(parseId(productId));
+        return (index < 0) ? null : current.products[index];
+    }
+
+    public Product getProductAt(int index) {
+        return rows.products[index];
+    }
+
+    public double getPrice(int index) {
+        return rows.prices[index];
+    }
+
+    public int getLikes(int index) {
+        return rows.likes[index];
+    }
+
+    public int getInventory(int index) {
+        return rows.inventory[index];
+    }
+
+    // --- UPDATES ---
+
+    /**
+     * Sets the stock of a row and of its product. The caller must hold the product's reservation stripe.
+     */
+    public void setInventory(int index, int inventoryCount) {
+        Rows current = rows;
+        current.inventory[index] = inventoryCount;
+        current.products[index].setInventoryCount(inventoryCount);
+    }
+
+    /**
+     * Copies a product's current like count into its row, if the product is still in the catalogue.
+     */
+    public void refreshLikes(Product product) {
+        Rows current = rows;
+        int index = current.indexOf(parseId(product.getId()));
+        if (index >= 0 && current.products[index] == product) {
+            current.likes[index] = product.getLikes();
+        }
+    }
+
+    // --- CART OPERATIONS ---
+
+    /**
+     * Adds up the price of every unit in a cart. Products no longer in the catalogue cost nothing.
+     *
+     * @param cart The cart, holding the quantity wanted of each product.
+     * @return The total price.
+     */
+    public double getCartCost(Cart cart) {
+        Rows current = rows;
+        double cost = 0;
+        for (Map.Entry<String, Integer> item : cart.getQuantities().entrySet()) {
+            int index = current.indexOf(parseId(item.getKey()));
+            if (index >= 0) {
+                cost += current.prices[index] * item.getValue();
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Parses a product ID such as "103" (or "005") without allocating.
+     *
+     * @return The ID as an int, or -1 if it is not a non-negative number.
+     */
+    public static int parseId(String productId) {
+        if (productId == null || productId.isEmpty() || productId.length() > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < productId.length(); i++) {
+            char c = productId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * One immutable layout of the catalogue. The inventory and likes values change in place; nothing else does.
+     */
+    private static final class Rows {
+        private final IntIntHashMap indexById;
+        private final Product[] products;
+        private final double[] prices;
+        private final int[] likes;
+        private final int[] inventory;
+
+        private Rows(List<Product> catalogue) {
+            int size = catalogue.size();
+            indexById = new IntIntHashMap(size);
+            products = new Product[size];
+            prices = new double[size];
+            likes = new int[size];
+            inventory = new int[size];
+
+            int row = 0;
+            for (Product product : catalogue) {
+                int productId = parseId(product.getId());
+                if (productId < 0) {
+                    System.err.println("Skipping product with non-numeric ID: " + product.getId());
+                    continue;
+                }
+                indexById.put(productId, row);
+                products[row] = product;
+                prices[row] = product.getPrice();
+                likes[row] = product.getLikes();
+                inventory[row] = product.getInventoryCount();
+                row++;
+            }
+        }
+
+        private int indexOf(int productId) {
+            return (productId < 0) ? -1 : indexById.get(productId, -1);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.SwEng.storeSystem;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind layer for the product file.
+ * <p>
+ * Catalogue changes are made in memory and then reported here. Instead of rewriting the product file for every
+ * change, a background thread collects the changes reported within a short window (or until a batch is full) and
+ * writes the file once for the whole batch. How long a caller waits depends on the durability mode:
+ * <ul>
+ *     <li>SYNC - the file is written before write() returns, once per change (the old behaviour).</li>
+ *     <li>GROUP - write() returns once a batch containing the change has been written (group commit).</li>
+ *     <li>ASYNC - write() returns immediately; the change is written with the next batch.</li>
+ * </ul>
+ * The file is forced to disk before it replaces the old one. If a write fails, the callers waiting on it are told
+ * so, and the changes are written with the next batch (every batch writes the whole catalogue).
+ * Flush latency and batch size are tracked and can be read with getMetrics().
+ * </p>
+ */
+public class ProductWriteBehind {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 20;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    private final FlushAction flushAction;
+    private final DurabilityMode mode;
+    private final long flushIntervalNanos;
+    private final int maxBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changesPending = lock.newCondition();
+    private final Condition batchWritten = lock.newCondition();
+    // Sequence numbers of the last change reported, the last change a write was attempted for,
+    // and the last change known to be in the file
+    private long lastReported;
+    private long lastWritten;
+    private long lastSaved;
+    private int pendingChanges;
+    private boolean flushRequested;
+
+    // Serialises the writes made by callers in SYNC mode
+    private final ReentrantLock syncWriteLock = new ReentrantLock();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder changesWritten = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong slowestFlushNanos = new AtomicLong();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    /**
+     * @param flushAction         Writes the current catalogue to the product file.
+     * @param mode                How long write() waits for the change to reach the file.
+     * @param flushIntervalMillis How long a batch collects changes before it is written.
+     * @param maxBatchSize        The number of changes that causes a batch to be written straight away.
+     */
+    public ProductWriteBehind(FlushAction flushAction, DurabilityMode mode, long flushIntervalMillis, int maxBatchSize) {
+        this.flushAction = flushAction;
+        this.mode = mode;
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000;
+        this.maxBatchSize = maxBatchSize;
+
+        if (mode != DurabilityMode.SYNC) {
+            Thread.ofPlatform().daemon().name("product-writer").start(this::runFlusher);
+        }
+    }
+
+    /**
+     * Reports a change to the catalogue that needs to be written to the product file.
+     * Call this after the change has been made in memory and without holding the catalogue lock.
+     *
+     * @return False if the write covering the change failed (SYNC and GROUP). ASYNC does not wait, so always true.
+     */
+    public boolean write() {
+        if (mode == DurabilityMode.SYNC) {
+            syncWriteLock.lock();
+            try {
+                return writeBatch(1);
+            } finally {
+                syncWriteLock.unlock();
+            }
+        }
+
+        lock.lock();
+        try {
+            long sequence = ++lastReported;
+            pendingChanges++;
+            changesPending.signal();
+
+            if (mode == DurabilityMode.GROUP) {
+                while (lastWritten < sequence) {
+                    batchWritten.awaitUninterruptibly();
+                }
+                // A later batch may have written it even if the first attempt failed
+                return lastSaved >= sequence;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes any pending changes now and waits until they are in the file (e.g. before the program exits).
+     *
+     * @return False if they could not be written.
+     */
+    public boolean flush() {
+        if (mode == DurabilityMode.SYNC) {
+            return true;
+        }
+
+        lock.lock();
+        try {
+            long sequence = lastReported;
+            flushRequested = true;
+            changesPending.signal();
+            while (lastWritten < sequence) {
+                batchWritten.awaitUninterruptibly();
+            }
+            return lastSaved >= sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The flush counts and timings so far.
+     */
+    public FlushMetrics getMetrics() {
+        long flushCount = flushes.sum();
+        long changeCount = changesWritten.sum();
+        return new FlushMetrics(mode, flushCount, changeCount, largestBatch.get(),
+                (flushCount == 0) ? 0 : (double) changeCount / flushCount,
+                (flushCount == 0) ? 0 : totalFlushNanos.sum() / 1_000_000.0 / flushCount,
+                slowestFlushNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Background loop for GROUP and ASYNC modes: waits for a change, lets the batch fill, writes it.
+     */
+    private void runFlusher() {
+        try {
+            while (true) {
+                long batchEnd;
+                int batchSize;
+
+                lock.lock();
+                try {
+                    while (pendingChanges == 0) {
+                        changesPending.await();
+                    }
+                    // Give other changes a chance to join the batch, unless it is already full
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    long remaining;
+                    while (pendingChanges < maxBatchSize && !flushRequested
+                            && (remaining = deadline - System.nanoTime()) > 0) {
+                        changesPending.awaitNanos(remaining);
+                    }
+
+                    batchEnd = lastReported;
+                    batchSize = pendingChanges;
+                    pendingChanges = 0;
+                    flushRequested = false;
+                } finally {
+                    lock.unlock();
+                }
+
+                // Every change up to batchEnd was made in memory before it was reported, so one write covers them all
+                boolean saved = writeBatch(batchSize);
+
+                lock.lock();
+                try {
+                    lastWritten = batchEnd;
+                    if (saved) {
+                        lastSaved = batchEnd;
+                    }
+                    batchWritten.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return True if the product file was written.
+     */
+    private boolean writeBatch(int batchSize) {
+        long start = System.nanoTime();
+        boolean saved = false;
+        try {
+            flushAction.write();
+            saved = true;
+        } catch (IOException | RuntimeException e) {
+            // Keep the writer alive; the next batch writes the whole catalogue again
+            System.err.println("Error writing products: " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        flushes.increment();
+        changesWritten.add(batchSize);
+        totalFlushNanos.add(elapsed);
+        slowestFlushNanos.accumulateAndGet(elapsed, Math::max);
+        largestBatch.accumulateAndGet(batchSize, Math::max);
+        return saved;
+    }
+
+    /**
+     * Writes the current catalogue to the product file.
+     */
+    @FunctionalInterface
+    public interface FlushAction {
+        void write() throws IOException;
+    }
+
+    /**
+     * How long a caller waits for its change to reach the product file.
+     */
+    public enum DurabilityMode {
+        SYNC,
+        GROUP,
+        ASYNC
+    }
+
+    /**
+     * Flush statistics since the writer was created.
+     *
+     * @param mode               The durability mode in use.
+     * @param flushes            The number of times the product file was written.
+     * @param changesWritten     The number of changes those writes covered.
+     * @param largestBatch       The most changes covered by a single write.
+     * @param averageBatchSize   changesWritten / flushes.
+     * @param averageFlushMillis The average time taken by one write.
+     * @param slowestFlushMillis The longest time taken by one write.
+     */
+    public record FlushMetrics(DurabilityMode mode, long flushes, long changesWritten, int largestBatch,
+                               double averageBatchSize, double averageFlushMillis, double slowestFlushMillis) {
+    }
+}
@@ -0,0 +1,139 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.IntIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Units sold and revenue per product, for one period.
+ * <p>
+ * Each product gets a row in three parallel arrays (product ID, units, revenue), found through an
+ * IntIntHashMap from product ID to row. Adding a sale updates both totals at once, so a report's unit
+ * counts and revenue come out of the same pass over the sales, without boxing and without looking prices
+ * up in the catalogue afterwards. Not thread-safe.
+ * </p>
+ */
+public class SalesCounts {
+    private final IntIntHashMap rowsByProductId;
+    private int[] productIds;
+    private int[] units;
+    private double[] revenue;
+    private int rows;
+
+    public SalesCounts() {
+        this(8);
+    }
+
+    private SalesCounts(int capacity) {
+        rowsByProductId = new IntIntHashMap(capacity);
+        productIds = new int[capacity];
+        units = new int[capacity];
+        revenue = new double[capacity];
+    }
+
+    /**
+     * Adds a sale of one product.
+     *
+     * @param productId The product sold.
+     * @param quantity  The number of units sold.
+     * @param amount    The revenue from the sale, in millions of dollars.
+     */
+    public void add(int productId, int quantity, double amount) {
+        int row = rowsByProductId.get(productId, -1);
+        if (row == -1) {
+            row = addRow(productId);
+        }
+        units[row] += quantity;
+        revenue[row] += amount;
+    }
+
+    /**
+     * Adds every product's totals in another SalesCounts to the totals here.
+     */
+    public void addAll(SalesCounts other) {
+        for (int row = 0; row < other.rows; row++) {
+            add(other.productIds[row], other.units[row], other.revenue[row]);
+        }
+    }
+
+    /**
+     * @return An independent copy.
+     */
+    public SalesCounts copy() {
+        SalesCounts copy = new SalesCounts(Math.max(rows, 1));
+        copy.addAll(this);
+        return copy;
+    }
+
+    /**
+     * @return The units sold of a product, or 0 if it had no sales.
+     */
+    public int getUnits(int productId) {
+        int row = rowsByProductId.get(productId, -1);
+        return (row == -1) ? 0 : units[row];
+    }
+
+    /**
+     * @return The revenue from a product in millions of dollars, or 0 if it had no sales.
+     */
+    public double getRevenue(int productId) {
+        int row = rowsByProductId.get(productId, -1);
+        return (row == -1) ? 0 : revenue[row];
+    }
+
+    public int getTotalUnits() {
+        int total = 0;
+        for (int row = 0; row < rows; row++) {
+            total += units[row];
+        }
+        return total;
+    }
+
+    public double getTotalRevenue() {
+        double total = 0;
+        for (int row = 0; row < rows; row++) {
+            total += revenue[row];
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of products with sales.
+     */
+    public int size() {
+        return rows;
+    }
+
+    public boolean isEmpty() {
+        return rows == 0;
+    }
+
+    /**
+     * Calls the visitor once for every product, in the order they were first added.
+     */
+    public void forEach(ProductTotalsVisitor visitor) {
+        for (int row = 0; row < rows; row++) {
+            visitor.visit(productIds[row], units[row], revenue[row]);
+        }
+    }
+
+    private int addRow(int productId) {
+        if (rows == productIds.length) {
+            int capacity = rows * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            units = Arrays.copyOf(units, capacity);
+            revenue = Arrays.copyOf(revenue, capacity);
+        }
+        productIds[rows] = productId;
+        rowsByProductId.put(productId, rows);
+        return rows++;
+    }
+
+    /**
+     * Receives one product's totals without boxing them.
+     */
+    @FunctionalInterface
+    public interface ProductTotalsVisitor {
+        void visit(int productId, int units, double revenue);
+    }
+}
@@ -0,0 +1,578 @@
+package org.SwEng.storeSystem;
+
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Binary, fixed-width ledger of every sale.
+ * <p>
+ * The file starts with an 8 byte header (magic number, format version) followed by one 32 byte record per
+ * product sold in an order: product ID (int), day sold as an epoch day (int), unit price at the time of sale
+ * (double), order ID (long), quantity (int) and a flag (int) set on every record of an order but its last. Records
+ * are only ever appended, and reads
+ * memory-map the file, so aggregating units and revenue is a primitive loop over the mapped bytes with no
+ * text parsing and no catalogue lookups. Product names are kept once per product in a small ID to name file
+ * next to the ledger.
+ * </p>
+ * <p>
+ * An order's records are written in one go, but a crash can still leave only the first of them on disk. When the
+ * ledger is opened, trailing records whose flag says more should follow are cut off, so the order does not count
+ * as recorded and is recorded again, whole, from the order log.
+ * </p>
+ * <p>
+ * Version 1 ledgers (16 byte records without quantity or order ID) are upgraded when opened: each old record
+ * becomes one unit with order ID NO_ORDER_ID.
+ * </p>
+ */
+public class SalesLedger {
+    private static final int MAGIC = 0x454D5453; // "EMTS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    public static final int RECORD_BYTES = 32;
+
+    // Field offsets within a record
+    private static final int PRODUCT_ID_OFFSET = 0;
+    private static final int EPOCH_DAY_OFFSET = 4;
+    private static final int UNIT_PRICE_OFFSET = 8;
+    private static final int ORDER_ID_OFFSET = 16;
+    private static final int QUANTITY_OFFSET = 24;
+    private static final int MORE_IN_ORDER_OFFSET = 28;
+
+    private static final int VERSION_1_RECORD_BYTES = 16;
+
+    // Order ID of sales recorded before orders had IDs
+    public static final long NO_ORDER_ID = 0;
+
+    // A single mapping is indexed by int, so large ledgers are read in windows of this many records
+    private static final int MAX_RECORDS_PER_MAPPING = Integer.MAX_VALUE / RECORD_BYTES;
+    // Records counted by one task when aggregating in parallel (4 MB of ledger)
+    private static final int PARALLEL_CHUNK_RECORDS = 128 * 1024;
+
+    // Passed to countSalesByProduct to count every product
+    public static final int ALL_PRODUCTS = -1;
+
+    // IDs handed to products found in old text sales that no longer exist in the catalogue
+    private static final int FIRST_RETIRED_PRODUCT_ID = 1_000_000;
+
+    private final FileChannel channel;
+    private final Path productNamesPath;
+    private final Map<Integer, String> productNames = new ConcurrentHashMap<>();
+    private volatile long recordCount;
+    private long lastOrderId;
+    // Guards appends and lastOrderId; readers work from recordCount and take no lock
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens (or creates) a ledger, upgrading a version 1 ledger first.
+     *
+     * @param ledgerPath       The binary ledger file.
+     * @param productNamesPath The ID to name file that goes with it.
+     * @throws IOException If the file cannot be opened or is not a sales ledger.
+     */
+    public SalesLedger(Path ledgerPath, Path productNamesPath) throws IOException {
+        this.productNamesPath = productNamesPath;
+        if (readVersion(ledgerPath) == 1) {
+            upgradeFromVersion1(ledgerPath);
+        }
+        this.channel = FileChannel.open(ledgerPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                throw new IOException("Not a version " + VERSION + " sales ledger: " + ledgerPath);
+            }
+        }
+
+        // A record cut short by a crash is ignored and later overwritten
+        this.recordCount = dropUnfinishedOrder((channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        this.lastOrderId = readLastOrderId();
+        loadProductNames();
+    }
+
+    // --- WRITE OPERATIONS ---
+
+    /**
+     * Records an order: one record per product, all in a single write.
+     *
+     * @param orderId  The order's ID from the order log; must be newer than every order already recorded.
+     * @param sales    The products sold and how many of each, at the price they were sold for.
+     * @param epochDay The day they were sold.
+     * @return True if the order was recorded.
+     */
+    public boolean recordOrder(long orderId, List<Sale> sales, int epochDay) {
+        lock.lock();
+        try {
+            if (!appendRecords(sales, epochDay, orderId)) {
+                return false;
+            }
+            lastOrderId = orderId;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends one record per sale in a single write.
+     *
+     * @return True if the records were written.
+     */
+    private boolean appendRecords(List<Sale> sales, int epochDay, long orderId) {
+        lock.lock();
+        try {
+            if (sales.isEmpty()) {
+                return false;
+            }
+
+            ByteBuffer records = ByteBuffer.allocate(sales.size() * RECORD_BYTES);
+            for (int i = 0; i < sales.size(); i++) {
+                Sale sale = sales.get(i);
+                int productId = Integer.parseInt(sale.product().getId());
+                rememberProductName(productId, sale.product().getName());
+                // Imported sales are not orders, so each of their records stands alone
+                boolean moreInOrder = orderId != NO_ORDER_ID && i < sales.size() - 1;
+                putRecord(records, productId, epochDay, sale.product().getPrice(), orderId, sale.quantity(), moreInOrder);
+            }
+            records.flip();
+
+            try {
+                long position = HEADER_BYTES + recordCount * RECORD_BYTES;
+                while (records.hasRemaining()) {
+                    position += channel.write(records, position);
+                }
+                recordCount += sales.size();
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error recording sales.");
+                e.printStackTrace();
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void putRecord(ByteBuffer records, int productId, int epochDay, double unitPrice, long orderId, int quantity,
+                                  boolean moreInOrder) {
+        records.putInt(productId).putInt(epochDay).putDouble(unitPrice).putLong(orderId).putInt(quantity)
+                .putInt(moreInOrder ? 1 : 0);
+    }
+
+    // --- READ OPERATIONS ---
+
+    /**
+     * Totals the units sold and revenue between two days (inclusive), over the whole ledger.
+     * Large ledgers are counted in parallel; see countSalesByProduct(long, long, int, int, int, ForkJoinPool).
+     *
+     * @param fromEpochDay The first day to count.
+     * @param toEpochDay   The last day to count.
+     * @param productId    Only count this product, or ALL_PRODUCTS.
+     * @return Units sold and revenue per product.
+     */
+    public SalesCounts countSalesByProduct(int fromEpochDay, int toEpochDay, int productId) {
+        return countSalesByProduct(0, recordCount, fromEpochDay, toEpochDay, productId, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Totals the units sold and revenue between two days (inclusive), over a range of records.
+     * <p>
+     * The range is split in half until each part holds at most PARALLEL_CHUNK_RECORDS records. Records are fixed
+     * width, so every part starts and ends on a record boundary. Each part maps its own bytes and counts them into
+     * its own SalesCounts on a pool thread, and the counts are merged as the parts finish.
+     * </p>
+     *
+     * @param firstRecord  The position of the first record to count (0 is the oldest record).
+     * @param endRecord    The position just past the last record to count.
+     * @param fromEpochDay The first day to count.
+     * @param toEpochDay   The last day to count.
+     * @param productId    Only count this product, or ALL_PRODUCTS.
+     * @param pool         The pool the parts are counted on.
+     * @return Units sold and revenue per product.
+     */
+    public SalesCounts countSalesByProduct(long firstRecord, long endRecord, int fromEpochDay, int toEpochDay,
+                                           int productId, ForkJoinPool pool) {
+        long end = Math.min(endRecord, recordCount);
+        try {
+            if (end - firstRecord <= PARALLEL_CHUNK_RECORDS) {
+                // Not worth handing to the pool
+                return countChunk(firstRecord, end, fromEpochDay, toEpochDay, productId);
+            }
+            return pool.invoke(new CountSalesTask(firstRecord, end, fromEpochDay, toEpochDay, productId));
+        } catch (UncheckedIOException e) {
+            System.err.println("Error reading sales ledger: " + e.getCause().getMessage());
+            return new SalesCounts();
+        }
+    }
+
+    /**
+     * Counts one part of the ledger on the calling thread.
+     */
+    private SalesCounts countChunk(long firstRecord, long endRecord, int fromEpochDay, int toEpochDay, int productId) {
+        SalesCounts counts = new SalesCounts();
+        if (firstRecord >= endRecord) {
+            return counts;
+        }
+        try {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + firstRecord * RECORD_BYTES, (endRecord - firstRecord) * RECORD_BYTES);
+            for (int offset = 0, end = chunk.capacity(); offset < end; offset += RECORD_BYTES) {
+                int epochDay = chunk.getInt(offset + EPOCH_DAY_OFFSET);
+                int recordProductId = chunk.getInt(offset + PRODUCT_ID_OFFSET);
+                if (epochDay >= fromEpochDay && epochDay <= toEpochDay
+                        && (productId == ALL_PRODUCTS || recordProductId == productId)) {
+                    int quantity = chunk.getInt(offset + QUANTITY_OFFSET);
+                    counts.add(recordProductId, quantity, quantity * chunk.getDouble(offset + UNIT_PRICE_OFFSET));
+                }
+            }
+        } catch (IOException e) {
+            // Thrown on whichever thread joins the task
+            throw new UncheckedIOException("Error reading sales ledger", e);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts a range of records by splitting it in two until the parts are small enough, then merging their counts.
+     */
+    private final class CountSalesTask extends RecursiveTask<SalesCounts> {
+        private static final long serialVersionUID = 1L;
+
+        private final long firstRecord;
+        private final long endRecord;
+        private final int fromEpochDay;
+        private final int toEpochDay;
+        private final int productId;
+
+        private CountSalesTask(long firstRecord, long endRecord, int fromEpochDay, int toEpochDay, int productId) {
+            this.firstRecord = firstRecord;
+            this.endRecord = endRecord;
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+            this.productId = productId;
+        }
+
+        @Override
+        protected SalesCounts compute() {
+            if (endRecord - firstRecord <= PARALLEL_CHUNK_RECORDS) {
+                return countChunk(firstRecord, endRecord, fromEpochDay, toEpochDay, productId);
+            }
+
+            long middle = firstRecord + (endRecord - firstRecord) / 2;
+            CountSalesTask firstHalf = new CountSalesTask(firstRecord, middle, fromEpochDay, toEpochDay, productId);
+            CountSalesTask secondHalf = new CountSalesTask(middle, endRecord, fromEpochDay, toEpochDay, productId);
+            firstHalf.fork();
+            SalesCounts counts = secondHalf.compute();
+            counts.addAll(firstHalf.join());
+            return counts;
+        }
+    }
+
+    /**
+     * Calls the visitor for every record in the ledger, oldest first.
+     *
+     * @param visitor Receives the fields of each record.
+     */
+    public void forEachSale(SaleVisitor visitor) {
+        forEachSale(0, visitor);
+    }
+
+    /**
+     * Calls the visitor for every record from a given position onwards, oldest first.
+     * Only the part of the file holding those records is mapped.
+     *
+     * @param firstRecord The position of the first record to visit (0 is the oldest record).
+     * @param visitor     Receives the fields of each record.
+     * @return The position just past the last record visited.
+     */
+    public long forEachSale(long firstRecord, SaleVisitor visitor) {
+        long count = recordCount;
+        try {
+            for (long first = firstRecord; first < count; first += MAX_RECORDS_PER_MAPPING) {
+                int recordsInWindow = (int) Math.min(MAX_RECORDS_PER_MAPPING, count - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * RECORD_BYTES, (long) recordsInWindow * RECORD_BYTES);
+
+                for (int offset = 0, end = recordsInWindow * RECORD_BYTES; offset < end; offset += RECORD_BYTES) {
+                    visitor.visit(window.getInt(offset + PRODUCT_ID_OFFSET), window.getInt(offset + EPOCH_DAY_OFFSET),
+                            window.getDouble(offset + UNIT_PRICE_OFFSET), window.getInt(offset + QUANTITY_OFFSET),
+                            window.getLong(offset + ORDER_ID_OFFSET));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading sales ledger: " + e.getMessage());
+            return firstRecord;
+        }
+        return Math.max(firstRecord, count);
+    }
+
+    /**
+     * @return The name of a product that has been sold, or a placeholder if it is unknown.
+     */
+    public String getProductName(int productId) {
+        return productNames.getOrDefault(productId, "Product " + productId);
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return The ID of the newest order recorded, or NO_ORDER_ID if none has been.
+     */
+    public long getLastOrderId() {
+        lock.lock();
+        try {
+            return lastOrderId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cuts off the records of an order that was only partly written before a crash.
+     *
+     * @param wholeRecords The number of whole records in the file.
+     * @return The number of records that belong to fully written orders.
+     */
+    private long dropUnfinishedOrder(long wholeRecords) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        long count = wholeRecords;
+        long unfinishedOrderId = NO_ORDER_ID;
+        while (count > 0) {
+            record.clear();
+            channel.read(record, HEADER_BYTES + (count - 1) * RECORD_BYTES);
+            long orderId = record.getLong(ORDER_ID_OFFSET);
+            if (unfinishedOrderId == NO_ORDER_ID) {
+                if (record.getInt(MORE_IN_ORDER_OFFSET) == 0) {
+                    break;
+                }
+                unfinishedOrderId = orderId;
+            } else if (orderId != unfinishedOrderId) {
+                break;
+            }
+            count--;
+        }
+
+        if (count < wholeRecords) {
+            System.err.println("Dropping " + (wholeRecords - count) + " sales of unfinished order " + unfinishedOrderId
+                    + " from the sales ledger.");
+            channel.truncate(HEADER_BYTES + count * RECORD_BYTES);
+        }
+        return count;
+    }
+
+    /**
+     * @return The order ID of the newest record, or NO_ORDER_ID if the ledger is empty.
+     */
+    private long readLastOrderId() throws IOException {
+        if (recordCount == 0) {
+            return NO_ORDER_ID;
+        }
+        ByteBuffer orderId = ByteBuffer.allocate(Long.BYTES);
+        channel.read(orderId, HEADER_BYTES + (recordCount - 1) * RECORD_BYTES + ORDER_ID_OFFSET);
+        return orderId.flip().getLong();
+    }
+
+    // --- MIGRATION ---
+
+    /**
+     * One-shot import of the old text sales file (ProductName,YYYY-MM-DD per line).
+     * Names are matched against the catalogue to find the product ID and price; names that are no longer
+     * in the catalogue get their own IDs so their sales still show up in reports. Each line becomes one unit
+     * with order ID NO_ORDER_ID. The file is streamed with SalesTextReader, and consecutive sales on the same day are written in one batch.
+     *
+     * @param salesTextPath The old sales.txt file.
+     * @param catalogue     The current products.
+     * @return The number of records imported.
+     */
+    public int importTextSales(Path salesTextPath, List<Product> catalogue) throws IOException {
+        lock.lock();
+        try {
+            Map<String, Product> productsByName = new HashMap<>();
+            for (Product product : catalogue) {
+                productsByName.putIfAbsent(product.getName(), product);
+            }
+            TextSalesImport textImport = new TextSalesImport(productsByName);
+            SalesTextReader.forEachSale(salesTextPath, textImport);
+            textImport.flush();
+            return textImport.imported;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Collects the sales read from a text file into day-by-day batches for appendRecords().
+     */
+    private final class TextSalesImport implements SalesTextReader.SaleLineVisitor {
+        private static final int MAX_BATCH_SIZE = 4096;
+
+        private final Map<String, Product> productsByName;
+        private final Map<String, Product> retiredProducts = new HashMap<>();
+        private final List<Sale> batch = new ArrayList<>();
+        private int batchEpochDay;
+        private int imported;
+
+        private TextSalesImport(Map<String, Product> productsByName) {
+            this.productsByName = productsByName;
+        }
+
+        @Override
+        public void visit(SalesTextReader.SaleLine sale) {
+            int epochDay = sale.epochDay();
+            if (epochDay == SalesTextReader.INVALID_DATE) {
+                System.err.println("Skipping invalid date in sales data: " + sale.date());
+                return;
+            }
+
+            String name = sale.name();
+            Product product = productsByName.get(name);
+            if (product == null) {
+                product = retiredProducts.computeIfAbsent(name, key -> new Product(
+                        String.valueOf(FIRST_RETIRED_PRODUCT_ID + retiredProducts.size()), key, 0.0, 0, 0));
+            }
+
+            if (epochDay != batchEpochDay || batch.size() == MAX_BATCH_SIZE) {
+                flush();
+                batchEpochDay = epochDay;
+            }
+            batch.add(new Sale(product, 1));
+            imported++;
+        }
+
+        private void flush() {
+            appendRecords(batch, batchEpochDay, NO_ORDER_ID);
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return The version in a ledger file's header, or 0 if the file does not exist or has no header.
+     */
+    private static int readVersion(Path ledgerPath) throws IOException {
+        if (!Files.exists(ledgerPath) || Files.size(ledgerPath) < HEADER_BYTES) {
+            return 0;
+        }
+        try (FileChannel file = FileChannel.open(ledgerPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            file.read(header, 0);
+            header.flip();
+            return (header.getInt() == MAGIC) ? header.getInt() : -1;
+        }
+    }
+
+    /**
+     * Rewrites a version 1 ledger (product ID, epoch day, price per unit sold) in the current format.
+     * The new file is written next to the old one and then moved over it, so a crash leaves one or the other.
+     */
+    private static void upgradeFromVersion1(Path ledgerPath) throws IOException {
+        Path tempPath = ledgerPath.resolveSibling(ledgerPath.getFileName() + ".tmp");
+        long upgraded = 0;
+        try (FileChannel oldLedger = FileChannel.open(ledgerPath, StandardOpenOption.READ);
+             FileChannel newLedger = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            newLedger.write(header);
+
+            long records = (oldLedger.size() - HEADER_BYTES) / VERSION_1_RECORD_BYTES;
+            ByteBuffer in = ByteBuffer.allocate(4096 * VERSION_1_RECORD_BYTES);
+            ByteBuffer out = ByteBuffer.allocate(4096 * RECORD_BYTES);
+            long position = HEADER_BYTES;
+            while (upgraded < records) {
+                int batch = (int) Math.min(4096, records - upgraded);
+                in.clear().limit(batch * VERSION_1_RECORD_BYTES);
+                while (in.hasRemaining()) {
+                    position += oldLedger.read(in, position);
+                }
+                in.flip();
+                out.clear();
+                for (int i = 0; i < batch; i++) {
+                    putRecord(out, in.getInt(), in.getInt(), in.getDouble(), NO_ORDER_ID, 1, false);
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    newLedger.write(out);
+                }
+                upgraded += batch;
+            }
+            newLedger.force(true);
+        }
+        Files.move(tempPath, ledgerPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Upgraded " + upgraded + " sales in " + ledgerPath.getFileName() + " to ledger version " + VERSION);
+    }
+
+    // --- PRODUCT NAMES ---
+
+    private void rememberProductName(int productId, String name) {
+        if (name.equals(productNames.put(productId, name))) {
+            return;
+        }
+        try (FileWriter fw = new FileWriter(productNamesPath.toFile(), true)) {
+            fw.write(productId + "," + name + "\n");
+        } catch (IOException e) {
+            System.err.println("Error saving sold product name: " + name);
+        }
+    }
+
+    private void loadProductNames() throws IOException {
+        if (!Files.exists(productNamesPath)) {
+            return;
+        }
+        try (BufferedReader br = Files.newBufferedReader(productNamesPath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                // Later lines win, so a renamed product shows its newest name
+                String[] parts = line.split(",", 2);
+                if (parts.length == 2) {
+                    try {
+                        productNames.put(Integer.parseInt(parts[0].trim()), parts[1]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Skipping malformed product name line: " + line);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * One product in an order being recorded.
+     *
+     * @param product  The product sold; its ID, name and price are recorded.
+     * @param quantity The number of units sold.
+     */
+    public record Sale(Product product, int quantity) {
+    }
+
+    /**
+     * Receives the fields of one ledger record without boxing them.
+     */
+    @FunctionalInterface
+    public interface SaleVisitor {
+        void visit(int productId, int epochDay, double unitPrice, int quantity, long orderId);
+    }
+}
@@ -0,0 +1,382 @@
+package org.SwEng.storeSystem;
+
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Running per-day and per-month sales totals (units sold and revenue per product), kept up to date as sales are recorded.
+ * <p>
+ * The counters are derived from the sales ledger: the rollup remembers how many ledger records it has applied
+ * and only ever reads the records after that point. The counters are checkpointed to disk together with that
+ * position, so a restart replays just the sales recorded since the last checkpoint. Generating a report is
+ * then a copy of one day's or one month's counters instead of a scan over every sale ever recorded.
+ * </p>
+ * <p>
+ * A checkpoint appends only the days and months that changed since the previous one, so its cost follows the
+ * recent sales rather than the store's whole history. Once the appended changes outgrow the last full copy of
+ * the counters, the file is rewritten from scratch.
+ * </p>
+ */
+public final class SalesRollup {
+    // Number of newly applied records that triggers a checkpoint
+    private static final int CHECKPOINT_INTERVAL = 100;
+
+    private final SalesLedger salesLedger;
+    private final Path checkpointPath;
+
+    private final Map<Integer, SalesCounts> dailyCounts = new HashMap<>();   // epoch day -> counts
+    private final Map<Integer, SalesCounts> monthlyCounts = new HashMap<>(); // month index -> counts
+    private long recordsApplied;
+    private long recordsCheckpointed;
+    // Periods changed since the last checkpoint
+    private final Set<Integer> changedDays = new HashSet<>();
+    private final Set<Integer> changedMonths = new HashSet<>();
+    // Counters the last record went to, so a run of sales on one day finds them without a lookup
+    private int cachedDay = Integer.MIN_VALUE;
+    private SalesCounts cachedDayCounts;
+    private int cachedMonthFirstDay = Integer.MIN_VALUE;
+    private int cachedMonthLastDay = Integer.MIN_VALUE;
+    private SalesCounts cachedMonthCounts;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Held while a checkpoint is written, which is done without holding the counters' lock
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private long fullCheckpointBytes;
+    private long appendedCheckpointBytes;
+
+    /**
+     * Loads the last checkpoint and catches up with any sales recorded after it.
+     *
+     * @param salesLedger    The ledger the counters are derived from.
+     * @param checkpointPath Where the counters are checkpointed.
+     */
+    public SalesRollup(SalesLedger salesLedger, Path checkpointPath) {
+        this.salesLedger = salesLedger;
+        this.checkpointPath = checkpointPath;
+
+        loadCheckpoint();
+        if (recordsApplied > salesLedger.getRecordCount()) {
+            // The checkpoint is ahead of the ledger, so it belongs to another ledger; rebuild from scratch
+            System.err.println("Sales rollup checkpoint does not match the sales ledger. Rebuilding it.");
+            dailyCounts.clear();
+            monthlyCounts.clear();
+            recordsApplied = 0;
+            // The file on disk is no longer a base the changes can be appended to
+            fullCheckpointBytes = 0;
+        }
+        catchUp();
+    }
+
+    /**
+     * Applies every ledger record recorded since the last call.
+     * Call this after appending to the ledger.
+     */
+    public void catchUp() {
+        boolean checkpointDue;
+        lock.lock();
+        try {
+            recordsApplied = salesLedger.forEachSale(recordsApplied,
+                    (productId, epochDay, unitPrice, quantity, orderId) -> apply(productId, epochDay, quantity, quantity * unitPrice));
+            checkpointDue = recordsApplied - recordsCheckpointed >= CHECKPOINT_INTERVAL;
+        } finally {
+            lock.unlock();
+        }
+
+        if (checkpointDue) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * @return Units sold and revenue per product on that day.
+     */
+    public SalesCounts getDailyCounts(LocalDate date) {
+        lock.lock();
+        try {
+            SalesCounts counts = dailyCounts.get((int) date.toEpochDay());
+            return (counts == null) ? new SalesCounts() : counts.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Units sold and revenue per product during the month containing that date.
+     */
+    public SalesCounts getMonthlyCounts(LocalDate date) {
+        lock.lock();
+        try {
+            SalesCounts counts = monthlyCounts.get(monthIndex(date));
+            return (counts == null) ? new SalesCounts() : counts.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds up the counters for every day from one date to another (inclusive). Months that lie wholly inside the
+     * range use the month's counter, and the days at either end use their own, so the cost grows with the number
+     * of months and loose days in the range rather than with the number of sales.
+     *
+     * @param from The first day.
+     * @param to   The last day.
+     * @return Units sold and revenue per product during the range.
+     */
+    public SalesCounts getRangeCounts(LocalDate from, LocalDate to) {
+        lock.lock();
+        try {
+            SalesCounts rangeCounts = new SalesCounts();
+            LocalDate day = from;
+            while (!day.isAfter(to)) {
+                SalesCounts counts;
+                LocalDate monthEnd = day.withDayOfMonth(day.lengthOfMonth());
+                if (day.getDayOfMonth() == 1 && !monthEnd.isAfter(to)) {
+                    counts = monthlyCounts.get(monthIndex(day));
+                    day = monthEnd.plusDays(1);
+                } else {
+                    counts = dailyCounts.get((int) day.toEpochDay());
+                    day = day.plusDays(1);
+                }
+                if (counts != null) {
+                    rangeCounts.addAll(counts);
+                }
+            }
+            return rangeCounts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SalesLedger getSalesLedger() {
+        return salesLedger;
+    }
+
+    private void apply(int productId, int epochDay, int quantity, double revenue) {
+        // The ledger is in date order, so the maps are only looked up when the day or the month changes
+        if (epochDay != cachedDay) {
+            cachedDay = epochDay;
+            cachedDayCounts = dailyCounts.computeIfAbsent(epochDay, day -> new SalesCounts());
+            changedDays.add(epochDay);
+        }
+        if (epochDay < cachedMonthFirstDay || epochDay > cachedMonthLastDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int month = monthIndex(date);
+            cachedMonthFirstDay = (int) date.withDayOfMonth(1).toEpochDay();
+            cachedMonthLastDay = (int) date.withDayOfMonth(date.lengthOfMonth()).toEpochDay();
+            cachedMonthCounts = monthlyCounts.computeIfAbsent(month, m -> new SalesCounts());
+            changedMonths.add(month);
+        }
+        cachedDayCounts.add(productId, quantity, revenue);
+        cachedMonthCounts.add(productId, quantity, revenue);
+    }
+
+    /**
+     * Forgets the cached counters, so the next record marks its day and month as changed again.
+     */
+    private void clearCache() {
+        cachedDay = Integer.MIN_VALUE;
+        cachedMonthFirstDay = Integer.MIN_VALUE;
+        cachedMonthLastDay = Integer.MIN_VALUE;
+        cachedDayCounts = null;
+        cachedMonthCounts = null;
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    // --- CHECKPOINTS ---
+
+    /**
+     * Saves the counters changed since the last checkpoint, so a restart only replays the sales recorded after it.
+     * The changed counters are copied under the counters' lock and written after it is released, so reports
+     * and new sales do not wait for the file.
+     * <p>
+     * Format: a full copy of the counters, being a "records,N" line then one "D,epochDay,productId,units,revenue"
+     * or "M,monthIndex,productId,units,revenue" line per counter, followed by any number of appended changes.
+     * Each change is a "changes" line, the new counters of every day and month that changed (replacing their old
+     * ones), and a "records,N" line that completes it. A change cut short by a crash has no closing line and is
+     * ignored.
+     * </p>
+     */
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            long records;
+            boolean full;
+            Map<Integer, SalesCounts> days = new HashMap<>();
+            Map<Integer, SalesCounts> months = new HashMap<>();
+            lock.lock();
+            try {
+                records = recordsApplied;
+                if (records == recordsCheckpointed && fullCheckpointBytes > 0) {
+                    return;
+                }
+                full = fullCheckpointBytes == 0 || appendedCheckpointBytes > fullCheckpointBytes;
+                copyCounters(dailyCounts, full ? dailyCounts.keySet() : changedDays, days);
+                copyCounters(monthlyCounts, full ? monthlyCounts.keySet() : changedMonths, months);
+                changedDays.clear();
+                changedMonths.clear();
+                clearCache();
+            } finally {
+                lock.unlock();
+            }
+
+            boolean written = full ? writeFullCheckpoint(records, days, months) : appendChanges(records, days, months);
+            lock.lock();
+            try {
+                if (written) {
+                    recordsCheckpointed = records;
+                } else {
+                    // Saved with the next checkpoint instead
+                    changedDays.addAll(days.keySet());
+                    changedMonths.addAll(months.keySet());
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private static void copyCounters(Map<Integer, SalesCounts> counters, Set<Integer> periods, Map<Integer, SalesCounts> copies) {
+        for (int period : periods) {
+            SalesCounts counts = counters.get(period);
+            if (counts != null) {
+                copies.put(period, counts.copy());
+            }
+        }
+    }
+
+    private boolean writeFullCheckpoint(long records, Map<Integer, SalesCounts> days, Map<Integer, SalesCounts> months) {
+        StringBuilder lines = new StringBuilder();
+        lines.append("records,").append(records).append("\n");
+        appendCounters(lines, "D", days);
+        appendCounters(lines, "M", months);
+
+        Path tempPath = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (FileWriter fw = new FileWriter(tempPath.toFile(), false)) {
+            fw.write(lines.toString());
+        } catch (IOException e) {
+            System.err.println("Error writing sales rollup checkpoint: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(tempPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fullCheckpointBytes = lines.length();
+            appendedCheckpointBytes = 0;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error replacing sales rollup checkpoint: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean appendChanges(long records, Map<Integer, SalesCounts> days, Map<Integer, SalesCounts> months) {
+        StringBuilder lines = new StringBuilder("changes\n");
+        appendCounters(lines, "D", days);
+        appendCounters(lines, "M", months);
+        lines.append("records,").append(records).append("\n");
+
+        try (FileWriter fw = new FileWriter(checkpointPath.toFile(), true)) {
+            fw.write(lines.toString());
+            appendedCheckpointBytes += lines.length();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to sales rollup checkpoint: " + e.getMessage());
+            // The file may now end in a partial change, so the next checkpoint rewrites it whole
+            fullCheckpointBytes = 0;
+            return false;
+        }
+    }
+
+    private static void appendCounters(StringBuilder lines, String type, Map<Integer, SalesCounts> counters) {
+        for (Map.Entry<Integer, SalesCounts> entry : counters.entrySet()) {
+            int period = entry.getKey();
+            entry.getValue().forEach((productId, units, revenue) ->
+                    lines.append(type).append(",").append(period).append(",").append(productId).append(",")
+                            .append(units).append(",").append(revenue).append("\n"));
+        }
+    }
+
+    private void loadCheckpoint() {
+        if (!Files.exists(checkpointPath)) {
+            return;
+        }
+
+        try (BufferedReader br = Files.newBufferedReader(checkpointPath)) {
+            String line = br.readLine();
+            if (line == null || !line.startsWith("records,")) {
+                return;
+            }
+            long records = Long.parseLong(line.substring("records,".length()).trim());
+            long bytesRead = line.length() + 1;
+            long fullBytes = 0;
+
+            // Counters of the change being read, which only replace the loaded ones once it is complete
+            Map<Integer, SalesCounts> changedDayCounts = null;
+            Map<Integer, SalesCounts> changedMonthCounts = null;
+            while ((line = br.readLine()) != null) {
+                bytesRead += line.length() + 1;
+                if (line.equals("changes")) {
+                    if (changedDayCounts == null && fullBytes == 0) {
+                        fullBytes = bytesRead - line.length() - 1;
+                    }
+                    changedDayCounts = new HashMap<>();
+                    changedMonthCounts = new HashMap<>();
+                    continue;
+                }
+                if (line.startsWith("records,")) {
+                    if (changedDayCounts == null) {
+                        throw new IOException("unexpected line \"" + line + "\"");
+                    }
+                    dailyCounts.putAll(changedDayCounts);
+                    monthlyCounts.putAll(changedMonthCounts);
+                    changedDayCounts = null;
+                    changedMonthCounts = null;
+                    records = Long.parseLong(line.substring("records,".length()).trim());
+                    continue;
+                }
+
+                String[] parts = line.split(",");
+                if (parts.length != 5) {
+                    // Written before revenue was tracked
+                    throw new IOException("unexpected line \"" + line + "\"");
+                }
+                boolean daily = parts[0].equals("D");
+                Map<Integer, SalesCounts> counters = (changedDayCounts == null)
+                        ? (daily ? dailyCounts : monthlyCounts)
+                        : (daily ? changedDayCounts : changedMonthCounts);
+                counters.computeIfAbsent(Integer.parseInt(parts[1]), period -> new SalesCounts())
+                        .add(Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), Double.parseDouble(parts[4]));
+            }
+
+            recordsApplied = records;
+            recordsCheckpointed = records;
+            if (changedDayCounts == null) {
+                fullCheckpointBytes = (fullBytes == 0) ? bytesRead : fullBytes;
+                appendedCheckpointBytes = bytesRead - fullCheckpointBytes;
+            }
+            // Otherwise the last change was cut short: leave fullCheckpointBytes at 0 so the next checkpoint
+            // rewrites the file instead of appending after the partial change
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading sales rollup checkpoint, rebuilding it: " + e.getMessage());
+            dailyCounts.clear();
+            monthlyCounts.clear();
+            recordsApplied = 0;
+            recordsCheckpointed = 0;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.SwEng.storeSystem;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Streaming reader for text sales data (ProductName,YYYY-MM-DD per line).
+ * <p>
+ * The file is walked once, a chunk at a time, without splitting it into lines or fields. Every well-formed line
+ * is handed to the visitor as a SaleLine: a cursor over the line's characters that is reused for the next line,
+ * so reading a line allocates nothing. A line's epoch day is parsed from its digits, reusing the previous line's
+ * value when the date is the same (sales are written in date order). Lines without exactly one comma are skipped.
+ * </p>
+ */
+public class SalesTextReader {
+    // Characters read from a file at a time; grown if a single line is longer
+    private static final int CHUNK_CHARS = 64 * 1024;
+    private static final int DATE_LENGTH = 10; // YYYY-MM-DD
+
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
+
+    /**
+     * Calls the visitor for every sale line in a UTF-8 file, reading it a chunk at a time.
+     *
+     * @param salesTextPath The sales text file.
+     * @param visitor       Receives each line. The SaleLine is only valid during the call.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void forEachSale(Path salesTextPath, SaleLineVisitor visitor) throws IOException {
+        SaleLine line = new SaleLine();
+        CharBuffer buffer = CharBuffer.allocate(CHUNK_CHARS);
+        try (Reader reader = Files.newBufferedReader(salesTextPath)) {
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                if (!buffer.hasRemaining()) {
+                    // The unfinished line fills the buffer; make room for the rest of it
+                    buffer = CharBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                }
+                endOfFile = reader.read(buffer) == -1;
+                buffer.flip();
+
+                // Unfinished lines are kept at the front of the buffer and completed by the next read
+                buffer.position(line.scan(buffer, buffer.limit(), endOfFile, visitor));
+                buffer.compact();
+            }
+        }
+    }
+
+    /**
+     * Receives the lines found by a SalesTextReader.
+     */
+    @FunctionalInterface
+    public interface SaleLineVisitor {
+        void visit(SaleLine sale);
+    }
+
+    /**
+     * One line of sales data, read in place. Reused for every line of a scan.
+     */
+    public static final class SaleLine {
+        private CharSequence text;
+        private int nameStart;
+        private int nameEnd;
+        private int dateStart;
+        private int dateEnd;
+
+        // The previous line's date and epoch day, so runs of the same date are parsed once
+        private final char[] cachedDate = new char[DATE_LENGTH];
+        private boolean hasCachedDate;
+        private int cachedEpochDay;
+
+        private SaleLine() {
+        }
+
+        /**
+         * Visits every complete line in text[0, end).
+         *
+         * @param lastChunk True if nothing follows the text, so a final line without a newline is complete.
+         * @return The index of the first character not visited (the start of an unfinished line).
+         */
+        private int scan(CharSequence text, int end, boolean lastChunk, SaleLineVisitor visitor) {
+            this.text = text;
+            int start = 0;
+            for (int i = 0; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    visitLine(start, i, visitor);
+                    start = i + 1;
+                }
+            }
+            if (lastChunk && start < end) {
+                visitLine(start, end, visitor);
+                start = end;
+            }
+            this.text = null;
+            return start;
+        }
+
+        private void visitLine(int start, int end, SaleLineVisitor visitor) {
+            int comma = -1;
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) == ',') {
+                    if (comma != -1) {
+                        return; // More than two fields
+                    }
+                    comma = i;
+                }
+            }
+            if (comma == -1) {
+                return; // Blank line, or the second half of \r\n
+            }
+
+            nameStart = skipSpaces(start, comma);
+            nameEnd = trimSpaces(nameStart, comma);
+            dateStart = skipSpaces(comma + 1, end);
+            dateEnd = trimSpaces(dateStart, end);
+            visitor.visit(this);
+        }
+
+        private int skipSpaces(int from, int to) {
+            while (from < to && Character.isWhitespace(text.charAt(from))) {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimSpaces(int from, int to) {
+            while (to > from && Character.isWhitespace(text.charAt(to - 1))) {
+                to--;
+            }
+            return to;
+        }
+
+        /**
+         * @return The line's date as an epoch day, or INVALID_DATE if it is not a valid YYYY-MM-DD date.
+         */
+        public int epochDay() {
+            if (dateEnd - dateStart != DATE_LENGTH) {
+                return INVALID_DATE;
+            }
+            if (hasCachedDate && sameAsCachedDate()) {
+                return cachedEpochDay;
+            }
+
+            int year = digits(dateStart, 4);
+            int month = digits(dateStart + 5, 2);
+            int day = digits(dateStart + 8, 2);
+            int epochDay = INVALID_DATE;
+            if (year >= 0 && month >= 0 && day >= 0
+                    && text.charAt(dateStart + 4) == '-' && text.charAt(dateStart + 7) == '-') {
+                try {
+                    epochDay = (int) LocalDate.of(year, month, day).toEpochDay();
+                } catch (DateTimeException e) {
+                    // Out of range month or day; reported as invalid
+                }
+            }
+
+            for (int i = 0; i < DATE_LENGTH; i++) {
+                cachedDate[i] = text.charAt(dateStart + i);
+            }
+            hasCachedDate = true;
+            cachedEpochDay = epochDay;
+            return epochDay;
+        }
+
+        private boolean sameAsCachedDate() {
+            for (int i = DATE_LENGTH - 1; i >= 0; i--) { // The day differs first
+                if (cachedDate[i] != text.charAt(dateStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         * @return The product name (trimmed). Allocates a new String.
+         */
+        public String name() {
+            return text.subSequence(nameStart, nameEnd).toString();
+        }
+
+        /**
+         * @return The date as written (trimmed). Allocates a new String.
+         */
+        public String date() {
+            return text.subSequence(dateStart, dateEnd).toString();
+        }
+
+    }
+}
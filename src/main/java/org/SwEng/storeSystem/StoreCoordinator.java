@@ -1,93 +1,125 @@
 package org.SwEng.storeSystem;
 
+import org.SwEng.accountSystem.CartDB;
+import org.SwEng.storeSystem.InventoryReservationEngine.ReservationResult;
 import org.SwEng.subsystems.general.Account;
 import org.SwEng.subsystems.general.AccountType;
+import org.SwEng.subsystems.general.Cart;
 import org.SwEng.subsystems.general.InternalSystemMessage;
+import org.SwEng.subsystems.general.MessagePayload;
 import org.SwEng.subsystems.general.Subsystems;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public class StoreCoordinator {
-    private final List<Product> productList;
+    // Maximum number of products shown for a search
+    private static final int SEARCH_RESULT_LIMIT = 20;
+    // Number of products shown per storefront page
+    private static final int PAGE_SIZE = 10;
 
     // Dependencies
     ProductEditorCoordinator productEditorCoordinator;
     private Account curUser;
     private Screen curScreen;
+    // Storefront page this session is looking at (null start means the first page)
+    private ProductRanking.RankKey pageStart;
+    private int pageNumber;
 
     public StoreCoordinator() {
-        productList = StoreDB.loadProducts();
         curUser = null;
         curScreen = Screen.storeFrontScreen;
         productEditorCoordinator = new ProductEditorCoordinator();
+        pageStart = null;
+        pageNumber = 1;
     }
 
-    public static String getProductsList(List<Product> productList) {
-        // Create a mutable copy of the list to sort without modifying the original list
-        List<Product> sortedList = new ArrayList<>(productList);
-
-        // Sort the list by 'likes' in descending order
-        sortedList.sort(Comparator.comparing(Product::getLikes).reversed());
+    /**
+     * Formats the storefront page this session is currently on.
+     * The catalogue is already ordered by likes, so only the products on the page are read.
+     *
+     * @return The formatted page of products.
+     */
+    public String getProductsPage() {
+        ProductRanking ranking = StoreDB.getProductRanking();
+        List<Product> page = ranking.getPage(pageStart, PAGE_SIZE);
 
         StringBuilder sb = new StringBuilder();
 
         // Add the header line
-        sb.append("=== Available Products (sorted by likes) ===\n\n");
-
-        for (Product product : sortedList) {
-            // Append the formatted product details
-            sb.append(product.getName()).append("\n");
-            sb.append("ID: ").append(product.getId()).append("\n");
-            sb.append("Price (M$): ").append(product.getPrice()).append("\n");
-            sb.append("# Available: ").append(product.getInventoryCount()).append("\n");
+        sb.append("=== Available Products (sorted by likes) - Page ").append(pageNumber).append(" ===\n\n");
 
-            // Append two new lines to separate this product from the next one
-            sb.append("\n");
+        if (page.isEmpty()) {
+            sb.append("No products available.\n\n");
+        }
+        for (Product product : page) {
+            appendProductDetails(sb, product);
         }
 
         return sb.toString();
     }
 
-    public static double getProductsCostByIds(List<Product> productList, List<String> validIds) {
-        // Use a HashSet for efficient O(1) lookup of valid IDs
-        Set<String> validIdSet = new HashSet<>(validIds);
+    private InternalSystemMessage showNextPage() {
+        ProductRanking.RankKey nextStart = StoreDB.getProductRanking().getNextPageStart(pageStart, PAGE_SIZE);
+        if (nextStart == null) {
+            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Already on the last page.\nHit [ENTER] to return to store.");
+        }
+        pageStart = nextStart;
+        pageNumber++;
+        return handleInput(new InternalSystemMessage(Subsystems.STORE_SYSTEM, ""));
+    }
 
-        // 1. Filter the products
-        double cost = 0;
-        for (Product product : productList) {
-            // Check if the product's ID (converted to a String) is in the set of valid IDs
-            if (validIdSet.contains(String.valueOf(product.getId()))) {
-                cost += product.getPrice();
-            }
+    private InternalSystemMessage showPreviousPage() {
+        if (pageStart == null) {
+            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Already on the first page.\nHit [ENTER] to return to store.");
         }
-        return cost;
+        // Likes may have reshuffled the products since the pages were walked forward,
+        // so going back to page 1 always snaps to the real top of the ranking
+        pageStart = (pageNumber <= 2) ? null : StoreDB.getProductRanking().getPreviousPageStart(pageStart, PAGE_SIZE);
+        pageNumber = (pageStart == null) ? 1 : pageNumber - 1;
+        return handleInput(new InternalSystemMessage(Subsystems.STORE_SYSTEM, ""));
     }
 
     /**
-     * Filters a list of Product objects based on a list of valid IDs, sorts the
-     * matching products by 'likes' in descending order, and formats them into a single string.
+     * Searches the catalogue by name and formats the best matches.
      *
-     * @param productList The complete list of available Product objects.
-     * @param validIds    A List of Strings containing the IDs (e.g., "101", "104") to include in the output.
-     * @return A single String containing the formatted details of the filtered and sorted products.
+     * @param query The words typed by the user.
+     * @return The formatted search results, most liked first.
      */
-    public static String getProductsByIdsInString(List<Product> productList, List<String> validIds) {
-        // Use a HashSet for efficient O(1) lookup of valid IDs
-        Set<String> validIdSet = new HashSet<>(validIds);
-
-        // 1. Filter the products
-        List<Product> filteredList = new ArrayList<>();
-        for (Product product : productList) {
-            // Check if the product's ID (converted to a String) is in the set of valid IDs
-            if (validIdSet.contains(String.valueOf(product.getId()))) {
+    public static String getSearchResults(String query) {
+        List<Product> results = StoreDB.searchProducts(query, SEARCH_RESULT_LIMIT);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Search results for \"").append(query).append("\" (sorted by likes) ===\n\n");
+
+        if (results.isEmpty()) {
+            sb.append("No products matched your search.\n\n");
+        }
+        for (Product product : results) {
+            appendProductDetails(sb, product);
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendProductDetails(StringBuilder sb, Product product) {
+        // Append the formatted product details
+        sb.append(product.getName()).append("\n");
+        sb.append("ID: ").append(product.getId()).append("\n");
+        sb.append("Price (M$): ").append(product.getPrice()).append("\n");
+        sb.append("# Available: ").append(product.getInventoryCount()).append("\n");
+
+        // Append two new lines to separate this product from the next one
+        sb.append("\n");
+    }
+
+    public static String getProductsByIdsInString(Cart cart) {
+        // 1. Look up each product in the cart by ID (the cart holds each product once)
+        List<Product> filteredList = new ArrayList<>(cart.size());
+        for (String id : cart.getProductIds()) {
+            Product product = StoreDB.findProduct(id);
+            if (product != null) {
                 filteredList.add(product);
             }
         }
@@ -108,6 +140,7 @@ public class StoreCoordinator {
                 sb.append(product.getName()).append("\n");
                 sb.append("ID: ").append(product.getId()).append("\n");
                 sb.append("Price (M$): ").append(product.getPrice()).append("\n");
+                sb.append("Quantity: ").append(cart.getQuantity(product.getId())).append("\n");
 
                 // Append a new line to separate this product from the next one
                 sb.append("\n");
@@ -134,32 +167,44 @@ public class StoreCoordinator {
         String[] parts = input.split(" ");
         if (parts.length == 0 || parts[0].isEmpty()) {
             //This will be our "initial return point"
-            output.append(getProductsList(productList));
+            output.append(getProductsPage());
             output.append("=============================================\n");
-            output.append("Commands:\n1. Add item to cart [id]\n2. View Cart\n3. Like Item [id]\n4. Message Store\n5. Exit Store\nInput: ");
+            output.append("Commands:\n1. Add item to cart [id] [quantity]\n2. View Cart\n3. Like Item [id]\n4. Message Store\n5. Exit Store\n6. Search [name]\n7. Next page\n8. Previous page\nInput: ");
             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
         }
 
         try {
             switch (parts[0].toLowerCase()) {
-                case "1": //Add item to cart - intake second argument
-                    if (parts.length == 2) {
+                case "1": //Add item to cart - intake second argument and an optional quantity
+                    if (parts.length == 2 || parts.length == 3) {
                         String id = parts[1];
-                        Product product = findProductById(productList, id);
-                        if (product.getInventoryCount() > 0) {
-                            if (curUser.getItemIdsInCart() != null && !curUser.getItemIdsInCart().contains(id)) {
-                                curUser.addItemToCart(parts[1]);
-                                output.append(product.getName()).append(" added to cart.\nHit [ENTER] to continue.");
-                            } else {
-                                return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Item already in cart.\nHit [ENTER] to return to store.");
-                            }
-                        } else {
+                        int quantity = (parts.length == 3) ? Integer.parseInt(parts[2]) : 1;
+                        Product product = StoreDB.findProduct(id);
+                        if (product == null) {
+                            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "No product with ID " + id + " was found.\nHit [ENTER] to return to store.");
+                        }
+                        if (quantity < 1) {
+                            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Quantity must be at least 1.\nHit [ENTER] to return to store.");
+                        }
+
+                        // The cart is keyed by the catalogue's ID, so "012" and "12" are the same entry
+                        id = product.getId();
+                        int inCart = CartDB.getCart(curUser.getEmail()).getQuantity(id);
+                        if (product.getInventoryCount() == 0) {
                             output.append("Out of product: ").append(product.getName()).append("\n");
                             output.append("Hit [ENTER] to return to store front.");
+                        } else if (inCart + quantity > product.getInventoryCount()) {
+                            output.append("Only ").append(product.getInventoryCount()).append(" of ").append(product.getName())
+                                    .append(" available (").append(inCart).append(" already in cart).\n");
+                            output.append("Hit [ENTER] to return to store front.");
+                        } else {
+                            CartDB.addItem(curUser.getEmail(), id, quantity);
+                            output.append(quantity).append(" x ").append(product.getName()).append(" added to cart (")
+                                    .append(inCart + quantity).append(" in cart).\nHit [ENTER] to continue.");
                         }
                         return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
                     } else {
-                        return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Error of command usage.\nCorrect Usage: \"1 ITEM_ID\"Hit [ENTER] to return to store.");
+                        return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Error of command usage.\nCorrect Usage: \"1 ITEM_ID\" or \"1 ITEM_ID QUANTITY\"\nHit [ENTER] to return to store.");
                     }
 
                 case "2": //View Cart
@@ -169,10 +214,9 @@ public class StoreCoordinator {
                 case "3": //Like item in store - intake second argument
                     if (parts.length == 2) {
                         String id = parts[1];
-                        Product product = findProductById(productList, id);
+                        Product product = StoreDB.findProduct(id);
                         if (product != null) {
-                            product.addLike();
-                            StoreDB.updateProduct(product);
+                            StoreDB.likeProduct(product);
                             output.append(product.getName()).append(" has been liked.\nHit [ENTER] to return to store.");
                         } else {
                             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "No product with ID " + parts[1] + " was found.\nHit [ENTER] to return to store.");
@@ -187,6 +231,15 @@ public class StoreCoordinator {
                 case "5": // Quit out of the store, sign out and reset.
                     return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "");
 
+                case "6": // Search products by name - intake the rest of the line
+                    return handleSearchCommand(input, parts);
+
+                case "7": // Show the next page of products
+                    return showNextPage();
+
+                case "8": // Show the previous page of products
+                    return showPreviousPage();
+
                 default:
                     output.append("Unknown command.\nHit [Enter] to return to store front.");
             }
@@ -204,9 +257,9 @@ public class StoreCoordinator {
         String[] parts = input.split(" ");
         if (parts.length == 0 || parts[0].isEmpty()) {
             //This will be our "initial return point"
-            output.append(getProductsList(productList));
+            output.append(getProductsPage());
             output.append("=============================================\n");
-            output.append("Commands:\n1. Modify item [id]\n2. Remove item [id]\n3. Add item\n4. Respond to customer messages\n5. Exit Store\nInput: ");
+            output.append("Commands:\n1. Modify item [id]\n2. Remove item [id]\n3. Add item\n4. Respond to customer messages\n5. Exit Store\n6. Search [name]\n7. Next page\n8. Previous page\nInput: ");
             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
         }
 
@@ -216,8 +269,8 @@ public class StoreCoordinator {
                     if (parts.length == 2) {
                         curScreen = Screen.productEditorScreen;
                         String id = parts[1];
-                        Product product = findProductById(productList, id);
-                        return productEditorCoordinator.manageProduct(message, productList, product);
+                        Product product = StoreDB.findProduct(id);
+                        return productEditorCoordinator.manageProduct(message, product);
                     } else {
                         output.append("Usage: 1 [product_id]\n");
                     }
@@ -226,11 +279,13 @@ public class StoreCoordinator {
                 case "2": //Remove item - intake second argument
                     if (parts.length == 2) {
                         String id = parts[1];
-                        Product product = findProductById(productList, id);
+                        Product product = StoreDB.findProduct(id);
                         if (product != null) {
-                            productList.remove(product);
-                            StoreDB.saveAllProducts(productList);
-                            output.append(product.getName()).append(" has been removed. Hit [ENTER] to continue.");
+                            if (StoreDB.removeProduct(product)) {
+                                output.append(product.getName()).append(" has been removed. Hit [ENTER] to continue.");
+                            } else {
+                                output.append(product.getName()).append(" has been removed from the store, but the product file could not be written. Hit [ENTER] to continue.");
+                            }
                         } else {
                             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "No product with ID " + parts[1] + " was found.\nHit [ENTER] to return to store.");
                         }
@@ -242,7 +297,7 @@ public class StoreCoordinator {
 
                 case "3": //Add item
                     curScreen = Screen.productEditorScreen;
-                    return productEditorCoordinator.manageProduct(message, productList);
+                    return productEditorCoordinator.manageProduct(message, null);
 
                 case "4": // Respond to customer messages
                     return new InternalSystemMessage(Subsystems.MESSAGING_SYSTEM, "");
@@ -251,6 +306,15 @@ public class StoreCoordinator {
                     output.append("Exiting Store Service. Hit enter to continue.\n");
                     return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "");
 
+                case "6": // Search products by name - intake the rest of the line
+                    return handleSearchCommand(input, parts);
+
+                case "7": // Show the next page of products
+                    return showNextPage();
+
+                case "8": // Show the previous page of products
+                    return showPreviousPage();
+
                 default:
                     output.append("Unknown command.\n");
             }
@@ -262,9 +326,18 @@ public class StoreCoordinator {
         return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
     }
 
+    private InternalSystemMessage handleSearchCommand(String input, String[] parts) {
+        if (parts.length < 2) {
+            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Error of command usage.\nCorrect Usage: \"6 PRODUCT_NAME\"Hit [ENTER] to return to store.");
+        }
+        // The search text may contain spaces, so take everything after the command number
+        String query = input.substring(parts[0].length()).trim();
+        return new InternalSystemMessage(Subsystems.STORE_SYSTEM, getSearchResults(query) + "Hit [ENTER] to return to store.");
+    }
+
     private InternalSystemMessage handleProductEditorScreenInput(InternalSystemMessage message) {
         InternalSystemMessage returnedMessage = productEditorCoordinator.manageProduct(message);
-        if (returnedMessage.additionalInfo != null) {
+        if (returnedMessage.payload instanceof MessagePayload.ProductSaved) {
             curScreen = Screen.storeFrontScreen;
         }
         return returnedMessage;
@@ -277,61 +350,81 @@ public class StoreCoordinator {
         if (parts.length == 0 || parts[0].isEmpty()) {
             // This will output the general cart
             output.append("=== Communicating with cart ===\n");
-            output.append(getProductsByIdsInString(productList, curUser.getItemIdsInCart()));
+            output.append(getProductsByIdsInString(CartDB.getCart(curUser.getEmail())));
             output.append("=============================================\n");
-            output.append("Commands:\n1. Remove item from cart [id]\n2. Purchase Cart\n3. Exit Cart\nInput: ");
+            output.append("Commands:\n1. Remove item from cart [id] [quantity]\n2. Purchase Cart\n3. Exit Cart\nInput: ");
             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
         }
 
         try {
             switch (parts[0].toLowerCase()) {
-                case "1": //Remove item from cart - intake second argument
+                case "1": //Remove item from cart - intake second argument and an optional quantity
                     // First checks if the user gave a second argument
-                    if (parts.length == 2) {
+                    if (parts.length == 2 || parts.length == 3) {
+                        Product product = StoreDB.findProduct(parts[1]);
+                        // Carts are keyed by the catalogue's ID; a product no longer in the catalogue is matched as typed
+                        String id = (product != null) ? product.getId() : parts[1];
                         // Check if the item is in the cart
-                        if (curUser.isItemInCart(parts[1])) {
-                            // Below process is to remove an item from the user's cart
-                            curUser.removeItemFromCart(parts[1]);
-                            String id = parts[1];
-                            Product product = findProductById(productList, id);
-                            output.append(product.getName()).append(" removed from cart.\nHit [ENTER] to continue.");
+                        if (CartDB.getCart(curUser.getEmail()).contains(id)) {
+                            // Below process is to remove an item (or some of its units) from the user's cart
+                            String name = (product != null) ? product.getName() : "Product " + id;
+                            if (parts.length == 3) {
+                                int quantity = Integer.parseInt(parts[2]);
+                                if (quantity < 1) {
+                                    return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Quantity must be at least 1.\nHit [ENTER] to return to cart.");
+                                }
+                                int left = CartDB.removeItem(curUser.getEmail(), id, quantity);
+                                output.append(name).append(left > 0 ? " reduced to " + left + " in cart." : " removed from cart.");
+                            } else {
+                                CartDB.removeAllOfItem(curUser.getEmail(), id);
+                                output.append(name).append(" removed from cart.");
+                            }
+                            output.append("\nHit [ENTER] to continue.");
                             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
                         } else {
                             // The given item ID was not found in the user's cart
-                            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "No product with ID " + parts[1] + " was found in cart.\nHit [ENTER] to return to cart.");
+                            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "No product with ID " + id + " was found in cart.\nHit [ENTER] to return to cart.");
                         }
                     } else {
                         // With no argument given, return instructions for how to use the command.
-                        return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Error of command usage.\nCorrect Usage: \"1 ITEM_ID\"Hit [ENTER] to return to cart.");
+                        return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Error of command usage.\nCorrect Usage: \"1 ITEM_ID\" or \"1 ITEM_ID QUANTITY\"\nHit [ENTER] to return to cart.");
                     }
 
                 case "2": //Buy items in cart
-                    if (curUser.getItemIdsInCart().isEmpty()) {
+                    Cart cart = CartDB.getCart(curUser.getEmail());
+                    if (cart.isEmpty()) {
                         return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Cart is empty. Unable to checkout.\nHit [ENTER] to return to cart.");
                     } else {
 
-                        //Check if all items in the cart can be purchased
-                        // AKA check if the inventory amount for each item is > 1
-                        if (removeUnavailableItemsFromCart(productList, curUser.getItemIdsInCart())) {
-                            output.append("Items in your cart were no longer available for purchase.\n");
+                        // Take the stock for the whole cart in one step. Other sessions share the catalogue,
+                        // so if any item is short, nothing is taken and the short items leave the cart.
+                        ReservationResult reservation = StoreDB.reserveCart(cart);
+                        if (!reservation.reserved() && reservation.shortItemIds().isEmpty()) {
+                            // The stock was there, but taking it could not be saved, so nothing was taken
+                            return new InternalSystemMessage(Subsystems.STORE_SYSTEM, "Your order could not be started. Please try again.\nHit [ENTER] to return to cart.");
+                        }
+                        if (!reservation.reserved()) {
+                            output.append("Items in your cart were no longer available in the quantity requested:\n");
+                            for (String id : reservation.shortItemIds()) {
+                                Product product = StoreDB.findProduct(id);
+                                output.append("- ").append(product != null ? product.getName() : "Product " + id).append("\n");
+                            }
                             output.append("They have been automatically removed.\n");
                             output.append("Hit enter to return to cart.");
+                            for (String id : reservation.shortItemIds()) {
+                                CartDB.removeAllOfItem(curUser.getEmail(), id);
+                            }
                             return new InternalSystemMessage(Subsystems.STORE_SYSTEM, output.toString());
                         }
 
-                        // Checkout checks are finished. Remaining code is to save and transfer to payment system.
+                        // Checkout checks are finished. Remaining code is to transfer to payment system.
+                        // The sale is recorded once payment is complete, when the order is placed.
                         curScreen = Screen.storeFrontScreen;
 
-                        //Update all the items in the inventory.txt file and StoreCoordinator
-                        decrementCartItems(productList, curUser.getItemIdsInCart());
-                        StoreDB.saveAllProducts(productList);
-
-                        //Record the items that have been sold the sales.txt file.
-                        StoreDB.recordSales(productList, curUser.getItemIdsInCart());
-
-                        double costOfItems = getProductsCostByIds(productList, curUser.getItemIdsInCart());
-                        // Note the "buyCart" message signals the account system to start the cart buying process
-                        return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "buyCart", Double.toString(costOfItems));
+                        double costOfItems = StoreDB.getCartCost(cart);
+                        // The CheckoutCart command starts the account system's cart buying process
+                        return new InternalSystemMessage(Subsystems.ACCOUNT_SYSTEM, "",
+                                new MessagePayload.CheckoutCart(StoreDB.getOrderItems(cart), costOfItems, cart.getTotalUnits()));
                     }
 
                 case "3": //Exit cart
@@ -351,88 +444,17 @@ public class StoreCoordinator {
 
     public void setCurUser(Account user) {
         curUser = user;
-    }
-
-    public Account getUserAccount() {
-        Account tempUser = curUser;
-        curUser = null;
-        return tempUser;
+        // A newly entered store starts on the first page
+        if (user != null) {
+            pageStart = null;
+            pageNumber = 1;
+        }
     }
 
     public Boolean isCustomerLoggedIn() {
         return curUser != null;
     }
 
-    private Product findProductById(List<Product> productList, String idToFind) {
-
-        for (Product product : productList) {
-            // Check if the current product's ID matches the target ID
-            if (Objects.equals(product.getId(), idToFind)) {
-                return product; // Found the product, return it immediately
-            }
-        }
-
-        // If the loop finishes without finding a product, return null
-        return null;
-    }
-
-    /**
-     * Decrements the inventory counts for all products whose IDs are in the provided list.
-     * It efficiently handles the update by first mapping the List<Product> to a
-     * Map<String, Product> using the product ID as the key.
-     *
-     * @param productList  The master list of Product objects.
-     * @param purchasedIds The list of product IDs for which inventory should be decremented.
-     */
-    public void decrementCartItems(List<Product> productList, List<String> purchasedIds) {
-
-        // 1. Create a map for quick lookups using the product ID as the key.
-        Map<String, Product> productMap = productList.stream()
-                .collect(Collectors.toMap(Product::getId, Function.identity()));
-
-        // 2. Iterate through the purchased IDs and update the inventory.
-        for (String id : purchasedIds) {
-            Product product = productMap.get(id);
-
-            // Check if the product exists and has a positive inventory count.
-            if (product != null) {
-                int currentCount = product.getInventoryCount();
-
-                // Only decrement if the count is greater than zero
-                if (currentCount > 0) {
-                    product.setInventoryCount(currentCount - 1);
-                }
-            }
-        }
-    }
-
-    public String getSalesData() {
-        return StoreDB.getSalesData();
-    }
-
-    public boolean removeUnavailableItemsFromCart(List<Product> productList, List<String> itemIdsInCart) {
-        // 1. Create a Map for O(1) lookup speed.
-        // This prevents nested loops, making the check much faster.
-        Map<String, Product> productMap = productList.stream()
-                .collect(Collectors.toMap(Product::getId, Function.identity()));
-
-        // 2. removeIf iterates through the cart and removes items that match the condition.
-        // It returns 'true' if any elements were removed, 'false' otherwise.
-        return itemIdsInCart.removeIf(id -> {
-            Product product = productMap.get(id);
-
-            // Condition A: The product no longer exists in the productList (deleted from store)
-            if (product == null) {
-                return true; // Remove from cart
-            }
-
-            // Condition B: The product exists, but inventory is 0 or less
-            return product.getInventoryCount() < 1; // Remove from cart
-
-            // Otherwise, keep the item
-        });
-    }
-
     enum Screen {
         storeFrontScreen,
         cartScreen,
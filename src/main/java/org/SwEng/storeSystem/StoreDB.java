@@ -1,17 +1,30 @@
 package org.SwEng.storeSystem;
 
+import org.SwEng.subsystems.general.Cart;
+import org.SwEng.subsystems.general.Order;
+
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 public class StoreDB {
@@ -24,36 +37,350 @@ public class StoreDB {
     private static final String SALE_FILE_NAME = "sales.txt";
     private static final String SALE_FILE_PATH = "src/main/java/org/SwEng/storeSystem/dataFiles/" + SALE_FILE_NAME;
 
-    // --- PRODUCT OPERATIONS (WRITE) ---
+    // Define the file paths for the binary sales ledger, which replaced sales.txt
+    private static final String SALES_LEDGER_FILE_NAME = "sales.bin";
+    private static final String SALES_LEDGER_FILE_PATH = "src/main/java/org/SwEng/storeSystem/dataFiles/" + SALES_LEDGER_FILE_NAME;
+    private static final String SOLD_PRODUCT_NAMES_FILE_NAME = "salesProducts.txt";
+    private static final String SOLD_PRODUCT_NAMES_FILE_PATH = "src/main/java/org/SwEng/storeSystem/dataFiles/" + SOLD_PRODUCT_NAMES_FILE_NAME;
+
+    // Define the file path for the checkpoint of the daily/monthly sale counters
+    private static final String SALES_ROLLUP_FILE_NAME = "salesRollup.txt";
+    private static final String SALES_ROLLUP_FILE_PATH = "src/main/java/org/SwEng/storeSystem/dataFiles/" + SALES_ROLLUP_FILE_NAME;
+
+    // Opened on first use; salesLock is held while opening them and while orders are recorded, never by readers
+    private static volatile SalesLedger salesLedger;
+    private static volatile SalesRollup salesRollup;
+    private static final ReentrantLock salesLock = new ReentrantLock();
+    // How far into the order log the sales ledger has been brought up to date
+    private static long orderLogPosition;
+
+    // Catalogue shared by every store session, loaded from the product file on first use. Published once, so
+    // lookups, cart costing and reservations read it without a lock; catalogueLock serialises the changes to it.
+    private static volatile Catalogue catalogue;
+    private static final ReentrantLock catalogueLock = new ReentrantLock();
+    private static final InventoryReservationEngine reservations = new InventoryReservationEngine();
+    // Returned by reserveCart when the stock could be taken but not saved
+    private static final InventoryReservationEngine.ReservationResult NOT_SAVED =
+            new InventoryReservationEngine.ReservationResult(false, List.of());
+
+    // How long catalogue changes wait for the product file: sync, group (default) or async
+    private static final String PRODUCT_DURABILITY_PROPERTY = "emt.productDurability";
+
+    // How often liked products are re-ranked and their like counts saved
+    private static final long LIKE_FLUSH_INTERVAL_MILLIS = 1000;
+    // Products liked since the last like flush
+    private static final Set<Product> likedProducts = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService likeFlushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // --- CATALOGUE OPERATIONS ---
 
     /**
-     * Saves a single product to the data file.
-     * The data is appended to the file in the format: id,name,price,likes,inventoryCount
+     * The catalogue and the views kept in step with it by the catalogue operations below.
      *
-     * @param product The Product object to save.
+     * @param products     The products, safe to iterate while other sessions modify them.
+     * @param ranking      The products ordered by likes.
+     * @param searchIndex  Name search over the products.
+     * @param productTable Int-keyed, column-oriented view used for lookups, cart costing and stock reservations.
+     * @param writer       Batches catalogue changes into as few product file writes as possible.
      */
-    public static void saveProduct(Product product) {
-        try (FileWriter fw = new FileWriter(PRODUCT_FILE_PATH, true)) {
-            String dataLine = product.getId() + "," +
-                    product.getName() + "," +
-                    product.getPrice() + "," +
-                    product.getLikes() + "," +
-                    product.getInventoryCount() + "\n";
-            fw.write(dataLine);
-        } catch (IOException e) {
-            System.err.println("Error saving product: " + product.getName());
-            e.printStackTrace();
+    private record Catalogue(List<Product> products, ProductRanking ranking, ProductSearchIndex searchIndex,
+                             ProductTable productTable, ProductWriteBehind writer) {
+    }
+
+    /**
+     * Returns the product catalogue shared by every store session.
+     * The list is safe to iterate while other sessions modify it; modify it only through the
+     * add/replace/remove operations below so the product file stays in step.
+     *
+     * @return The shared list of products.
+     */
+    public static List<Product> getCatalogue() {
+        return catalogue().products();
+    }
+
+    private static Catalogue catalogue() {
+        Catalogue loaded = catalogue;
+        if (loaded != null) {
+            return loaded;
+        }
+
+        catalogueLock.lock();
+        try {
+            if (catalogue == null) {
+                List<Product> products = new CopyOnWriteArrayList<>(loadProducts());
+                ProductRanking ranking = new ProductRanking(products);
+                ProductWriteBehind writer = new ProductWriteBehind(() -> writeProductFile(products), getProductDurabilityMode(),
+                        ProductWriteBehind.DEFAULT_FLUSH_INTERVAL_MILLIS, ProductWriteBehind.DEFAULT_MAX_BATCH_SIZE);
+                catalogue = new Catalogue(products, ranking, new ProductSearchIndex(products, ranking), new ProductTable(products), writer);
+
+                likeFlushExecutor.scheduleWithFixedDelay(StoreDB::flushLikes,
+                        LIKE_FLUSH_INTERVAL_MILLIS, LIKE_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                // Likes not flushed yet, and changes still waiting in ASYNC mode, are written before the program exits
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    flushLikes();
+                    if (!writer.flush()) {
+                        System.err.println("Catalogue changes could not be saved before exiting.");
+                    }
+                }));
+            }
+            return catalogue;
+        } finally {
+            catalogueLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the catalogue ordered by likes, used to show the storefront one page at a time.
+     *
+     * @return The shared likes ranking.
+     */
+    public static ProductRanking getProductRanking() {
+        return catalogue().ranking();
+    }
+
+    /**
+     * Searches the catalogue by product name. Every word of the query must start a word of the name.
+     *
+     * @param query The words to search for.
+     * @param limit The maximum number of results.
+     * @return The matching products, most liked first.
+     */
+    public static List<Product> searchProducts(String query, int limit) {
+        return catalogue().searchIndex().search(query, limit);
+    }
+
+    /**
+     * Creates a product with the next free ID, adds it to the catalogue and saves it.
+     *
+     * @return The newly created product, or null if it was added but the product file could not be written.
+     */
+    public static Product createProduct(String name, double price, int likes, int inventoryCount) {
+        Catalogue current = catalogue();
+        Product product;
+        catalogueLock.lock();
+        try {
+            List<Product> products = current.products();
+            product = new Product(generateUniqueId(products), name, price, likes, inventoryCount);
+            reservations.runExclusive(() -> {
+                products.add(product);
+                current.productTable().rebuild(products);
+            });
+            current.searchIndex().add(product);
+            current.ranking().add(product);
+        } finally {
+            catalogueLock.unlock();
+        }
+        return saveCatalogue() ? product : null;
+    }
+
+    /**
+     * Swaps a catalogue product for its edited version and saves the catalogue.
+     *
+     * @param oldProduct     The product currently in the catalogue.
+     * @param updatedProduct The edited product, which keeps the same ID.
+     * @return False if the product file could not be written.
+     */
+    public static boolean replaceProduct(Product oldProduct, Product updatedProduct) {
+        Catalogue current = catalogue();
+        catalogueLock.lock();
+        try {
+            List<Product> products = current.products();
+            int index = products.indexOf(oldProduct);
+            // Swap the product while no checkout is reserving stock from it
+            reservations.runExclusive(() -> {
+                if (index >= 0) {
+                    products.set(index, updatedProduct);
+                } else {
+                    products.add(updatedProduct);
+                }
+                current.productTable().rebuild(products);
+            });
+            if (index >= 0) {
+                current.searchIndex().replace(oldProduct, updatedProduct);
+                current.ranking().replace(oldProduct, updatedProduct);
+            } else {
+                current.searchIndex().add(updatedProduct);
+                current.ranking().add(updatedProduct);
+            }
+        } finally {
+            catalogueLock.unlock();
+        }
+        return saveCatalogue();
+    }
+
+    /**
+     * Removes a product from the catalogue and saves the catalogue.
+     *
+     * @param product The product to remove.
+     * @return true if the product was in the catalogue and the product file was written.
+     */
+    public static boolean removeProduct(Product product) {
+        Catalogue current = catalogue();
+        boolean removed;
+        catalogueLock.lock();
+        try {
+            List<Product> products = current.products();
+            removed = products.contains(product);
+            if (removed) {
+                reservations.runExclusive(() -> {
+                    products.remove(product);
+                    current.productTable().rebuild(products);
+                });
+                current.searchIndex().remove(product);
+                current.ranking().remove(product);
+            }
+        } finally {
+            catalogueLock.unlock();
+        }
+        return removed && saveCatalogue();
+    }
+
+    /**
+     * Adds a like to a catalogue product.
+     * This takes no lock and does no I/O: the product is re-ranked and its likes saved by the next like flush.
+     *
+     * @param product The product being liked.
+     */
+    public static void likeProduct(Product product) {
+        product.addLike();
+        likedProducts.add(product);
+    }
+
+    /**
+     * Moves every product liked since the last flush to its new place in the ranking and saves the catalogue
+     * once for all of them. Runs every LIKE_FLUSH_INTERVAL_MILLIS and before the program exits.
+     */
+    public static void flushLikes() {
+        if (likedProducts.isEmpty()) {
+            return;
+        }
+
+        Catalogue current = catalogue();
+        catalogueLock.lock();
+        try {
+            for (Iterator<Product> iterator = likedProducts.iterator(); iterator.hasNext(); ) {
+                Product product = iterator.next();
+                // Remove before re-ranking, so a like added meanwhile marks the product again
+                iterator.remove();
+                if (current.productTable().getProduct(product.getId()) == product) {
+                    current.ranking().reposition(product);
+                    current.productTable().refreshLikes(product);
+                }
+            }
+        } finally {
+            catalogueLock.unlock();
+        }
+        saveCatalogue();
+    }
+
+    /**
+     * Takes stock for every item in a cart in one step, or none at all if any product is short,
+     * then saves the new inventory counts with a single write.
+     * Checkouts whose carts share no products do not wait on each other.
+     * If the new counts cannot be written, the stock is put back and the cart is not reserved (with no short items).
+     *
+     * @param cart The cart, holding the quantity wanted of each product.
+     * @return The outcome, including which products were short if the cart could not be reserved.
+     */
+    public static InventoryReservationEngine.ReservationResult reserveCart(Cart cart) {
+        ProductTable productTable = catalogue().productTable();
+        InventoryReservationEngine.ReservationResult result = reservations.reserve(productTable, cart);
+        if (result.reserved() && !saveCatalogue()) {
+            reservations.release(productTable, cart);
+            return NOT_SAVED;
         }
+        return result;
+    }
+
+    /**
+     * Puts back the stock reserved for a cart whose order was not placed, then saves the inventory counts.
+     *
+     * @param cart The cart that was reserved, with the same quantities.
+     */
+    public static void releaseCart(Cart cart) {
+        reservations.release(catalogue().productTable(), cart);
+        saveCatalogue();
     }
 
     /**
-     * Overwrites the entire file with a new list of products.
-     * Used internally by updateProduct.
+     * Looks up a catalogue product by its ID.
+     *
+     * @param productId The product's ID (e.g. "103").
+     * @return The product, or null if no catalogue product has that ID.
+     */
+    public static Product findProduct(String productId) {
+        return catalogue().productTable().getProduct(productId);
+    }
+
+    /**
+     * Adds up the current price of every unit in a cart without allocating.
+     *
+     * @param cart The cart, holding the quantity wanted of each product.
+     * @return The total price. Products no longer in the catalogue cost nothing.
+     */
+    public static double getCartCost(Cart cart) {
+        return catalogue().productTable().getCartCost(cart);
+    }
+
+    private static String generateUniqueId(List<Product> productList) {
+        // 1. Collect all existing IDs into a Set for fast O(1) lookup
+        Set<String> existingIds = productList.stream()
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+
+        // 2. Iterate from 0 to 999 to find the first available 3-digit ID
+        for (int i = 11; i < 1000; i++) {
+            // Format as 3 digits with leading zeros (e.g., 5 becomes "005")
+            String candidateId = String.format("%03d", i);
+
+            if (!existingIds.contains(candidateId)) {
+                return candidateId;
+            }
+        }
+
+        throw new IllegalStateException("Error: Maximum product limit (1000) reached. Cannot generate new ID.");
+    }
+
+    // --- PRODUCT OPERATIONS (WRITE) ---
+
+    /**
+     * Reports a catalogue change to the product writer, which saves it with the next batch.
+     * Depending on the durability mode this waits for the write (sync, group) or returns straight away (async).
+     * Must not be called while holding the catalogue lock, so other sessions can keep changing the catalogue
+     * while a batch collects.
+     *
+     * @return False if the write covering the change failed.
+     */
+    private static boolean saveCatalogue() {
+        return getProductWriter().write();
+    }
+
+    /**
+     * Returns the product writer, so its flush metrics can be read.
+     *
+     * @return The shared product writer.
+     */
+    public static ProductWriteBehind getProductWriter() {
+        return catalogue().writer();
+    }
+
+    /**
+     * Overwrites the product file with the given products, in the format: id,name,price,likes,inventoryCount.
+     * The file is written to a temporary file first, forced to disk and moved into place, so a crash never leaves
+     * it half written. Only called by the product writer, one batch at a time.
      *
      * @param products The complete list of products to save.
+     * @throws IOException If the file could not be written; the old file is then left as it was.
      */
-    public static void saveAllProducts(List<Product> products) {
-        try (FileWriter fw = new FileWriter(PRODUCT_FILE_PATH, false)) {
+    private static void writeProductFile(List<Product> products) throws IOException {
+        Path productPath = Paths.get(PRODUCT_FILE_PATH);
+        Path tempPath = Paths.get(PRODUCT_FILE_PATH + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempPath.toFile(), false);
+             Writer fw = new BufferedWriter(new OutputStreamWriter(out))) {
             for (Product product : products) {
                 String dataLine = product.getId() + "," +
                         product.getName() + "," +
@@ -62,73 +389,145 @@ public class StoreDB {
                         product.getInventoryCount() + "\n";
                 fw.write(dataLine);
             }
-        } catch (IOException e) {
-            System.err.println("Error saving all products.");
-            e.printStackTrace();
+            fw.flush();
+            out.getFD().sync();
         }
+        Files.move(tempPath, productPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     /**
-     * Finds and replaces a product based on its ID.
-     *
-     * @param updatedProduct The new version of the product to save.
-     * @return true if the product was found and updated, false otherwise.
+     * Reads the durability mode for product writes from the emt.productDurability system property.
      */
-    public static boolean updateProduct(Product updatedProduct) {
-        List<Product> products = loadProducts();
-        boolean found = false;
+    private static ProductWriteBehind.DurabilityMode getProductDurabilityMode() {
+        String mode = System.getProperty(PRODUCT_DURABILITY_PROPERTY, "group");
+        try {
+            return ProductWriteBehind.DurabilityMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + PRODUCT_DURABILITY_PROPERTY + " \"" + mode + "\", using group.");
+            return ProductWriteBehind.DurabilityMode.GROUP;
+        }
+    }
+
+    // --- SALES OPERATIONS (WRITE) ---
 
-        for (int i = 0; i < products.size(); i++) {
-            if (Objects.equals(products.get(i).getId(), updatedProduct.getId())) {
-                products.set(i, updatedProduct);
-                found = true;
-                break;
+    /**
+     * Lists the products in a cart with their current names and prices, ready to be placed as an order.
+     * Products no longer in the catalogue are left out.
+     *
+     * @param cart The cart being bought.
+     * @return One item per product in the cart.
+     */
+    public static List<Order.Item> getOrderItems(Cart cart) {
+        List<Order.Item> items = new ArrayList<>(cart.size());
+        for (Map.Entry<String, Integer> entry : cart.getQuantities().entrySet()) {
+            Product product = findProduct(entry.getKey());
+            if (product != null) {
+                items.add(new Order.Item(product.getId(), product.getName(), entry.getValue(), product.getPrice()));
             }
         }
+        return items;
+    }
 
-        if (found) {
-            saveAllProducts(products); // Overwrite the file with the updated list
+    /**
+     * Records the orders placed since the last call in the sales ledger and the daily/monthly counters.
+     * The order log is read from where the last call stopped rather than trusting the order checkouts finish in,
+     * so no order is missed, even one whose notice was never delivered.
+     * Runs on the store subsystem's bus thread after each checkout, without the catalogue lock, so sessions
+     * keep browsing and reserving stock meanwhile.
+     */
+    public static void recordNewOrders() {
+        SalesLedger ledger = getSalesLedger();
+        SalesRollup rollup = getSalesRollup();
+        salesLock.lock();
+        try {
+            orderLogPosition = OrderLog.forEachFrom(orderLogPosition, order -> recordOrder(ledger, order));
+        } finally {
+            salesLock.unlock();
         }
-        return found;
+        // Fold the new records into the daily/monthly counters
+        rollup.catchUp();
     }
 
-    // --- SALES OPERATIONS (WRITE) ---
+    /**
+     * Records one order from the log in the ledger. Orders the ledger already holds are accepted without being
+     * recorded again; the log is in order ID order, so these are only ever the orders before the first new one.
+     *
+     * @return False if the order could not be recorded, so reading stops and it is tried again next time.
+     */
+    private static boolean recordOrder(SalesLedger ledger, Order order) {
+        if (order.orderId() <= ledger.getLastOrderId()) {
+            return true;
+        }
+        List<SalesLedger.Sale> sales = new ArrayList<>(order.items().size());
+        for (Order.Item item : order.items()) {
+            Product soldProduct = new Product(item.productId(), item.productName(), item.unitPrice(), 0, 0);
+            sales.add(new SalesLedger.Sale(soldProduct, item.quantity()));
+        }
+        return ledger.recordOrder(order.orderId(), sales, (int) order.placedAt().toLocalDate().toEpochDay());
+    }
+
+    // --- SALES OPERATIONS (READ) ---
 
     /**
-     * Records a record for all products whose IDs are in the provided list.
-     * It efficiently handles the update by first mapping the List<Product> to a
-     * Map<String, Product> using the product ID as the key.
-     * <p>
-     * Records the sales in the form of: ProductName,DateSold\n
+     * Returns the sales ledger, opening it on first use.
+     * The first time the ledger is created, the sales in the old sales.txt file are imported into it.
+     * Orders in the order log that the ledger does not have yet (e.g. after a crash) are then recorded in it.
      *
-     * @param productList  The master list of Product objects.
-     * @param purchasedIds The list of product IDs for which inventory should be decremented.
+     * @return The shared sales ledger.
      */
-    public static void recordSales(List<Product> productList, List<String> purchasedIds) {
-        // 1. Create a map for quick lookups using the product ID as the key.
-        Map<String, Product> productMap = productList.stream()
-                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    public static SalesLedger getSalesLedger() {
+        SalesLedger opened = salesLedger;
+        if (opened != null) {
+            return opened;
+        }
 
-        String today = LocalDate.now().toString(); // Format YYYY-MM-DD
+        salesLock.lock();
+        try {
+            if (salesLedger != null) {
+                return salesLedger;
+            }
+            Path ledgerPath = Paths.get(SALES_LEDGER_FILE_PATH);
+            boolean needsMigration = !Files.exists(ledgerPath) && Files.exists(Paths.get(SALE_FILE_PATH));
+            try {
+                SalesLedger ledger = new SalesLedger(ledgerPath, Paths.get(SOLD_PRODUCT_NAMES_FILE_PATH));
+                if (needsMigration) {
+                    int imported = ledger.importTextSales(Paths.get(SALE_FILE_PATH), getCatalogue());
+                    System.out.println("Imported " + imported + " sales from " + SALE_FILE_NAME + " into " + SALES_LEDGER_FILE_NAME);
+                }
 
-        try (FileWriter fw = new FileWriter(SALE_FILE_PATH, true)) {
-            for (String id : purchasedIds) {
-                fw.write(productMap.get(id).getName() + "," + today + "\n");
+                orderLogPosition = OrderLog.forEachFrom(0, order -> recordOrder(ledger, order));
+                OrderLog.continueAfter(ledger.getLastOrderId());
+                // Published only once it has caught up with the order log
+                salesLedger = ledger;
+                return ledger;
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open sales ledger: " + SALES_LEDGER_FILE_PATH, e);
             }
-        } catch (IOException e) {
-            System.err.println("Error recording sales.");
-            e.printStackTrace();
+        } finally {
+            salesLock.unlock();
         }
     }
 
-    // --- SALES OPERATIONS (READ) ---
+    /**
+     * Returns the running daily/monthly sale counters, loading their checkpoint on first use.
+     *
+     * @return The shared sales rollup.
+     */
+    public static SalesRollup getSalesRollup() {
+        SalesRollup opened = salesRollup;
+        if (opened != null) {
+            return opened;
+        }
 
-    public static String getSalesData() {
+        SalesLedger ledger = getSalesLedger();
+        salesLock.lock();
         try {
-            return new String(Files.readAllBytes(Paths.get(SALE_FILE_PATH)));
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
-            return null;
+            if (salesRollup == null) {
+                salesRollup = new SalesRollup(ledger, Paths.get(SALES_ROLLUP_FILE_PATH));
+            }
+            return salesRollup;
+        } finally {
+            salesLock.unlock();
         }
     }
 
@@ -1,6 +1,5 @@
 package org.SwEng.subsystems.general;
 
-import java.util.List;
 import java.util.Objects;
 
 public class Account {
@@ -10,29 +9,26 @@ public class Account {
     private String creditCardNumber; // New Field
     private String debitCardNumber;  // New Field
     private String address;          // New Field
-    private final List<String> itemIdsInCart;
 
     // Main Updated Constructor with all fields
     public Account(String email, String password, AccountType accountType,
-                   String creditCardNumber, String debitCardNumber, String address,
-                   List<String> itemIds) {
+                   String creditCardNumber, String debitCardNumber, String address) {
         this.email = email;
         this.password = password;
         this.accountType = accountType;
         this.creditCardNumber = creditCardNumber;
         this.debitCardNumber = debitCardNumber;
         this.address = address;
-        this.itemIdsInCart = itemIds;
     }
 
     public Account(String email, String password, AccountType accountType) {
         this.email = email;
         this.password = password;
         this.accountType = accountType;
-        this.creditCardNumber = null;
-        this.debitCardNumber = null;
-        this.address = null;
-        this.itemIdsInCart = null;
+        // Empty values match what the account store reads back for a freshly created account
+        this.creditCardNumber = "";
+        this.debitCardNumber = "";
+        this.address = "";
     }
 
     // Getters and Setters
@@ -104,26 +100,6 @@ public class Account {
         this.address = address;
     }
 
-    public List<String> getItemIdsInCart() {
-        return itemIdsInCart;
-    }
-
-    public Boolean isItemInCart(String itemId) {
-        return itemIdsInCart.contains(itemId);
-    }
-
-    public void addItemToCart(String itemId) {
-        itemIdsInCart.add(itemId);
-    }
-
-    public void removeItemFromCart(String itemId) {
-        itemIdsInCart.remove(itemId);
-    }
-
-    public void clearCart() {
-        itemIdsInCart.clear();
-    }
-
     @Override
     public boolean equals(Object o) {
         // 1. Check if it's the exact same object
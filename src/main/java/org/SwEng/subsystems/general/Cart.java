@@ -0,0 +1,117 @@
+package org.SwEng.subsystems.general;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A customer's cart: each product ID in it and how many units of that product are wanted.
+ * <p>
+ * One entry is kept per product, so adding, removing and checking for a product take the same time however
+ * large the cart is. Products are kept in the order they were first added. Not thread-safe; a cart belongs to
+ * the one session that is logged in to its account.
+ * </p>
+ */
+public class Cart {
+    // Product ID -> units wanted (always at least 1)
+    private final LinkedHashMap<String, Integer> quantitiesById = new LinkedHashMap<>();
+    private int totalUnits;
+
+    /**
+     * Adds units of a product, on top of any already in the cart.
+     *
+     * @param productId The product's ID.
+     * @param quantity  The number of units to add (must be at least 1).
+     * @return The number of units of the product now in the cart.
+     */
+    public int add(String productId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        totalUnits += quantity;
+        return quantitiesById.merge(productId, quantity, Integer::sum);
+    }
+
+    /**
+     * Removes units of a product. Removing as many units as are in the cart (or more) removes the product.
+     *
+     * @param productId The product's ID.
+     * @param quantity  The number of units to remove (must be at least 1).
+     * @return The number of units of the product left in the cart.
+     */
+    public int remove(String productId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        Integer current = quantitiesById.get(productId);
+        if (current == null) {
+            return 0;
+        }
+        if (quantity >= current) {
+            removeAll(productId);
+            return 0;
+        }
+        quantitiesById.put(productId, current - quantity);
+        totalUnits -= quantity;
+        return current - quantity;
+    }
+
+    /**
+     * Removes a product from the cart, whatever its quantity.
+     */
+    public void removeAll(String productId) {
+        Integer removed = quantitiesById.remove(productId);
+        if (removed != null) {
+            totalUnits -= removed;
+        }
+    }
+
+    public boolean contains(String productId) {
+        return quantitiesById.containsKey(productId);
+    }
+
+    /**
+     * @return The number of units of a product in the cart (0 if it is not in the cart).
+     */
+    public int getQuantity(String productId) {
+        return quantitiesById.getOrDefault(productId, 0);
+    }
+
+    /**
+     * @return The product IDs in the cart, in the order they were added.
+     */
+    public Set<String> getProductIds() {
+        return Collections.unmodifiableSet(quantitiesById.keySet());
+    }
+
+    /**
+     * @return A read-only view of each product ID in the cart and its quantity, in the order they were added.
+     */
+    public Map<String, Integer> getQuantities() {
+        return Collections.unmodifiableMap(quantitiesById);
+    }
+
+    /**
+     * @return The number of different products in the cart.
+     */
+    public int size() {
+        return quantitiesById.size();
+    }
+
+    /**
+     * @return The number of units in the cart, across every product.
+     */
+    public int getTotalUnits() {
+        return totalUnits;
+    }
+
+    public boolean isEmpty() {
+        return quantitiesById.isEmpty();
+    }
+
+    public void clear() {
+        quantitiesById.clear();
+        totalUnits = 0;
+    }
+}
@@ -0,0 +1,116 @@
+package org.SwEng.subsystems.general;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to int values.
+ * <p>
+ * Keys and values live in two plain int arrays, so lookups and updates never box or allocate
+ * (apart from growing the arrays). Integer.MIN_VALUE is reserved to mark empty slots and cannot be used as a key.
+ * Not thread-safe.
+ * </p>
+ */
+public class IntIntHashMap {
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize The number of keys expected, used to size the arrays up front.
+     */
+    public IntIntHashMap(int expectedSize) {
+        // Keep the table at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return The value stored for key, or defaultValue if the key is absent.
+     */
+    public int get(int key, int defaultValue) {
+        if (key == EMPTY_KEY) {
+            return defaultValue;
+        }
+        int slot = findSlot(key);
+        return (keys[slot] == key) ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return key != EMPTY_KEY && keys[findSlot(key)] == key;
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value.
+     */
+    public void put(int key, int value) {
+        checkKey(key);
+        int slot = findSlot(key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        growIfNeeded();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Finds the slot holding the key, or the empty slot where it would be inserted.
+     */
+    private int findSlot(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growIfNeeded() {
+        if (size * 2 <= keys.length) {
+            return;
+        }
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY_KEY) {
+                int newSlot = findSlot(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int mix(int key) {
+        // Spread the bits so sequential IDs don't land in neighbouring slots
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void checkKey(int key) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE cannot be used as a key");
+        }
+    }
+}
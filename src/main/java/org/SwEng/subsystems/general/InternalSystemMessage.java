@@ -3,8 +3,8 @@ package org.SwEng.subsystems.general;
 /**
  * Represents an internal system message intended for communication between subsystems.
  * <p>
- * Each instance of this class contains a target {@link Subsystems} identifier and
- * an associated message string.
+ * Each instance of this class contains a target {@link Subsystems} identifier,
+ * an associated message string and, when one subsystem hands work to another, a typed {@link MessagePayload}.
  * </p>
  */
 public class InternalSystemMessage {
@@ -20,9 +20,9 @@ public class InternalSystemMessage {
     public String message;
 
     /**
-     * The additional commands or info needing to be passed to the subsystem.
+     * The command or result being passed to the subsystem, or null if the message only carries text.
      */
-    public String additionalInfo;
+    public MessagePayload payload;
 
     /**
      * Constructs a new {@code InternalSystemMessaging} object.
@@ -40,10 +40,11 @@ public class InternalSystemMessage {
      *
      * @param subsystem the target subsystem for this message
      * @param message   the message content to be sent
+     * @param payload   the command or result being passed to the subsystem
      */
-    public InternalSystemMessage(Subsystems subsystem, String message, String additionalInfo) {
+    public InternalSystemMessage(Subsystems subsystem, String message, MessagePayload payload) {
         this.subsystem = subsystem;
         this.message = message;
-        this.additionalInfo = additionalInfo;
+        this.payload = payload;
     }
 }
@@ -0,0 +1,76 @@
+package org.SwEng.subsystems.general;
+
+import java.util.List;
+
+/**
+ * Typed contents of an {@link InternalSystemMessage} passed from one subsystem to another.
+ * <p>
+ * A message's text is what the user typed or the screen to show them. Anything else a subsystem needs to pass
+ * along travels as one of these records, so values such as a cart's cost or a customer's account are handed
+ * over as they are instead of being formatted into a string and parsed back out.
+ * </p>
+ * <ul>
+ *     <li>Commands ask the receiving subsystem to do something.</li>
+ *     <li>Results answer a command, or tell the receiving subsystem that a step has finished.</li>
+ * </ul>
+ */
+public sealed interface MessagePayload {
+
+    /**
+     * Asks the receiving subsystem to do something.
+     */
+    sealed interface Command extends MessagePayload {
+    }
+
+    /**
+     * Answers a command, or reports that a step has finished.
+     */
+    sealed interface Result extends MessagePayload {
+    }
+
+    // --- COMMANDS ---
+
+    /**
+     * Store to account system: take payment for the logged-in customer's cart, whose stock has been reserved.
+     *
+     * @param items The products in the cart, at the prices they are being sold for.
+     * @param cost  The cart's total price, in millions of dollars.
+     * @param units The number of units in the cart.
+     */
+    record CheckoutCart(List<Order.Item> items, double cost, int units) implements Command {
+    }
+
+    /**
+     * Messaging to account system: look up the customer a worker selected.
+     *
+     * @param email The email the worker typed.
+     */
+    record LookupCustomer(String email) implements Command {
+    }
+
+    // --- RESULTS ---
+
+    /**
+     * Account to messaging system: the customer asked for with LookupCustomer.
+     *
+     * @param account The customer's account.
+     */
+    record CustomerFound(Account account) implements Result {
+    }
+
+    /**
+     * Account to messaging system: no account uses the email asked for with LookupCustomer.
+     *
+     * @param email The email that was looked up.
+     */
+    record CustomerNotFound(String email) implements Result {
+    }
+
+    /**
+     * Product editor to store: the product being created or edited has been saved.
+     *
+     * @param productName The product's name.
+     */
+    record ProductSaved(String productName) implements Result {
+    }
+}
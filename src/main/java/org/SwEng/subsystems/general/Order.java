@@ -0,0 +1,37 @@
+package org.SwEng.subsystems.general;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A completed checkout: who bought what, at which prices, and how they paid.
+ * <p>
+ * Orders are written to the order log once, when payment is complete. The sales ledger (and the reports built
+ * from it) is derived from the log, so an order is never recorded twice and can always be replayed.
+ * </p>
+ *
+ * @param orderId     The order's ID, unique and increasing in the order log.
+ * @param email       The email of the account that placed the order.
+ * @param items       The products bought.
+ * @param amount      The total charged, in millions of dollars.
+ * @param paymentType "Credit" or "Debit".
+ * @param placedAt    When payment was completed.
+ */
+public record Order(long orderId, String email, List<Item> items, double amount, String paymentType,
+                    LocalDateTime placedAt) {
+
+    public Order {
+        items = List.copyOf(items);
+    }
+
+    /**
+     * One product in an order.
+     *
+     * @param productId   The product's ID.
+     * @param productName The product's name when it was bought.
+     * @param quantity    The number of units bought.
+     * @param unitPrice   The price of one unit when it was bought, in millions of dollars.
+     */
+    public record Item(String productId, String productName, int quantity, double unitPrice) {
+    }
+}
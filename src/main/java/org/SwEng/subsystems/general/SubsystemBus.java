@@ -0,0 +1,216 @@
+package org.SwEng.subsystems.general;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-process message bus for work that must not hold up an interactive session.
+ * <p>
+ * Every subsystem has its own lane: a bounded queue and a single worker thread that runs the lane's events in
+ * the order they were published. Events are plain objects (usually records) routed by their class, so a handler
+ * receives the event type it subscribed to. Publishing never blocks: if a lane's queue is full the event is
+ * rejected and publish() returns false.
+ * </p>
+ * <p>
+ * Queue depth, dispatch latency (the time an event waits in the queue) and handler time are tracked per lane
+ * and can be read with getMetrics().
+ * </p>
+ */
+public class SubsystemBus {
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    // How long pending events are given to finish when the program exits
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    private static SubsystemBus shared;
+
+    private final Map<Subsystems, Lane> lanes = new EnumMap<>(Subsystems.class);
+
+    /**
+     * @param queueCapacity The number of events each subsystem's queue holds before further events are rejected.
+     */
+    public SubsystemBus(int queueCapacity) {
+        for (Subsystems subsystem : Subsystems.values()) {
+            lanes.put(subsystem, new Lane(subsystem, queueCapacity));
+        }
+    }
+
+    /**
+     * Returns the bus shared by every session, creating it on first use.
+     * Pending events are given a few seconds to finish when the program exits.
+     */
+    public static synchronized SubsystemBus shared() {
+        if (shared == null) {
+            shared = new SubsystemBus(DEFAULT_QUEUE_CAPACITY);
+            SubsystemBus bus = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> bus.shutdown(SHUTDOWN_WAIT_SECONDS), "bus-shutdown"));
+        }
+        return shared;
+    }
+
+    /**
+     * Registers a handler for one type of event on a subsystem's lane.
+     *
+     * @param subsystem The subsystem whose worker thread runs the handler.
+     * @param eventType The class of the events to handle.
+     * @param handler   Called once for every event of that class published to the subsystem.
+     */
+    public <E> void subscribe(Subsystems subsystem, Class<E> eventType, Consumer<? super E> handler) {
+        lanes.get(subsystem).handlersByType
+                .computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<>())
+                .add(event -> handler.accept(eventType.cast(event)));
+    }
+
+    /**
+     * Queues an event for a subsystem's handlers without waiting for them.
+     *
+     * @param subsystem The subsystem the event is for.
+     * @param event     The event.
+     * @return True if the event was queued; false if no handler takes it or the subsystem's queue is full.
+     */
+    public boolean publish(Subsystems subsystem, Object event) {
+        Lane lane = lanes.get(subsystem);
+        List<Consumer<Object>> handlers = lane.handlersByType.get(event.getClass());
+        if (handlers == null || handlers.isEmpty()) {
+            System.err.println("No " + subsystem + " handler for " + event.getClass().getSimpleName());
+            return false;
+        }
+
+        long publishedAt = System.nanoTime();
+        try {
+            lane.executor.execute(() -> lane.dispatch(event, handlers, publishedAt));
+        } catch (RejectedExecutionException e) {
+            lane.rejected.increment();
+            System.err.println("The " + subsystem + " queue is full; dropped " + event.getClass().getSimpleName());
+            return false;
+        }
+        lane.published.increment();
+        lane.peakQueueDepth.accumulateAndGet(lane.executor.getQueue().size(), Math::max);
+        return true;
+    }
+
+    /**
+     * @return The queue and timing statistics of one subsystem's lane.
+     */
+    public LaneMetrics getMetrics(Subsystems subsystem) {
+        return lanes.get(subsystem).getMetrics();
+    }
+
+    /**
+     * @return The queue and timing statistics of every lane, in subsystem order.
+     */
+    public List<LaneMetrics> getMetrics() {
+        List<LaneMetrics> metrics = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes.values()) {
+            metrics.add(lane.getMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops accepting events and waits up to the given time for the queued ones to finish.
+     */
+    public void shutdown(long waitSeconds) {
+        for (Lane lane : lanes.values()) {
+            lane.executor.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+        try {
+            for (Lane lane : lanes.values()) {
+                lane.executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One subsystem's queue, worker thread, handlers and statistics.
+     */
+    private static final class Lane {
+        private final Subsystems subsystem;
+        private final ThreadPoolExecutor executor;
+        private final Map<Class<?>, List<Consumer<Object>>> handlersByType = new ConcurrentHashMap<>();
+
+        private final LongAdder published = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicInteger peakQueueDepth = new AtomicInteger();
+        private final LongAdder totalDispatchNanos = new LongAdder();
+        private final AtomicLong slowestDispatchNanos = new AtomicLong();
+        private final LongAdder totalHandleNanos = new LongAdder();
+
+        private Lane(Subsystems subsystem, int queueCapacity) {
+            this.subsystem = subsystem;
+            String threadName = subsystem.toString().toLowerCase().replace('_', '-') + "-bus";
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        private void dispatch(Object event, List<Consumer<Object>> handlers, long publishedAt) {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - publishedAt;
+            totalDispatchNanos.add(waited);
+            slowestDispatchNanos.accumulateAndGet(waited, Math::max);
+
+            for (Consumer<Object> handler : handlers) {
+                try {
+                    handler.accept(event);
+                } catch (RuntimeException e) {
+                    // Keep the lane alive for the events behind this one
+                    failed.increment();
+                    System.err.println("Error handling " + event.getClass().getSimpleName() + " on " + subsystem + ": " + e);
+                }
+            }
+
+            totalHandleNanos.add(System.nanoTime() - startedAt);
+            completed.increment();
+        }
+
+        private LaneMetrics getMetrics() {
+            long completedCount = completed.sum();
+            return new LaneMetrics(subsystem, executor.getQueue().size(), peakQueueDepth.get(),
+                    published.sum(), completedCount, rejected.sum(), failed.sum(),
+                    (completedCount == 0) ? 0 : totalDispatchNanos.sum() / 1_000_000.0 / completedCount,
+                    slowestDispatchNanos.get() / 1_000_000.0,
+                    (completedCount == 0) ? 0 : totalHandleNanos.sum() / 1_000_000.0 / completedCount);
+        }
+    }
+
+    /**
+     * Statistics of one subsystem's lane since the bus was created.
+     *
+     * @param subsystem             The subsystem.
+     * @param queueDepth            Events waiting right now.
+     * @param peakQueueDepth        The most events seen waiting at once.
+     * @param published             Events queued.
+     * @param completed             Events whose handlers have run.
+     * @param rejected              Events dropped because the queue was full.
+     * @param failed                Handler calls that threw.
+     * @param averageDispatchMillis The average time an event waited in the queue.
+     * @param slowestDispatchMillis The longest time an event waited in the queue.
+     * @param averageHandleMillis   The average time taken to run an event's handlers.
+     */
+    public record LaneMetrics(Subsystems subsystem, int queueDepth, int peakQueueDepth, long published,
+                              long completed, long rejected, long failed, double averageDispatchMillis,
+                              double slowestDispatchMillis, double averageHandleMillis) {
+    }
+}
@@ -0,0 +1,107 @@
+package org.SwEng.System;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReportStoreTest {
+    @TempDir
+    Path directory;
+    private Path reportPath;
+    private Path indexPath;
+
+    @BeforeEach
+    void setUp() {
+        reportPath = directory.resolve("dailySalesReports.txt");
+        indexPath = directory.resolve("dailySalesReports.idx");
+    }
+
+    @Test
+    void reportsAreFoundAgainAfterRestart() {
+        ReportStore store = open();
+        store.append("2025-01-01", "Saturn V: 2\n");
+        store.append("2025-01-02", "Falcon 9: 1\n");
+
+        ReportStore restarted = open();
+        assertEquals(List.of("2025-01-01", "2025-01-02"), restarted.getDates());
+        assertEquals("--- Daily Report for: 2025-01-02 ---\nFalcon 9: 1\n" + ReportStore.REPORT_FOOTER + "\n",
+                restarted.get("2025-01-02"));
+    }
+
+    @Test
+    void missingIndexIsRebuiltFromTheReportFile() throws IOException {
+        ReportStore store = open();
+        store.append("2025-01-01", "Saturn V: 2\n");
+        store.append("2025-01-02", "Falcon 9: 1\n");
+        String expected = store.get("2025-01-01");
+        Files.delete(indexPath);
+
+        ReportStore restarted = open();
+        assertEquals(List.of("2025-01-01", "2025-01-02"), restarted.getDates());
+        assertEquals(expected, restarted.get("2025-01-01"));
+        assertEquals(2, Files.readAllLines(indexPath).size());
+    }
+
+    @Test
+    void reportWrittenWithoutItsIndexEntryIsIndexedOnRestart() throws IOException {
+        open().append("2025-01-01", "Saturn V: 2\n");
+        // A crash after the report was written, before its index entry
+        Files.writeString(reportPath, "\n--- Daily Report for: 2025-01-02 ---\nFalcon 9: 1\n" + ReportStore.REPORT_FOOTER + "\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ReportStore restarted = open();
+        assertEquals(List.of("2025-01-01", "2025-01-02"), restarted.getDates());
+        assertEquals("--- Daily Report for: 2025-01-02 ---\nFalcon 9: 1\n" + ReportStore.REPORT_FOOTER + "\n",
+                restarted.get("2025-01-02"));
+    }
+
+    @Test
+    void tornIndexLineIsDroppedAndItsReportFoundAgain() throws IOException {
+        ReportStore store = open();
+        store.append("2025-01-01", "Saturn V: 2\n");
+        store.append("2025-01-02", "Falcon 9: 1\n");
+        String expected = store.get("2025-01-02");
+        // The last index line lost its newline and the end of its length
+        String index = Files.readString(indexPath);
+        Files.writeString(indexPath, index.substring(0, index.length() - 2));
+
+        ReportStore restarted = open();
+        assertEquals(expected, restarted.get("2025-01-02"));
+        restarted.append("2025-01-03", "Soyuz: 4\n");
+
+        ReportStore reopened = open();
+        assertEquals(List.of("2025-01-01", "2025-01-02", "2025-01-03"), reopened.getDates());
+        assertEquals(expected, reopened.get("2025-01-02"));
+    }
+
+    @Test
+    void reportCutShortByACrashIsNotIndexed() throws IOException {
+        open().append("2025-01-01", "Saturn V: 2\n");
+        Files.writeString(reportPath, "\n--- Daily Report for: 2025-01-02 ---\nFalcon",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ReportStore restarted = open();
+        assertFalse(restarted.contains("2025-01-02"));
+        assertNull(restarted.get("2025-01-02"));
+
+        // The day can be reported again, and the new report is the one found
+        restarted.append("2025-01-02", "Falcon 9: 1\n");
+        assertEquals("--- Daily Report for: 2025-01-02 ---\nFalcon 9: 1\n" + ReportStore.REPORT_FOOTER + "\n",
+                open().get("2025-01-02"));
+    }
+
+    private ReportStore open() {
+        return new ReportStore(reportPath, indexPath, "Daily");
+    }
+}
@@ -0,0 +1,108 @@
+package org.SwEng.accountSystem;
+
+import org.SwEng.subsystems.general.Account;
+import org.SwEng.subsystems.general.AccountType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountDBTest {
+    @TempDir
+    Path directory;
+    private Path snapshot;
+    private Path journal;
+    private Path rotatedJournal;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = directory.resolve("accounts.txt");
+        journal = directory.resolve("accountsJournal.txt");
+        rotatedJournal = directory.resolve("accountsJournal.txt.old");
+        restart();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Path dataFiles = Paths.get("src/main/java/org/SwEng/accountSystem/dataFiles");
+        AccountDB.useDirectory(dataFiles);
+        CartDB.useDirectory(dataFiles);
+    }
+
+    @Test
+    void savesAreReplayedOnRestart() {
+        assertTrue(AccountDB.createAccount(customer("a@example.com", "Old Road")));
+        assertFalse(AccountDB.createAccount(customer("A@example.com", "Other Road")));
+        AccountDB.saveAccount(customer("a@example.com", "1 New Road, Apt 2"));
+
+        restart();
+        Account account = AccountDB.findAccountByEmail("A@EXAMPLE.COM");
+        // Commas in addresses are stored as colons
+        assertEquals("1 New Road: Apt 2", account.getAddress());
+        assertEquals(1, AccountDB.loadAccounts().size());
+    }
+
+    @Test
+    void compactionKeepsEveryAccountAndDropsTheJournal() throws IOException {
+        AccountDB.createAccount(customer("a@example.com", "A Road"));
+        AccountDB.createAccount(customer("b@example.com", "B Road"));
+        AccountDB.saveAccount(customer("a@example.com", "A Street"));
+        AccountDB.compact();
+        assertFalse(Files.exists(journal));
+        assertFalse(Files.exists(rotatedJournal));
+        assertEquals(2, Files.readAllLines(snapshot).size());
+
+        restart();
+        assertEquals("A Street", AccountDB.findAccountByEmail("a@example.com").getAddress());
+        assertEquals("B Road", AccountDB.findAccountByEmail("b@example.com").getAddress());
+    }
+
+    @Test
+    void unfinishedCompactionReplaysTheMovedAsideJournalFirst() throws IOException {
+        // The journal was moved aside, but the crash came before the new snapshot was in place
+        Files.writeString(snapshot, "a@example.com,pw,customer,,,Snapshot Road,\n");
+        Files.writeString(rotatedJournal, "a@example.com,pw,customer,,,Moved Aside Road,\nb@example.com,pw,customer,,,B Road,\n");
+        Files.writeString(journal, "a@example.com,pw,customer,,,Journal Road,\n");
+
+        restart();
+        assertEquals("Journal Road", AccountDB.findAccountByEmail("a@example.com").getAddress());
+        assertEquals("B Road", AccountDB.findAccountByEmail("b@example.com").getAddress());
+
+        // The next compaction folds both journals in
+        AccountDB.compact();
+        assertFalse(Files.exists(rotatedJournal));
+        restart();
+        assertEquals("Journal Road", AccountDB.findAccountByEmail("a@example.com").getAddress());
+        assertEquals(2, AccountDB.loadAccounts().size());
+    }
+
+    @Test
+    void tornLastJournalLineIsSkipped() throws IOException {
+        AccountDB.createAccount(customer("a@example.com", "A Road"));
+        Files.writeString(journal, Files.readString(journal) + "b@example.com,pw,cust");
+
+        restart();
+        assertEquals("A Road", AccountDB.findAccountByEmail("a@example.com").getAddress());
+        assertNull(AccountDB.findAccountByEmail("b@example.com"));
+    }
+
+    private void restart() {
+        // Both stores read from this directory, so the carts import reads these account files too
+        AccountDB.useDirectory(directory);
+        CartDB.useDirectory(directory);
+    }
+
+    private static Account customer(String email, String address) {
+        return new Account(email, "pw", AccountType.CUSTOMER, "", "", address);
+    }
+}
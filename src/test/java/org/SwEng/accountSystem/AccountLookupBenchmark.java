@@ -0,0 +1,85 @@
+package org.SwEng.accountSystem;
+
+import org.SwEng.subsystems.general.Account;
+import org.SwEng.subsystems.general.AccountType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login lookup: the list scan AccountCoordinator used to do against the email index AccountDB keeps.
+ * <p>
+ * AccountDB reads and writes the real data files, so both paths are rebuilt here over the same synthetic
+ * accounts: the list path is contains() followed by indexOf() (two scans through Account.equals), and the
+ * index path is one get() on a ConcurrentHashMap keyed by the lower-cased email followed by equals().
+ * Run with: mvn test -Pbenchmarks -Djmh.args="AccountLookupBenchmark"
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountLookupBenchmark {
+    @Param({"1000", "100000"})
+    private int accountCount;
+
+    private List<Account> allAccounts;
+    private Map<String, Account> accountsByEmail;
+    private Account[] loginAttempts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        allAccounts = new ArrayList<>(accountCount);
+        accountsByEmail = new ConcurrentHashMap<>();
+        for (int i = 0; i < accountCount; i++) {
+            Account account = new Account("customer" + i + "@example.com", "password" + i, AccountType.CUSTOMER);
+            allAccounts.add(account);
+            accountsByEmail.put(account.getEmail().toLowerCase(), account);
+        }
+
+        // Logins spread evenly over the accounts, as the user would type them
+        loginAttempts = new Account[1024];
+        for (int i = 0; i < loginAttempts.length; i++) {
+            int id = (int) ((long) i * accountCount / loginAttempts.length);
+            loginAttempts[i] = new Account("customer" + id + "@example.com", "password" + id, AccountType.CUSTOMER);
+        }
+    }
+
+    private Account nextAttempt() {
+        next = (next + 1) & (loginAttempts.length - 1);
+        return loginAttempts[next];
+    }
+
+    @Benchmark
+    public Account listLogin() {
+        Account attempt = nextAttempt();
+        if (allAccounts.contains(attempt)) {
+            return allAccounts.get(allAccounts.indexOf(attempt));
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Account indexLogin() {
+        Account attempt = nextAttempt();
+        Account stored = accountsByEmail.get(attempt.getEmail().toLowerCase());
+        return attempt.equals(stored) ? stored : null;
+    }
+}
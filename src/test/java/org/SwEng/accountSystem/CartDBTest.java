@@ -0,0 +1,101 @@
+package org.SwEng.accountSystem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartDBTest {
+    @TempDir
+    Path directory;
+    private Path snapshot;
+    private Path journal;
+    private Path rotatedJournal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshot = directory.resolve("carts.txt");
+        journal = directory.resolve("cartsJournal.txt");
+        rotatedJournal = directory.resolve("cartsJournal.txt.old");
+        // An existing (empty) store, so opening it does not import the carts of the real account file
+        Files.writeString(snapshot, "SEQUENCE,0\n");
+        CartDB.useDirectory(directory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CartDB.useDirectory(Paths.get("src/main/java/org/SwEng/accountSystem/dataFiles"));
+    }
+
+    @Test
+    void changesAreReplayedOnRestart() {
+        CartDB.addItem("a@example.com", "101", 3);
+        CartDB.addItem("a@example.com", "102", 1);
+        CartDB.removeItem("a@example.com", "101", 1);
+        CartDB.addItem("b@example.com", "103", 2);
+        CartDB.clearCart("b@example.com");
+
+        CartDB.useDirectory(directory);
+        assertEquals(Map.of("101", 2, "102", 1), CartDB.getCart("A@example.com").getQuantities());
+        assertTrue(CartDB.getCart("b@example.com").isEmpty());
+    }
+
+    @Test
+    void compactionFoldsTheJournalIntoTheSnapshot() throws IOException {
+        CartDB.addItem("a@example.com", "101", 3);
+        assertTrue(CartDB.compact());
+        assertFalse(Files.exists(journal));
+        assertFalse(Files.exists(rotatedJournal));
+
+        // Changes after the compaction are numbered on from the snapshot, so they are not skipped on restart
+        CartDB.useDirectory(directory);
+        CartDB.addItem("a@example.com", "101", 2);
+        CartDB.useDirectory(directory);
+        assertEquals(5, CartDB.getCart("a@example.com").getQuantity("101"));
+    }
+
+    @Test
+    void crashAfterTheSnapshotIsReplacedDoesNotReplayTheMovedAsideJournal() throws IOException {
+        // The snapshot already holds changes 1-2, but the journal they came from was not deleted yet
+        Files.writeString(snapshot, "SEQUENCE,2\na@example.com,101*4\n");
+        Files.writeString(rotatedJournal, "1,ADD,a@example.com,101,3\n2,ADD,a@example.com,101,1\n");
+        Files.writeString(journal, "3,REMOVE,a@example.com,101,1\n");
+
+        CartDB.useDirectory(directory);
+        assertEquals(3, CartDB.getCart("a@example.com").getQuantity("101"));
+    }
+
+    @Test
+    void crashBeforeTheSnapshotIsReplacedReplaysBothJournals() throws IOException {
+        // The journal was moved aside, but the new snapshot never made it into place
+        Files.writeString(snapshot, "SEQUENCE,1\na@example.com,101*3\n");
+        Files.writeString(rotatedJournal, "1,ADD,a@example.com,101,3\n2,ADD,a@example.com,102,1\n");
+        Files.writeString(journal, "3,ADD,a@example.com,101,2\n");
+
+        CartDB.useDirectory(directory);
+        assertEquals(Map.of("101", 5, "102", 1), CartDB.getCart("a@example.com").getQuantities());
+
+        // The next change continues after the highest number seen
+        CartDB.addItem("a@example.com", "102", 1);
+        assertTrue(Files.readString(journal).endsWith("4,ADD,a@example.com,102,1\n"));
+    }
+
+    @Test
+    void tornLastJournalLineIsSkipped() throws IOException {
+        CartDB.addItem("a@example.com", "101", 3);
+        Files.writeString(journal, Files.readString(journal) + "2,ADD,a@exa");
+
+        CartDB.useDirectory(directory);
+        assertEquals(Map.of("101", 3), CartDB.getCart("a@example.com").getQuantities());
+    }
+}
@@ -0,0 +1,130 @@
+package org.SwEng.headCoordinatorSystem;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for the session server: opens many sessions at once and has each of them browse the store.
+ * <p>
+ * Every session runs on its own virtual thread and repeats a read-only round (log in, page through the
+ * storefront, search, open the cart, leave the store) so it can be pointed at a server with real data.
+ * A step is timed from sending a line to receiving the end of the next screen: an "Input: " prompt, or the
+ * "Hit [ENTER]" line of a message screen.
+ * </p>
+ * <p>
+ * Start a server with "--server [port]", then run:
+ * java -cp target/classes:target/test-classes org.SwEng.headCoordinatorSystem.SessionLoadGenerator
+ * [sessions] [rounds] [host] [port] [email] [password]
+ * </p>
+ */
+public class SessionLoadGenerator {
+    private static final String[] SCREEN_ENDINGS = {"Input: ", "Hit [ENTER] to return to store."};
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        String host = (args.length > 2) ? args[2] : "localhost";
+        int port = (args.length > 3) ? Integer.parseInt(args[3]) : SessionServer.DEFAULT_PORT;
+        String email = (args.length > 4) ? args[4] : "cust_b@example.com";
+        String password = (args.length > 5) ? args[5] : "rocketfan";
+
+        List<String> round = List.of("1", email, password, "7", "8", "6 rocket", "2", "3", "5");
+        List<long[]> stepTimes = new ArrayList<>();
+        AtomicInteger failedSessions = new AtomicInteger();
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                long[] times = new long[round.size() * rounds];
+                stepTimes.add(times);
+                clients.submit(() -> {
+                    try {
+                        runSession(host, port, round, rounds, times);
+                    } catch (IOException e) {
+                        failedSessions.incrementAndGet();
+                        System.err.println("Session failed: " + e.getMessage());
+                    }
+                });
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long[] allTimes = stepTimes.stream().flatMapToLong(Arrays::stream).filter(time -> time > 0).sorted().toArray();
+        System.out.println("Sessions: " + sessions + " (" + failedSessions.get() + " failed), rounds each: " + rounds);
+        System.out.println("Steps answered: " + allTimes.length + " in " + elapsedNanos / 1_000_000 + " ms ("
+                + (long) (allTimes.length / (elapsedNanos / 1e9)) + " steps/s)");
+        if (allTimes.length > 0) {
+            System.out.printf("Step latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(allTimes, 0.50), percentile(allTimes, 0.99), allTimes[allTimes.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Runs one session: waits for the login screen, then sends every line of the round, the given number of times.
+     *
+     * @param times Receives the time each step took, in nanoseconds.
+     */
+    private static void runSession(String host, int port, List<String> round, int rounds, long[] times) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            try {
+                readScreen(in);
+            } catch (IOException e) {
+                throw new IOException("No login screen: " + e.getMessage(), e);
+            }
+            int step = 0;
+            for (int i = 0; i < rounds; i++) {
+                for (String line : round) {
+                    long sent = System.nanoTime();
+                    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    try {
+                        readScreen(in);
+                    } catch (IOException e) {
+                        throw new IOException("No answer to \"" + line + "\" (step " + (step + 1) + "): " + e.getMessage(), e);
+                    }
+                    times[step++] = System.nanoTime() - sent;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the server's output up to the end of the next screen.
+     */
+    private static void readScreen(InputStream in) throws IOException {
+        int[] matched = new int[SCREEN_ENDINGS.length];
+        while (true) {
+            int c = in.read();
+            if (c == -1) {
+                throw new IOException("Server closed the session");
+            }
+            for (int i = 0; i < SCREEN_ENDINGS.length; i++) {
+                String ending = SCREEN_ENDINGS[i];
+                matched[i] = (c == ending.charAt(matched[i])) ? matched[i] + 1 : ((c == ending.charAt(0)) ? 1 : 0);
+                if (matched[i] == ending.length()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static double percentile(long[] sortedTimes, double fraction) {
+        int index = (int) Math.min(sortedTimes.length - 1, Math.round(fraction * (sortedTimes.length - 1)));
+        return sortedTimes[index] / 1e6;
+    }
+}
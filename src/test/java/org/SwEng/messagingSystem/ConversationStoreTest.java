@@ -0,0 +1,96 @@
+package org.SwEng.messagingSystem;
+
+import org.SwEng.messagingSystem.ConversationStore.ConversationMessage;
+import org.SwEng.subsystems.general.AccountType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationStoreTest {
+    // Long enough that a few hundred messages fill several segments
+    private static final String PADDING = "x".repeat(500);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void messagesRollOverIntoNewSegmentsAndAreReadBackAcrossThem() throws IOException {
+        ConversationStore store = new ConversationStore(directory);
+        int messages = 400;
+        for (int i = 0; i < messages; i++) {
+            store.append("a@example.com", AccountType.CUSTOMER, i + " " + PADDING);
+        }
+        store.append("b@example.com", AccountType.WORKER, "hello");
+
+        assertTrue(Files.exists(directory.resolve("conversation-1-2.txt")));
+        for (int segment = 0; Files.exists(directory.resolve("conversation-1-" + segment + ".txt")); segment++) {
+            assertTrue(Files.size(directory.resolve("conversation-1-" + segment + ".txt")) <= ConversationStore.MAX_SEGMENT_BYTES);
+        }
+
+        ConversationStore restarted = new ConversationStore(directory);
+        assertEquals(List.of("a@example.com", "b@example.com"), restarted.getCustomerEmails());
+        assertEquals(numbered(messages - 10, messages), restarted.readNewestMessages("A@example.com", 0, 10));
+        // A page straddling segment boundaries
+        assertEquals(numbered(0, 300), restarted.readNewestMessages("a@example.com", messages - 300, 300));
+        assertEquals(List.of(new ConversationMessage("WORKER", "hello")), restarted.readNewestMessages("b@example.com", 0, 10));
+    }
+
+    @Test
+    void restartContinuesTheTailSegmentWhereItLeftOff() throws IOException {
+        ConversationStore store = new ConversationStore(directory);
+        for (int i = 0; i < 100; i++) {
+            store.append("a@example.com", AccountType.CUSTOMER, i + " " + PADDING);
+        }
+        // The tail segment is part full; its size is read back from the file so it is not overfilled
+        ConversationStore restarted = new ConversationStore(directory);
+        for (int i = 100; i < 300; i++) {
+            restarted.append("a@example.com", AccountType.CUSTOMER, i + " " + PADDING);
+        }
+
+        for (int segment = 0; Files.exists(directory.resolve("conversation-1-" + segment + ".txt")); segment++) {
+            assertTrue(Files.size(directory.resolve("conversation-1-" + segment + ".txt")) <= ConversationStore.MAX_SEGMENT_BYTES);
+        }
+        assertEquals(numbered(0, 300), new ConversationStore(directory).readNewestMessages("a@example.com", 0, 300));
+    }
+
+    @Test
+    void tornMessageIsDroppedOnRestart() throws IOException {
+        ConversationStore store = new ConversationStore(directory);
+        store.append("a@example.com", AccountType.CUSTOMER, "first");
+        Files.writeString(directory.resolve("conversation-1-0.txt"), "WORKER,sec", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ConversationStore restarted = new ConversationStore(directory);
+        restarted.append("a@example.com", AccountType.WORKER, "second");
+        assertEquals(List.of(new ConversationMessage("CUSTOMER", "first"), new ConversationMessage("WORKER", "second")),
+                new ConversationStore(directory).readNewestMessages("a@example.com", 0, 10));
+    }
+
+    @Test
+    void tornIndexLineIsDroppedOnRestart() throws IOException {
+        ConversationStore store = new ConversationStore(directory);
+        store.append("a@example.com", AccountType.CUSTOMER, "first");
+        // A crash while starting a second conversation, before its first message
+        Files.writeString(directory.resolve("index.txt"), "2,1,b@exam", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ConversationStore restarted = new ConversationStore(directory);
+        assertEquals(List.of("a@example.com"), restarted.getCustomerEmails());
+        restarted.append("b@example.com", AccountType.CUSTOMER, "hi");
+        assertEquals(List.of("a@example.com", "b@example.com"), new ConversationStore(directory).getCustomerEmails());
+    }
+
+    private static List<ConversationMessage> numbered(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new ConversationMessage("CUSTOMER", i + " " + PADDING))
+                .toList();
+    }
+}
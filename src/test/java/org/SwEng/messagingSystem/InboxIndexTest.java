@@ -0,0 +1,70 @@
+package org.SwEng.messagingSystem;
+
+import org.SwEng.messagingSystem.InboxIndex.Inbox;
+import org.SwEng.subsystems.general.AccountType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class InboxIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void inboxesAndTheirOrderSurviveARestart() throws IOException {
+        Path logPath = directory.resolve("inbox.txt");
+        InboxIndex index = new InboxIndex(logPath);
+        index.recordMessage("a@example.com", AccountType.CUSTOMER, 1000);
+        index.recordMessage("b@example.com", AccountType.CUSTOMER, 2000);
+        index.recordMessage("b@example.com", AccountType.CUSTOMER, 3000);
+        index.recordMessage("c@example.com", AccountType.CUSTOMER, 4000);
+        index.recordMessage("c@example.com", AccountType.WORKER, 5000);
+        // Reading an inbox does not move it
+        index.markRead("A@example.com");
+        List<Inbox> expected = index.getInboxesUnreadFirst();
+
+        assertEquals(expected, new InboxIndex(logPath).getInboxesUnreadFirst());
+        assertEquals(List.of(new Inbox("b@example.com", "CUSTOMER", 3000, 2), new Inbox("c@example.com", "WORKER", 5000, 0),
+                new Inbox("a@example.com", "CUSTOMER", 1000, 0)), expected);
+    }
+
+    @Test
+    void longLogIsCompactedToOneLinePerInboxWhenOpened() throws IOException {
+        Path logPath = directory.resolve("inbox.txt");
+        InboxIndex index = new InboxIndex(logPath);
+        for (int i = 0; i < 100; i++) {
+            index.recordMessage((i % 3 == 0 ? "a" : "b") + "@example.com", AccountType.CUSTOMER, i);
+        }
+        index.markRead("a@example.com");
+        List<Inbox> expected = index.getInboxesUnreadFirst();
+        assertEquals(101, Files.readAllLines(logPath).size());
+
+        InboxIndex compacted = new InboxIndex(logPath);
+        assertEquals(2, Files.readAllLines(logPath).size());
+        assertFalse(Files.exists(directory.resolve("inbox.txt.tmp")));
+        assertEquals(expected, compacted.getInboxesUnreadFirst());
+        assertEquals(expected, new InboxIndex(logPath).getInboxesUnreadFirst());
+    }
+
+    @Test
+    void tornLastLineIsDroppedOnRestart() throws IOException {
+        Path logPath = directory.resolve("inbox.txt");
+        new InboxIndex(logPath).recordMessage("a@example.com", AccountType.CUSTOMER, 1000);
+        Files.writeString(logPath, "1,2000,CUSTOMER,b@exa", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        InboxIndex restarted = new InboxIndex(logPath);
+        assertEquals(List.of(new Inbox("a@example.com", "CUSTOMER", 1000, 1)), restarted.getInboxesUnreadFirst());
+        restarted.recordMessage("b@example.com", AccountType.CUSTOMER, 3000);
+        assertEquals(List.of(new Inbox("b@example.com", "CUSTOMER", 3000, 1), new Inbox("a@example.com", "CUSTOMER", 1000, 1)),
+                new InboxIndex(logPath).getInboxesUnreadFirst());
+    }
+}
@@ -0,0 +1,178 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.Cart;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryReservationEngineTest {
+    private static final int PRODUCTS = 24;
+    private static final int INITIAL_STOCK = 200;
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS_PER_THREAD = 20_000;
+
+    @Test
+    void inventoryNeverGoesNegativeUnderContention() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            // IDs 64 apart share a lock stripe, so carts with different products still contend
+            products.add(new YieldingProduct(String.valueOf(100 + i * 32), "Product " + i, INITIAL_STOCK));
+        }
+        ProductTable productTable = new ProductTable(products);
+        InventoryReservationEngine engine = new InventoryReservationEngine();
+
+        AtomicIntegerArray unitsSold = new AtomicIntegerArray(PRODUCTS);
+        AtomicInteger reservations = new AtomicInteger();
+        AtomicInteger shortages = new AtomicInteger();
+        AtomicBoolean sawNegative = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            // Watches the stock while the checkouts run
+            Future<?> watcher = threads.submit(() -> {
+                while (running.get()) {
+                    for (int index = 0; index < PRODUCTS; index++) {
+                        if (productTable.getInventory(index) < 0 || products.get(index).getInventoryCount() < 0) {
+                            sawNegative.set(true);
+                        }
+                    }
+                }
+            });
+
+            List<Future<?>> shoppers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                shoppers.add(threads.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < CHECKOUTS_PER_THREAD; i++) {
+                        Cart cart = new Cart();
+                        int items = 1 + random.nextInt(4);
+                        for (int j = 0; j < items; j++) {
+                            cart.add(products.get(random.nextInt(PRODUCTS)).getId(), 1 + random.nextInt(5));
+                        }
+
+                        InventoryReservationEngine.ReservationResult result = engine.reserve(productTable, cart);
+                        if (!result.reserved()) {
+                            assertFalse(result.shortItemIds().isEmpty());
+                            shortages.incrementAndGet();
+                            continue;
+                        }
+                        reservations.incrementAndGet();
+
+                        if (random.nextInt(3) == 0) {
+                            // Payment failed or was abandoned: the stock goes back
+                            engine.release(productTable, cart);
+                        } else {
+                            cart.getQuantities().forEach((id, quantity) ->
+                                    unitsSold.addAndGet(productTable.indexOf(id), quantity));
+                        }
+
+                        if (random.nextInt(50) == 0) {
+                            // Staff restock a product
+                            int index = random.nextInt(PRODUCTS);
+                            Cart restock = new Cart();
+                            restock.add(products.get(index).getId(), 3);
+                            engine.release(productTable, restock);
+                            unitsSold.addAndGet(index, -3);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> shopper : shoppers) {
+                shopper.get(2, TimeUnit.MINUTES);
+            }
+            running.set(false);
+            watcher.get(10, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertFalse(sawNegative.get(), "Stock went negative during the run");
+        assertTrue(reservations.get() > 0 && shortages.get() > 0, "The run should both reserve carts and run short");
+        for (int index = 0; index < PRODUCTS; index++) {
+            int expected = INITIAL_STOCK - unitsSold.get(index);
+            assertTrue(productTable.getInventory(index) >= 0);
+            assertEquals(expected, productTable.getInventory(index), "Stock of " + products.get(index).getId());
+            assertEquals(expected, products.get(index).getInventoryCount(), "Product stock of " + products.get(index).getId());
+        }
+    }
+
+    @Test
+    void shortCartTakesNothing() {
+        List<Product> products = List.of(
+                new Product("101", "Saturn V", 1, 0, 5),
+                new Product("102", "Falcon 9", 1, 0, 1));
+        ProductTable productTable = new ProductTable(products);
+        InventoryReservationEngine engine = new InventoryReservationEngine();
+
+        Cart cart = new Cart();
+        cart.add("101", 3);
+        cart.add("102", 2);
+        cart.add("999", 1);
+        InventoryReservationEngine.ReservationResult result = engine.reserve(productTable, cart);
+
+        assertFalse(result.reserved());
+        assertEquals(List.of("102", "999"), result.shortItemIds());
+        assertEquals(5, products.get(0).getInventoryCount());
+        assertEquals(1, products.get(1).getInventoryCount());
+    }
+
+    @Test
+    void sameProductUnderTwoIdsIsCheckedForTheTotal() {
+        List<Product> products = List.of(new Product("12", "Saturn V", 1, 0, 8));
+        ProductTable productTable = new ProductTable(products);
+        InventoryReservationEngine engine = new InventoryReservationEngine();
+
+        Cart cart = new Cart();
+        cart.add("012", 8);
+        cart.add("12", 8);
+        InventoryReservationEngine.ReservationResult result = engine.reserve(productTable, cart);
+
+        assertFalse(result.reserved());
+        assertEquals(List.of("012", "12"), result.shortItemIds());
+        assertEquals(8, products.get(0).getInventoryCount());
+
+        Cart fits = new Cart();
+        fits.add("012", 3);
+        fits.add("12", 5);
+        assertTrue(engine.reserve(productTable, fits).reserved());
+        assertEquals(0, products.get(0).getInventoryCount());
+        engine.release(productTable, fits);
+        assertEquals(8, products.get(0).getInventoryCount());
+    }
+
+    /**
+     * Gives other threads a chance to run in the middle of taking a cart's stock, so a reservation that is not
+     * atomic is caught even on a machine with few cores.
+     */
+    private static final class YieldingProduct extends Product {
+        private YieldingProduct(String id, String name, int inventoryCount) {
+            super(id, name, 1, 0, inventoryCount);
+        }
+
+        @Override
+        public synchronized void setInventoryCount(int inventoryCount) {
+            super.setInventoryCount(inventoryCount);
+            Thread.yield();
+        }
+    }
+}
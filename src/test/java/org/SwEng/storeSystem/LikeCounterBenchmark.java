@@ -0,0 +1,87 @@
+package org.SwEng.storeSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likes on one popular product from several threads at once: the sharded counter in Product, a synchronized
+ * counter, and the old path that rewrote the whole product file for every like.
+ * <p>
+ * The file path writes a catalogue of the given size to a temporary file, in the product file's format, so the
+ * real product file is never touched.
+ * Run with: mvn test -Pbenchmarks -Djmh.args="LikeCounterBenchmark"
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LikeCounterBenchmark {
+    private static final int CATALOGUE_SIZE = 200;
+
+    private Product product;
+    private int synchronizedLikes;
+    private List<Product> catalogue;
+    private Path productFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        product = new Product("101", "Saturn V", 12.0, 0, 5);
+        catalogue = new ArrayList<>();
+        for (int i = 0; i < CATALOGUE_SIZE; i++) {
+            catalogue.add(new Product(String.valueOf(100 + i), "Rocket " + i, 1.5, 0, 5));
+        }
+        productFile = Files.createTempFile("products", ".txt");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(productFile);
+    }
+
+    @Benchmark
+    public void shardedLike() {
+        product.addLike();
+    }
+
+    @Benchmark
+    public void synchronizedLike() {
+        synchronized (this) {
+            synchronizedLikes++;
+        }
+    }
+
+    @Benchmark
+    public void filePerLike() throws IOException {
+        synchronized (this) {
+            catalogue.get(1).addLike();
+            try (Writer writer = Files.newBufferedWriter(productFile)) {
+                for (Product p : catalogue) {
+                    writer.write(p.getId() + "," + p.getName() + "," + p.getPrice() + "," + p.getLikes() + ","
+                            + p.getInventoryCount() + "\n");
+                }
+            }
+        }
+    }
+}
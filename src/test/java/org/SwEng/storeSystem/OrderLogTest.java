@@ -0,0 +1,120 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class OrderLogTest {
+    @TempDir
+    Path directory;
+    private Path logFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logFile = directory.resolve("orders.txt");
+        OrderLog.useFile(logFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        OrderLog.useFile(Paths.get("src/main/java/org/SwEng/storeSystem/dataFiles/orders.txt"));
+    }
+
+    @Test
+    void separatorsInFieldsSurviveTheRoundTrip() {
+        String name = "Falcon|9, block 5 * 100% \"new\"\nedition";
+        Order placed = OrderLog.append("a,b@example.com", List.of(new Order.Item("101", name, 2, 62.5)), 125.0, "Credit");
+        assertNotNull(placed);
+
+        List<Order> read = readAll();
+        assertEquals(List.of(placed), read);
+        assertEquals(name, read.getFirst().items().getFirst().productName());
+    }
+
+    @Test
+    void unescapeKeepsPercentSignsFromOldLines() {
+        assertEquals("100% off", OrderLog.unescape("100% off"));
+        assertEquals("50%", OrderLog.unescape("50%"));
+        assertEquals("a|b", OrderLog.unescape(OrderLog.escape("a|b")));
+    }
+
+    @Test
+    void concurrentCheckoutsAreAllReadBackInIdOrder() throws Exception {
+        int checkouts = 400;
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Order>> placed = new ArrayList<>();
+            for (int i = 0; i < checkouts; i++) {
+                String email = "customer" + i + "@example.com";
+                placed.add(threads.submit(() -> OrderLog.append(email, List.of(new Order.Item("101", "Saturn V", 1, 1.0)), 1.0, "Debit")));
+            }
+            for (Future<Order> order : placed) {
+                assertNotNull(order.get());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        List<Order> read = readAll();
+        assertEquals(checkouts, read.size());
+        for (int i = 0; i < checkouts; i++) {
+            assertEquals(i + 1, read.get(i).orderId());
+        }
+    }
+
+    @Test
+    void tornLastLineIsDroppedOnRestart() throws IOException {
+        OrderLog.append("a@example.com", List.of(new Order.Item("101", "Saturn V", 1, 1.0)), 1.0, "Credit");
+        // A crash in the middle of the second append
+        Files.writeString(logFile, "2,2025-01-01T10:00,b@example.com,Cre", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        OrderLog.useFile(logFile);
+
+        Order next = OrderLog.append("c@example.com", List.of(new Order.Item("102", "Falcon 9", 1, 2.0)), 2.0, "Debit");
+        assertNotNull(next);
+        assertEquals(2, next.orderId());
+        List<Order> read = readAll();
+        assertEquals(2, read.size());
+        assertEquals("c@example.com", read.get(1).email());
+    }
+
+    @Test
+    void readingResumesFromTheReturnedPosition() throws IOException {
+        OrderLog.append("a@example.com", List.of(new Order.Item("101", "Saturn V", 1, 1.0)), 1.0, "Credit");
+        List<Order> read = new ArrayList<>();
+        long position = OrderLog.forEachFrom(0, read::add);
+
+        OrderLog.append("b@example.com", List.of(new Order.Item("101", "Saturn V", 1, 1.0)), 1.0, "Credit");
+        position = OrderLog.forEachFrom(position, read::add);
+        assertEquals(Files.size(logFile), position);
+        assertEquals(List.of(1L, 2L), read.stream().map(Order::orderId).toList());
+
+        // A consumer that cannot take an order stops there, and gets it again next time
+        List<Order> retried = new ArrayList<>();
+        long stoppedAt = OrderLog.forEachFrom(0, order -> order.orderId() < 2 && retried.add(order));
+        OrderLog.forEachFrom(stoppedAt, retried::add);
+        assertEquals(List.of(1L, 2L), retried.stream().map(Order::orderId).toList());
+    }
+
+    private static List<Order> readAll() {
+        List<Order> orders = new ArrayList<>();
+        OrderLog.forEachFrom(0, orders::add);
+        return orders;
+    }
+}
@@ -0,0 +1,64 @@
+package org.SwEng.storeSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name search on a catalogue of 1M synthetic products, from one-letter prefixes to exact names.
+ * <p>
+ * Names are "[adjective] [noun] [model number]" from small word lists, so short prefixes match a large share of
+ * the catalogue and model numbers match only a handful of products. A name has one adjective and one noun, so
+ * "rocket rover" and "big super" are two common words that match no product together.
+ * Run with: mvn test -Pbenchmarks -Djmh.args="ProductSearchBenchmark"
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+    private static final String[] ADJECTIVES = {"Big", "Super", "Heavy", "Lunar", "Orbital", "Deep", "Silent", "Red"};
+    private static final String[] NOUNS = {"Rocket", "Booster", "Lander", "Capsule", "Probe", "Satellite", "Shuttle", "Rover"};
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"1000000"})
+    private int productCount;
+
+    @Param({"r", "ro", "rocket", "super ro", "red rover 4242", "orbital 99999", "rocket rover", "big super"})
+    private String query;
+
+    private ProductSearchIndex searchIndex;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " " + random.nextInt(100_000);
+            products.add(new Product(String.valueOf(100 + i), name, 1 + random.nextInt(500), random.nextInt(10_000), 5));
+        }
+        searchIndex = new ProductSearchIndex(products, new ProductRanking(products));
+    }
+
+    @Benchmark
+    public List<Product> search() {
+        return searchIndex.search(query, PAGE_SIZE);
+    }
+}
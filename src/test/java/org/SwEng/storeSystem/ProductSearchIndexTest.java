@@ -0,0 +1,101 @@
+package org.SwEng.storeSystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductSearchIndexTest {
+    private static final String[] WORDS = {"rocket", "rover", "red", "saturn", "v", "lunar", "lander", "probe"};
+    private static final Comparator<Product> BY_RANK =
+            Comparator.comparingInt(Product::getLikes).reversed().thenComparing(Product::getId);
+
+    @Test
+    void searchFindsTheMostLikedMatchesForRareAndCommonWords() {
+        Random random = new Random(7);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(5000);
+            products.add(new Product(String.valueOf(100 + i), name, 1, random.nextInt(1000), 1));
+        }
+        ProductSearchIndex searchIndex = new ProductSearchIndex(products, new ProductRanking(products));
+
+        // One-letter prefixes walk the ranking; model numbers and rare pairs use the rarest word's matches
+        for (String query : List.of("r", "ro", "rocket", "red rover", "saturn v", "l 12", "4999", "probe 77", "zzz")) {
+            for (int limit : new int[]{1, 10, 50}) {
+                assertEquals(bruteForce(products, query, limit), searchIndex.search(query, limit), query + " / " + limit);
+            }
+        }
+    }
+
+    @Test
+    void commonWordsThatRarelyAppearTogetherFindTheFewMatches() {
+        // Every name has one adjective and one noun, so "big super" and "rocket rover" only match the
+        // few least liked products named with both
+        Random random = new Random(11);
+        String[] adjectives = {"big", "super"};
+        String[] nouns = {"rocket", "rover"};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            String name = adjectives[random.nextInt(2)] + " " + nouns[random.nextInt(2)] + " " + random.nextInt(5000);
+            products.add(new Product(String.valueOf(100 + i), name, 1, 10 + random.nextInt(1000), 1));
+        }
+        for (int i = 0; i < 5; i++) {
+            products.add(new Product(String.valueOf(40_000 + i), "Big Super Rocket Rover " + i, 1, i, 1));
+        }
+        ProductSearchIndex searchIndex = new ProductSearchIndex(products, new ProductRanking(products));
+
+        for (String query : List.of("big super", "rocket rover", "super rov", "big rocket", "rocket rover 3", "big super zzz")) {
+            for (int limit : new int[]{1, 3, 10}) {
+                assertEquals(bruteForce(products, query, limit), searchIndex.search(query, limit), query + " / " + limit);
+            }
+        }
+    }
+
+    @Test
+    void searchFollowsAddsAndRemovals() {
+        List<Product> products = new ArrayList<>(List.of(
+                new Product("101", "Saturn V", 1, 5, 1),
+                new Product("102", "Falcon Heavy", 1, 9, 1)));
+        ProductRanking ranking = new ProductRanking(products);
+        ProductSearchIndex searchIndex = new ProductSearchIndex(products, ranking);
+
+        Product starship = new Product("103", "Starship Heavy", 1, 3, 1);
+        ranking.add(starship);
+        searchIndex.add(starship);
+        assertEquals(List.of(products.get(1), starship), searchIndex.search("hea", 10));
+
+        ranking.remove(products.get(1));
+        searchIndex.remove(products.get(1));
+        assertEquals(List.of(starship), searchIndex.search("heavy", 10));
+        assertEquals(List.of(), searchIndex.search("falcon", 10));
+
+        Product renamed = new Product("103", "Starship Super Heavy Heavy", 1, 3, 1);
+        ranking.replace(starship, renamed);
+        searchIndex.replace(starship, renamed);
+        assertEquals(List.of(renamed), searchIndex.search("super heavy", 10));
+        assertEquals(List.of(products.get(0), renamed), searchIndex.search("s", 10));
+    }
+
+    private static List<Product> bruteForce(List<Product> products, String query, int limit) {
+        String[] queryWords = query.toLowerCase(Locale.ROOT).split(" ");
+        return products.stream()
+                .filter(product -> {
+                    List<String> nameWords = List.of(product.getName().toLowerCase(Locale.ROOT).split(" "));
+                    for (String queryWord : queryWords) {
+                        if (nameWords.stream().noneMatch(word -> word.startsWith(queryWord))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                })
+                .sorted(BY_RANK)
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,98 @@
+package org.SwEng.storeSystem;
+
+import org.SwEng.subsystems.general.Cart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart costing and product lookup: the String-keyed scans StoreCoordinator used to do against ProductTable.
+ * <p>
+ * The "list" benchmarks are the old code paths (a HashSet of the cart's IDs and String.valueOf on every
+ * catalogue product; a linear search for one ID). Run with the GC profiler to see the allocation rate:
+ * mvn test -Pbenchmarks -Djmh.args="ProductTableBenchmark -prof gc"
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductTableBenchmark {
+    @Param({"100", "1000"})
+    private int catalogueSize;
+
+    private List<Product> catalogue;
+    private ProductTable productTable;
+    private Cart cart;
+    private List<String> cartItemIds;
+    private String lookupId;
+
+    @Setup
+    public void setUp() {
+        catalogue = new ArrayList<>(catalogueSize);
+        for (int i = 0; i < catalogueSize; i++) {
+            catalogue.add(new Product(String.format("%03d", i), "Rocket " + i, 1.5 + i, i % 50, 10));
+        }
+        productTable = new ProductTable(catalogue);
+
+        // Five products spread over the catalogue, two units of each
+        cart = new Cart();
+        cartItemIds = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            String id = catalogue.get(catalogueSize * i / 6).getId();
+            cart.add(id, 2);
+            cartItemIds.add(id);
+            cartItemIds.add(id);
+        }
+        lookupId = catalogue.get(catalogueSize * 3 / 4).getId();
+    }
+
+    @Benchmark
+    public double listCartCost() {
+        Set<String> validIdSet = new HashSet<>(cartItemIds);
+        double cost = 0;
+        for (Product product : catalogue) {
+            if (validIdSet.contains(String.valueOf(product.getId()))) {
+                cost += product.getPrice();
+            }
+        }
+        return cost;
+    }
+
+    @Benchmark
+    public double tableCartCost() {
+        return productTable.getCartCost(cart);
+    }
+
+    @Benchmark
+    public Product listLookup() {
+        for (Product product : catalogue) {
+            if (Objects.equals(product.getId(), lookupId)) {
+                return product;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Product tableLookup() {
+        return productTable.getProduct(lookupId);
+    }
+}
@@ -0,0 +1,53 @@
+package org.SwEng.storeSystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductWriteBehindTest {
+
+    @Test
+    void failedWriteIsReportedToTheWaitingCaller() {
+        for (ProductWriteBehind.DurabilityMode mode : new ProductWriteBehind.DurabilityMode[]{
+                ProductWriteBehind.DurabilityMode.SYNC, ProductWriteBehind.DurabilityMode.GROUP}) {
+            AtomicBoolean diskFull = new AtomicBoolean(true);
+            AtomicInteger writes = new AtomicInteger();
+            ProductWriteBehind writer = new ProductWriteBehind(() -> {
+                writes.incrementAndGet();
+                if (diskFull.get()) {
+                    throw new IOException("No space left on device");
+                }
+            }, mode, 1, 64);
+
+            assertFalse(writer.write(), mode + " write after a failed flush");
+
+            diskFull.set(false);
+            assertTrue(writer.write(), mode + " write after the disk recovered");
+            assertTrue(writer.flush());
+            assertEquals(2, writes.get());
+        }
+    }
+
+    @Test
+    void asyncFlushReportsTheFailure() {
+        AtomicBoolean diskFull = new AtomicBoolean(true);
+        ProductWriteBehind writer = new ProductWriteBehind(() -> {
+            if (diskFull.get()) {
+                throw new IOException("No space left on device");
+            }
+        }, ProductWriteBehind.DurabilityMode.ASYNC, 1, 64);
+
+        assertTrue(writer.write());
+        assertFalse(writer.flush());
+
+        diskFull.set(false);
+        writer.write();
+        assertTrue(writer.flush());
+    }
+}
@@ -0,0 +1,132 @@
+package org.SwEng.storeSystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SalesLedgerTest {
+    @TempDir
+    Path directory;
+    private SalesLedger ledger;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ledger = openLedger();
+    }
+
+    @Test
+    void parallelCountMatchesASequentialScan() {
+        // Enough records to be split into several parts
+        List<Product> products = List.of(new Product("101", "Saturn V", 2.5, 0, 5),
+                new Product("102", "Falcon 9", 4.0, 0, 5), new Product("103", "Soyuz", 1.0, 0, 5));
+        List<SalesLedger.Sale> sales = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sales.add(new SalesLedger.Sale(products.get(i % products.size()), 1 + i % 4));
+        }
+        for (int order = 1; order <= 600; order++) {
+            ledger.recordOrder(order, sales, 20000 + order / 10);
+        }
+
+        int fromDay = 20005;
+        int toDay = 20040;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SalesCounts all = ledger.countSalesByProduct(0, ledger.getRecordCount(), fromDay, toDay, SalesLedger.ALL_PRODUCTS, pool);
+            SalesCounts one = ledger.countSalesByProduct(0, ledger.getRecordCount(), fromDay, toDay, 102, pool);
+
+            SalesCounts expected = new SalesCounts();
+            ledger.forEachSale((productId, epochDay, unitPrice, quantity, orderId) -> {
+                if (epochDay >= fromDay && epochDay <= toDay) {
+                    expected.add(productId, quantity, quantity * unitPrice);
+                }
+            });
+            assertEquals(3, all.size());
+            for (Product product : products) {
+                int productId = Integer.parseInt(product.getId());
+                assertEquals(expected.getUnits(productId), all.getUnits(productId));
+                assertEquals(expected.getRevenue(productId), all.getRevenue(productId), 1e-6);
+            }
+            assertEquals(1, one.size());
+            assertEquals(expected.getUnits(102), one.getUnits(102));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void version1LedgerIsUpgradedWhenOpened() throws IOException {
+        // Header ("EMTS", version 1), then product ID, epoch day and price per unit sold
+        ByteBuffer version1 = ByteBuffer.allocate(8 + 3 * 16).putInt(0x454D5453).putInt(1);
+        version1.putInt(101).putInt(20000).putDouble(2.5);
+        version1.putInt(101).putInt(20001).putDouble(2.5);
+        version1.putInt(102).putInt(20001).putDouble(4.0);
+        Path ledgerPath = directory.resolve("old.bin");
+        Files.write(ledgerPath, version1.array());
+
+        SalesLedger upgraded = new SalesLedger(ledgerPath, directory.resolve("oldProducts.txt"));
+        assertEquals(3, upgraded.getRecordCount());
+        assertEquals(SalesLedger.NO_ORDER_ID, upgraded.getLastOrderId());
+        assertEquals(8 + 3 * SalesLedger.RECORD_BYTES, Files.size(ledgerPath));
+        SalesCounts counts = upgraded.countSalesByProduct(20001, 20001, SalesLedger.ALL_PRODUCTS);
+        assertEquals(1, counts.getUnits(101));
+        assertEquals(4.0, counts.getRevenue(102), 1e-9);
+
+        // Reopening finds the current version and leaves the file as it is
+        SalesLedger reopened = new SalesLedger(ledgerPath, directory.resolve("oldProducts.txt"));
+        assertEquals(3, reopened.getRecordCount());
+    }
+
+    @Test
+    void partlyWrittenOrderIsDroppedSoItCanBeRecordedAgain() throws IOException {
+        List<Product> products = List.of(new Product("101", "Saturn V", 2.5, 0, 5),
+                new Product("102", "Falcon 9", 4.0, 0, 5), new Product("103", "Soyuz", 1.0, 0, 5));
+        List<SalesLedger.Sale> order2 = products.stream().map(product -> new SalesLedger.Sale(product, 2)).toList();
+        ledger.recordOrder(1, List.of(new SalesLedger.Sale(products.get(0), 1)), 20000);
+        ledger.recordOrder(2, order2, 20001);
+
+        // A crash while writing order 2: its first record and part of its second reached the disk
+        try (FileChannel file = FileChannel.open(directory.resolve("sales.bin"), StandardOpenOption.WRITE)) {
+            file.truncate(8 + 2L * SalesLedger.RECORD_BYTES + 10);
+        }
+
+        SalesLedger restarted = openLedger();
+        assertEquals(1, restarted.getRecordCount());
+        // So the order log replay does not skip order 2
+        assertEquals(1, restarted.getLastOrderId());
+
+        restarted.recordOrder(2, order2, 20001);
+        SalesLedger reopened = openLedger();
+        assertEquals(4, reopened.getRecordCount());
+        assertEquals(2, reopened.getLastOrderId());
+        SalesCounts counts = reopened.countSalesByProduct(20001, 20001, SalesLedger.ALL_PRODUCTS);
+        assertEquals(3, counts.size());
+        assertEquals(2, counts.getUnits(101));
+    }
+
+    @Test
+    void wholeOrdersAreKeptWhenOnlyATrailingPartialRecordIsTorn() throws IOException {
+        ledger.recordOrder(1, List.of(new SalesLedger.Sale(new Product("101", "Saturn V", 2.5, 0, 5), 1),
+                new SalesLedger.Sale(new Product("102", "Falcon 9", 4.0, 0, 5), 1)), 20000);
+        Files.write(directory.resolve("sales.bin"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        SalesLedger restarted = openLedger();
+        assertEquals(2, restarted.getRecordCount());
+        assertEquals(1, restarted.getLastOrderId());
+    }
+
+    private SalesLedger openLedger() throws IOException {
+        return new SalesLedger(directory.resolve("sales.bin"), directory.resolve("soldProducts.txt"));
+    }
+}
@@ -0,0 +1,129 @@
+package org.SwEng.storeSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A sales report over a long range of days: the SalesRollup counters the reports use, against counting the
+ * ledger itself, on one thread and with SalesLedger.countSalesByProduct on a pool of 1 to 8 threads.
+ * <p>
+ * The ledger is synthetic (five years of sales over 500 products) and lives in a temporary directory. The
+ * parallel counts are run for every product and for one product, as the one-product range report does; the
+ * thread counts give the scaling curve, which is only meaningful on a machine with that many cores.
+ * Run with: mvn test -Pbenchmarks -Djmh.args="SalesRangeBenchmark"
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SalesRangeBenchmark {
+    private static final int PRODUCT_COUNT = 500;
+    private static final int DAYS = 5 * 365;
+    private static final int SALES_PER_ORDER = 1000;
+    private static final int PRODUCT_ID = 100;
+
+    @Param({"1000000", "8000000"})
+    private int recordCount;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private Path directory;
+    private SalesLedger ledger;
+    private SalesRollup rollup;
+    private ForkJoinPool pool;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sales");
+        ledger = new SalesLedger(directory.resolve("sales.bin"), directory.resolve("soldProducts.txt"));
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            products.add(new Product(String.valueOf(PRODUCT_ID + i), "Rocket " + i, 1.5 + i, 0, 5));
+        }
+        int firstDay = (int) LocalDate.of(2020, 1, 1).toEpochDay();
+        int orders = recordCount / SALES_PER_ORDER;
+        List<SalesLedger.Sale> sales = new ArrayList<>(SALES_PER_ORDER);
+        for (int order = 0; order < orders; order++) {
+            sales.clear();
+            for (int i = 0; i < SALES_PER_ORDER; i++) {
+                sales.add(new SalesLedger.Sale(products.get((order + i) % PRODUCT_COUNT), 1 + i % 3));
+            }
+            ledger.recordOrder(order + 1, sales, firstDay + (int) ((long) order * DAYS / orders));
+        }
+        rollup = new SalesRollup(ledger, directory.resolve("salesRollup.txt"));
+
+        pool = new ForkJoinPool(threads);
+
+        // Mid-month to mid-month, so the rollup adds up loose days at both ends as well as whole months
+        from = LocalDate.ofEpochDay(firstDay).plusDays(45);
+        to = LocalDate.ofEpochDay(firstDay + DAYS).minusDays(45);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public SalesCounts rollupCounters() {
+        return rollup.getRangeCounts(from, to);
+    }
+
+    @Benchmark
+    public SalesCounts sequentialScan() {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        SalesCounts counts = new SalesCounts();
+        ledger.forEachSale((productId, epochDay, unitPrice, quantity, orderId) -> {
+            if (epochDay >= fromDay && epochDay <= toDay) {
+                counts.add(productId, quantity, quantity * unitPrice);
+            }
+        });
+        return counts;
+    }
+
+    @Benchmark
+    public SalesCounts parallelScan() {
+        return ledger.countSalesByProduct(0, ledger.getRecordCount(), (int) from.toEpochDay(), (int) to.toEpochDay(),
+                SalesLedger.ALL_PRODUCTS, pool);
+    }
+
+    @Benchmark
+    public SalesCounts parallelScanOneProduct() {
+        return ledger.countSalesByProduct(0, ledger.getRecordCount(), (int) from.toEpochDay(), (int) to.toEpochDay(),
+                PRODUCT_ID, pool);
+    }
+}
@@ -0,0 +1,62 @@
+package org.SwEng.storeSystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SalesRollupTest {
+    private static final Product SATURN_V = new Product("101", "Saturn V", 2.0, 0, 5);
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void checkpointsAppendChangedDaysAndSurviveATornTail() throws IOException {
+        SalesLedger ledger = new SalesLedger(directory.resolve("sales.bin"), directory.resolve("soldProducts.txt"));
+        Path checkpointPath = directory.resolve("salesRollup.txt");
+        SalesRollup rollup = new SalesRollup(ledger, checkpointPath);
+
+        // One order a day across a month boundary; every 100 records checkpoint
+        long orderId = 0;
+        for (int day = 0; day < 4; day++) {
+            for (int i = 0; i < 100; i++) {
+                ledger.recordOrder(++orderId, List.of(new SalesLedger.Sale(SATURN_V, 1)), (int) FIRST_DAY.toEpochDay() + day);
+                rollup.catchUp();
+            }
+        }
+        String written = Files.readString(checkpointPath);
+        assertTrue(written.contains("changes\n"), written);
+        // Only the day that changed is appended, not the days before it
+        String lastChange = written.substring(written.lastIndexOf("changes\n"));
+        assertEquals(1, lastChange.lines().filter(line -> line.startsWith("D,")).count(), lastChange);
+
+        // A crash while appending the next change
+        Files.writeString(checkpointPath, "changes\nD," + FIRST_DAY.toEpochDay() + ",101,999,1.0\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        ledger.recordOrder(++orderId, List.of(new SalesLedger.Sale(SATURN_V, 3)), (int) FIRST_DAY.plusDays(3).toEpochDay());
+
+        SalesRollup restarted = new SalesRollup(ledger, checkpointPath);
+        assertEquals(100, restarted.getDailyCounts(FIRST_DAY).getUnits(101));
+        assertEquals(103, restarted.getDailyCounts(FIRST_DAY.plusDays(3)).getUnits(101));
+        assertEquals(200, restarted.getMonthlyCounts(FIRST_DAY).getUnits(101));
+        assertEquals(203, restarted.getMonthlyCounts(FIRST_DAY.plusDays(3)).getUnits(101));
+        assertEquals(406.0, restarted.getMonthlyCounts(FIRST_DAY.plusDays(3)).getRevenue(101), 1e-9);
+
+        // The partial change is replaced by a full rewrite rather than appended to
+        restarted.checkpoint();
+        SalesRollup reloaded = new SalesRollup(ledger, checkpointPath);
+        assertEquals(100, reloaded.getDailyCounts(FIRST_DAY).getUnits(101));
+        assertEquals(203, reloaded.getMonthlyCounts(FIRST_DAY.plusDays(3)).getUnits(101));
+    }
+}
@@ -0,0 +1,127 @@
+package org.SwEng.storeSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting one month's sales in a text sales file (ProductName,YYYY-MM-DD per line), as the old month filter did.
+ * <p>
+ * "splitWholeFile" is the old code path: the whole file read into one String, split into lines, each line split
+ * on the comma and its date parsed with LocalDate.parse. "readLineAndSplit" streams the file a line at a time but
+ * still splits and parses every line. "streamingReader" is SalesTextReader. The file is synthetic (five years of
+ * sales over 500 products, in date order) and lives in a temporary directory.
+ * Run with: mvn test -Pbenchmarks -Djmh.args="SalesTextReaderBenchmark -p lineCount=1000000 -prof gc"
+ * The 50M-line file does not fit in memory as one String, so leave out the old code path for it:
+ * mvn test -Pbenchmarks -Djmh.args="SalesTextReaderBenchmark.(readLineAndSplit|streamingReader) -p lineCount=50000000"
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class SalesTextReaderBenchmark {
+    private static final int PRODUCT_COUNT = 500;
+    private static final int DAYS = 5 * 365;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    @Param({"1000000", "50000000"})
+    private int lineCount;
+
+    private Path directory;
+    private Path salesFile;
+    private LocalDate targetMonth;
+    private int monthStart;
+    private int monthEnd;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("salesText");
+        salesFile = directory.resolve("sales.txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(salesFile)) {
+            for (int i = 0; i < lineCount; i++) {
+                LocalDate day = FIRST_DAY.plusDays((long) i * DAYS / lineCount);
+                writer.write("Rocket " + (i % PRODUCT_COUNT) + "," + day + "\n");
+            }
+        }
+
+        targetMonth = FIRST_DAY.plusMonths(30);
+        monthStart = (int) targetMonth.toEpochDay();
+        monthEnd = (int) targetMonth.withDayOfMonth(targetMonth.lengthOfMonth()).toEpochDay();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(salesFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int splitWholeFile() throws IOException {
+        int matches = 0;
+        String[] lines = Files.readString(salesFile).split("\\R");
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            if (parts.length == 2 && matchesMonth(parts[1].trim())) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int readLineAndSplit() throws IOException {
+        int matches = 0;
+        try (BufferedReader reader = Files.newBufferedReader(salesFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 2 && matchesMonth(parts[1].trim())) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int streamingReader() throws IOException {
+        int[] matches = new int[1];
+        SalesTextReader.forEachSale(salesFile, sale -> {
+            int epochDay = sale.epochDay();
+            if (epochDay >= monthStart && epochDay <= monthEnd) {
+                matches[0]++;
+            }
+        });
+        return matches[0];
+    }
+
+    private boolean matchesMonth(String date) {
+        try {
+            LocalDate saleDate = LocalDate.parse(date);
+            return saleDate.getYear() == targetMonth.getYear() && saleDate.getMonth() == targetMonth.getMonth();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}